@@ -0,0 +1,24 @@
+package org.cdlflex.jgit.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the benchmark jar: runs JMH with the given options, writing the results as JSON to
+ * {@code jmh-result.json} unless a result format is given with {@code -rf}. The JSON files of two runs can be compared
+ * with any JMH result viewer or a diff of their scores.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.addAll(0, Arrays.asList("-rf", "json"));
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+    }
+}
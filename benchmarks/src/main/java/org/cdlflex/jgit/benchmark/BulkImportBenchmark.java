@@ -0,0 +1,98 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.commit.BulkImporter;
+import org.cdlflex.jgit.commit.InCoreCommitBuilder;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports the same synthetic history into an empty repository once commit by commit through an
+ * {@link InCoreCommitBuilder}, which writes loose objects and updates the ref every time, and once through a
+ * {@link BulkImporter} writing a single pack. Each commit changes {@link #FILES_PER_COMMIT} files of a tree with
+ * {@link #FILES} files, so it writes that many blobs plus the commit and the trees above them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkImportBenchmark {
+
+    private static final int FILES = 10000;
+    private static final int FILES_PER_COMMIT = 5;
+
+    @Param({ "1000", "10000" })
+    public int commits;
+
+    private File directory;
+    private Repository repository;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bulk-import-bench").toFile();
+        repository = new FileRepositoryBuilder().setGitDir(directory).build();
+        repository.create(true);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        repository.close();
+        FileUtils.delete(directory, FileUtils.RECURSIVE);
+    }
+
+    @Benchmark
+    public void commitByCommit() throws IOException, GitAPIException {
+        for (int c = 0; c < commits; c++) {
+            InCoreCommitBuilder builder = new InCoreCommitBuilder(repository).setBranch("master")
+                    .setMessage("commit " + c);
+            for (int f = 0; f < FILES_PER_COMMIT; f++) {
+                builder.add(path(c, f), content(c, f));
+            }
+            builder.commit();
+        }
+    }
+
+    @Benchmark
+    public long bulkImport() throws IOException, GitAPIException {
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            for (int c = 0; c < commits; c++) {
+                BulkImporter.BulkCommit commit = importer.newCommit("master").setMessage("commit " + c);
+                for (int f = 0; f < FILES_PER_COMMIT; f++) {
+                    commit.add(path(c, f), content(c, f));
+                }
+                commit.write();
+            }
+            return importer.getObjectCount();
+        }
+    }
+
+    private static String path(int commit, int file) {
+        return SyntheticHistory.path((commit * 7919 + file * 1237) % FILES);
+    }
+
+    private static byte[] content(int commit, int file) {
+        return ("commit " + commit + " file " + file).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.history.ChangedPathFilterIndex;
+import org.cdlflex.jgit.history.ChangedPathRevFilter;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a path-limited log walk using a plain tree filter, as {@code git.log().addPath(...)} does, against a walk
+ * consulting the changed path bloom filters, on a synthetic linear history.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangedPathFilterBenchmark {
+
+    @Param({ "100000" })
+    public int commits;
+
+    @Param({ "10000" })
+    public int paths;
+
+    private Repository repository;
+    private ObjectId head;
+    private ChangedPathFilterIndex filters;
+    private String path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        repository = SyntheticHistory.openCached(commits, paths, 42);
+        head = repository.resolve(Constants.MASTER);
+
+        filters = ChangedPathFilterIndex.open(repository);
+        filters.update(head);
+        path = SyntheticHistory.path(paths / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+    }
+
+    @Benchmark
+    public void treeFilterWalk(Blackhole blackhole) throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            walk.setTreeFilter(AndTreeFilter.create(PathFilterGroup.createFromStrings(path), TreeFilter.ANY_DIFF));
+            walk.markStart(walk.parseCommit(head));
+            for (RevCommit commit : walk) {
+                blackhole.consume(commit);
+            }
+        } finally {
+            walk.release();
+        }
+    }
+
+    @Benchmark
+    public void bloomFilterWalk(Blackhole blackhole) throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            walk.setRevFilter(new ChangedPathRevFilter(filters, path));
+            walk.markStart(walk.parseCommit(head));
+            for (RevCommit commit : walk) {
+                blackhole.consume(commit);
+            }
+        } finally {
+            walk.release();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.history.CommitGraph;
+import org.cdlflex.jgit.history.CommitGraphWalk;
+import org.cdlflex.jgit.history.CommitGraphWriter;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ancestry queries answered by a {@link RevWalk}, which parses every commit object it visits, against the
+ * same queries on the memory-mapped {@link CommitGraph}. Run with {@code -prof gc} to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommitGraphBenchmark {
+
+    @Param({ "100000" })
+    public int commits;
+
+    @Param({ "1000" })
+    public int paths;
+
+    private Repository repository;
+    private CommitGraph graph;
+    private CommitGraphWalk graphWalk;
+    private ObjectId head;
+    private ObjectId middle;
+    private ObjectId root;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        repository = SyntheticHistory.openCached(commits, paths, 42);
+        head = repository.resolve(Constants.MASTER);
+        middle = repository.resolve(Constants.MASTER + "~" + commits / 2);
+        RevWalk walk = new RevWalk(repository);
+        walk.sort(RevSort.REVERSE);
+        walk.markStart(walk.parseCommit(head));
+        root = walk.next().copy();
+        walk.release();
+
+        graph = CommitGraphWriter.write(repository);
+        graphWalk = graph.newWalk();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+    }
+
+    @Benchmark
+    public boolean revWalkIsAncestor() throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            return walk.isMergedInto(walk.parseCommit(root), walk.parseCommit(head));
+        } finally {
+            walk.release();
+        }
+    }
+
+    @Benchmark
+    public boolean graphIsAncestor() {
+        return graphWalk.isAncestor(graph.findPosition(root), graph.findPosition(head));
+    }
+
+    @Benchmark
+    public RevCommit revWalkMergeBase() throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(walk.parseCommit(head));
+            walk.markStart(walk.parseCommit(middle));
+            return walk.next();
+        } finally {
+            walk.release();
+        }
+    }
+
+    @Benchmark
+    public int graphMergeBase() {
+        return graphWalk.mergeBase(graph.findPosition(head), graph.findPosition(middle));
+    }
+
+    @Benchmark
+    public int revWalkLog() throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            walk.markStart(walk.parseCommit(head));
+            int count = 0;
+            while (walk.next() != null) {
+                count++;
+            }
+            return count;
+        } finally {
+            walk.release();
+        }
+    }
+
+    @Benchmark
+    public int graphLog() {
+        graphWalk.markStart(graph.findPosition(head));
+        int count = 0;
+        while (graphWalk.next() >= 0) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,309 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.commit.BulkImporter;
+import org.cdlflex.jgit.history.FileHistoryReader;
+import org.cdlflex.jgit.merge.ConflictPredictor;
+import org.cdlflex.jgit.merge.InCoreMerger;
+import org.cdlflex.jgit.merge.MergeOutcome;
+import org.cdlflex.jgit.merge.MergePrediction;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every workflow shown in {@code JGitExampleTest} through the porcelain API: add, commit, branch, checkout,
+ * rm, log by path, retrieving all versions of a file, and merging with and without the "ours" strategy. Both merges
+ * are also measured through the {@link InCoreMerger}, which needs no checkout, and the conflicting merge is predicted
+ * with a {@link ConflictPredictor}.
+ * <p>
+ * Each trial works on a repository with a checked out working tree of {@link #files} files of about
+ * {@link #fileSize} bytes, whose master has a history of {@link #commits} commits that each change one random file.
+ * Branch {@code other} changes every tenth file, branches {@code ours} and {@code theirs} change the first file in
+ * conflicting ways. Operations that change the repository are undone after every invocation, outside of the measured
+ * time, so each invocation sees the same repository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExampleWorkflowBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({ "100", "1000" })
+    public int commits;
+
+    @Param({ "100", "1000" })
+    public int files;
+
+    @Param({ "1024", "16384" })
+    public int fileSize;
+
+    private File directory;
+    private Repository repository;
+    private Git git;
+    private ObjectId masterTip;
+    private ObjectId oursTip;
+    private ObjectId theirsTip;
+    private int revision;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        directory = Files.createTempDirectory("workflow-bench").toFile();
+        repository = new FileRepositoryBuilder().setWorkTree(directory).build();
+        repository.create();
+        git = new Git(repository);
+
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            BulkImporter.BulkCommit initial = importer.newCommit("master").setMessage("initial");
+            for (int f = 0; f < files; f++) {
+                initial.add(SyntheticHistory.path(f), content(f, "initial"));
+            }
+            initial.write();
+            Random random = new Random(SEED);
+            for (int c = 1; c < commits; c++) {
+                int f = random.nextInt(files);
+                importer.newCommit("master").setMessage("change " + SyntheticHistory.path(f))
+                        .add(SyntheticHistory.path(f), content(f, "revision " + c)).write();
+            }
+            ObjectId master = importer.getBranchTip("master");
+            masterTip = master;
+
+            importer.resetBranch("other", master);
+            BulkImporter.BulkCommit other = importer.newCommit("other").setMessage("other");
+            for (int f = 0; f < files; f += 10) {
+                other.add(SyntheticHistory.path(f), content(f, "other"));
+            }
+            other.write();
+            importer.resetBranch("ours", master);
+            oursTip = importer.newCommit("ours").setMessage("ours")
+                    .add(SyntheticHistory.path(0), content(0, "ours")).write();
+            importer.resetBranch("theirs", master);
+            theirsTip = importer.newCommit("theirs").setMessage("theirs")
+                    .add(SyntheticHistory.path(0), content(0, "theirs")).write();
+        }
+        git.reset().setMode(ResetCommand.ResetType.HARD).call();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        FileUtils.delete(directory, FileUtils.RECURSIVE);
+    }
+
+    /**
+     * A file with a new, unstaged version. Master, the index and the working tree are reset after the invocation.
+     */
+    @State(Scope.Benchmark)
+    public static class Modified {
+
+        String path;
+
+        @Setup(Level.Invocation)
+        public void setUp(ExampleWorkflowBenchmark benchmark) throws IOException {
+            int next = benchmark.revision++;
+            int file = next % benchmark.files;
+            path = SyntheticHistory.path(file);
+            benchmark.write(path, benchmark.content(file, "modified " + next));
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown(ExampleWorkflowBenchmark benchmark) throws GitAPIException {
+            benchmark.git.reset().setMode(ResetCommand.ResetType.HARD).setRef(benchmark.masterTip.name()).call();
+        }
+    }
+
+    /**
+     * A file with a new, staged version.
+     */
+    @State(Scope.Benchmark)
+    public static class Staged extends Modified {
+
+        @Setup(Level.Invocation)
+        public void stage(ExampleWorkflowBenchmark benchmark) throws GitAPIException {
+            benchmark.git.add().addFilepattern(path).call();
+        }
+    }
+
+    /**
+     * A name for a new branch that is deleted again after the invocation.
+     */
+    @State(Scope.Benchmark)
+    public static class NewBranch {
+
+        String name;
+
+        @Setup(Level.Invocation)
+        public void setUp(ExampleWorkflowBenchmark benchmark) {
+            name = "branch-" + benchmark.revision++;
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown(ExampleWorkflowBenchmark benchmark) throws GitAPIException {
+            benchmark.git.branchDelete().setBranchNames(name).setForce(true).call();
+        }
+    }
+
+    /**
+     * A tracked file that is restored after the invocation.
+     */
+    @State(Scope.Benchmark)
+    public static class Tracked {
+
+        String path;
+
+        @Setup(Level.Invocation)
+        public void setUp(ExampleWorkflowBenchmark benchmark) {
+            path = SyntheticHistory.path(benchmark.revision++ % benchmark.files);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown(ExampleWorkflowBenchmark benchmark) throws GitAPIException {
+            benchmark.git.reset().setMode(ResetCommand.ResetType.HARD).call();
+        }
+    }
+
+    /**
+     * Branch {@code ours} checked out, reset to its original commit after the invocation.
+     */
+    @State(Scope.Benchmark)
+    public static class OnOurs {
+
+        @Setup(Level.Invocation)
+        public void setUp(ExampleWorkflowBenchmark benchmark) throws IOException, GitAPIException {
+            if (!"ours".equals(benchmark.repository.getBranch())) {
+                benchmark.git.checkout().setName("ours").call();
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown(ExampleWorkflowBenchmark benchmark) throws GitAPIException {
+            benchmark.git.reset().setMode(ResetCommand.ResetType.HARD).setRef(benchmark.oursTip.name()).call();
+        }
+    }
+
+    @Benchmark
+    public DirCache add(Modified modified) throws GitAPIException {
+        return git.add().addFilepattern(modified.path).call();
+    }
+
+    @Benchmark
+    public RevCommit commit(Staged staged) throws GitAPIException {
+        return git.commit().setMessage("change " + staged.path).call();
+    }
+
+    @Benchmark
+    public Ref branch(NewBranch branch) throws GitAPIException {
+        return git.branchCreate().setName(branch.name).call();
+    }
+
+    /**
+     * Switches between master and {@code other}, which differ in every tenth file.
+     */
+    @Benchmark
+    public Ref checkout() throws IOException, GitAPIException {
+        return git.checkout().setName("master".equals(repository.getBranch()) ? "other" : "master").call();
+    }
+
+    @Benchmark
+    public DirCache rm(Tracked tracked) throws GitAPIException {
+        return git.rm().addFilepattern(tracked.path).call();
+    }
+
+    @Benchmark
+    public void logByPath(Blackhole blackhole) throws GitAPIException {
+        for (RevCommit commit : git.log().addPath(SyntheticHistory.path(files / 2)).call()) {
+            blackhole.consume(commit);
+        }
+    }
+
+    @Benchmark
+    public List<String> allVersions() throws IOException {
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            return reader.getAllVersions(SyntheticHistory.path(files / 2));
+        }
+    }
+
+    @Benchmark
+    public MergeResult mergeConflicting(OnOurs onOurs) throws GitAPIException {
+        return git.merge().include(theirsTip).call();
+    }
+
+    @Benchmark
+    public MergeResult mergeOursStrategy(OnOurs onOurs) throws GitAPIException {
+        return git.merge().setStrategy(MergeStrategy.OURS).include(theirsTip).call();
+    }
+
+    /**
+     * Merges the same commits as {@link #mergeConflicting} without checking out {@code ours}.
+     */
+    @Benchmark
+    public MergeOutcome mergeConflictingInCore() throws IOException {
+        return new InCoreMerger(repository).merge(oursTip, theirsTip);
+    }
+
+    @Benchmark
+    public MergeOutcome mergeOursStrategyInCore() throws IOException {
+        return new InCoreMerger(repository).setStrategy(MergeStrategy.OURS).merge(oursTip, theirsTip);
+    }
+
+    /**
+     * Predicts the outcome of {@link #mergeConflicting} without merging.
+     */
+    @Benchmark
+    public MergePrediction predictConflicting() throws IOException {
+        return new ConflictPredictor(repository).predict(oursTip, theirsTip);
+    }
+
+    private void write(String path, byte[] content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(directory, path))) {
+            out.write(content);
+        }
+    }
+
+    /**
+     * Returns about fileSize bytes of text, different on every line for every file and version.
+     */
+    private byte[] content(int file, String version) {
+        StringBuilder content = new StringBuilder(fileSize + 64);
+        for (int line = 0; content.length() < fileSize; line++) {
+            content.append("file ").append(file).append(' ').append(version).append(" line ").append(line)
+                    .append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
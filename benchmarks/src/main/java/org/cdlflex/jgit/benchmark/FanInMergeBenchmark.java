@@ -0,0 +1,128 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.commit.InCoreCommitBuilder;
+import org.cdlflex.jgit.merge.FanInMerger;
+import org.cdlflex.jgit.merge.FanInOutcome;
+import org.cdlflex.jgit.merge.InCoreMerger;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares merging topic branches into an integration commit one after another with an {@link InCoreMerger} against
+ * a single {@link FanInMerger} merge on {@code parallelism} threads. Every branch changes the last line of its own
+ * {@code filesPerBranch} files whose first line the integration commit changed, so each file needs a content merge.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanInMergeBenchmark {
+
+    private static final int LINES = 100;
+
+    @Param({ "1000" })
+    public int files;
+
+    @Param({ "8" })
+    public int branches;
+
+    @Param({ "50" })
+    public int filesPerBranch;
+
+    @Param({ "1", "4" })
+    public int parallelism;
+
+    private File directory;
+    private Repository repository;
+    private RevCommit integration;
+    private List<RevCommit> topics;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        directory = Files.createTempDirectory("fan-in-bench").toFile();
+        repository = new FileRepositoryBuilder().setGitDir(directory).build();
+        repository.create(true);
+        InCoreCommitBuilder base = new InCoreCommitBuilder(repository).setMessage("base");
+        for (int file = 0; file < files; file++) {
+            base.add(SyntheticHistory.path(file), content(file, -1, null));
+        }
+        RevCommit baseCommit = base.commit();
+
+        InCoreCommitBuilder integrationBuilder = new InCoreCommitBuilder(repository).setParent(baseCommit)
+                .setMessage("integration");
+        for (int file = 0; file < branches * filesPerBranch; file++) {
+            integrationBuilder.add(SyntheticHistory.path(file), content(file, 0, "integration"));
+        }
+        integration = integrationBuilder.commit();
+
+        topics = new ArrayList<>(branches);
+        for (int b = 0; b < branches; b++) {
+            InCoreCommitBuilder topic = new InCoreCommitBuilder(repository).setParent(baseCommit)
+                    .setMessage("topic " + b);
+            for (int file = b * filesPerBranch; file < (b + 1) * filesPerBranch; file++) {
+                topic.add(SyntheticHistory.path(file), content(file, LINES - 1, "topic " + b));
+            }
+            topics.add(topic.commit());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        FileUtils.delete(directory, FileUtils.RECURSIVE);
+    }
+
+    @Benchmark
+    public ObjectId sequentialInCore() throws IOException {
+        InCoreMerger merger = new InCoreMerger(repository);
+        ObjectId tip = integration;
+        for (RevCommit topic : topics) {
+            tip = merger.merge(tip, topic).getCommit();
+        }
+        return tip;
+    }
+
+    @Benchmark
+    public FanInOutcome fanIn() throws IOException {
+        return new FanInMerger(repository).setParallelism(parallelism).merge(integration, topics);
+    }
+
+    private static byte[] content(int file, int changedLine, String change) {
+        StringBuilder content = new StringBuilder();
+        for (int line = 0; line < LINES; line++) {
+            content.append("file ").append(file).append(" line ").append(line);
+            if (line == changedLine) {
+                content.append(' ').append(change);
+            }
+            content.append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
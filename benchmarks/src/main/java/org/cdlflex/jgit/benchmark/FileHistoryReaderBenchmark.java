@@ -0,0 +1,145 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.history.ContentCache;
+import org.cdlflex.jgit.history.FileHistoryReader;
+import org.cdlflex.jgit.history.FileVersion;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares extracting every revision of a file with one object reader per revision (the pattern used by the original
+ * {@code JGitExampleTest.getFileRevisionContent}) against a single {@link FileHistoryReader} shared by the whole
+ * history walk, and a shared reader serving the hot revisions from a warm {@link ContentCache}.
+ * <p>
+ * {@link #versionsHistoryOrder} and {@link #allVersionsPackOrder} compare reading the blobs of all revisions in
+ * history order against {@link FileHistoryReader#getAllVersions(String)}, which reads them in pack order. Run with
+ * {@code -prof gc} to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileHistoryReaderBenchmark {
+
+    private static final String FILENAME = "config.properties";
+
+    @Param({ "100", "1000" })
+    public int revisions;
+
+    private File directory;
+    private Repository repository;
+    private List<RevCommit> commits;
+    private ContentCache contentCache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        directory = Files.createTempDirectory("history-bench").toFile();
+        repository = new FileRepositoryBuilder().setWorkTree(directory).build();
+        repository.create();
+
+        Git git = new Git(repository);
+        File file = new File(directory, FILENAME);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < revisions; i++) {
+            content.append("key").append(i).append('=').append(i).append(System.lineSeparator());
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            git.add().addFilepattern(FILENAME).call();
+            git.commit().setMessage("revision " + i).call();
+        }
+        git.gc().call();
+
+        try (FileHistoryReader historyReader = new FileHistoryReader(repository)) {
+            commits = historyReader.getCommits(FILENAME);
+        }
+        contentCache = new ContentCache(64 << 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        FileUtils.delete(directory, FileUtils.RECURSIVE);
+    }
+
+    @Benchmark
+    public void readerPerRevision(Blackhole blackhole) throws IOException {
+        for (RevCommit commit : commits) {
+            ObjectReader reader = repository.newObjectReader();
+            try {
+                TreeWalk treeWalk = TreeWalk.forPath(reader, FILENAME, commit.getTree());
+                byte[] data = reader.open(treeWalk.getObjectId(0)).getBytes();
+                blackhole.consume(new String(data, "UTF-8"));
+            } finally {
+                reader.release();
+            }
+        }
+    }
+
+    @Benchmark
+    public void sharedReader(Blackhole blackhole) throws IOException {
+        try (FileHistoryReader historyReader = new FileHistoryReader(repository)) {
+            for (RevCommit commit : commits) {
+                blackhole.consume(historyReader.getContent(commit, FILENAME));
+            }
+        }
+    }
+
+    @Benchmark
+    public void versionsHistoryOrder(Blackhole blackhole) throws IOException {
+        try (FileHistoryReader historyReader = new FileHistoryReader(repository)) {
+            Iterator<FileVersion> versions = historyReader.versions(FILENAME);
+            while (versions.hasNext()) {
+                blackhole.consume(versions.next().getContent().toString());
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> allVersionsPackOrder() throws IOException {
+        try (FileHistoryReader historyReader = new FileHistoryReader(repository)) {
+            return historyReader.getAllVersions(FILENAME);
+        }
+    }
+
+    @Benchmark
+    public void sharedReaderContentCache(Blackhole blackhole) throws IOException {
+        try (FileHistoryReader historyReader = new FileHistoryReader(repository)) {
+            historyReader.setContentCache(contentCache);
+            for (RevCommit commit : commits) {
+                blackhole.consume(historyReader.getContent(commit, FILENAME));
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.commit.InCoreCommitBuilder;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares committing a single changed file through the working tree ({@code git add .} followed by
+ * {@code git commit}, as {@code AbstractJGitTest.commitAllChanges} does) against an {@link InCoreCommitBuilder} that
+ * only writes the changed blob and the trees above it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InCoreCommitBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int files;
+
+    private File directory;
+    private Repository repository;
+    private Git git;
+    private int revision;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        directory = Files.createTempDirectory("commit-bench").toFile();
+        repository = new FileRepositoryBuilder().setWorkTree(directory).build();
+        repository.create();
+        git = new Git(repository);
+        for (int i = 0; i < files; i++) {
+            write(SyntheticHistory.path(i), "initial " + i);
+        }
+        git.add().addFilepattern(".").call();
+        RevCommit initial = git.commit().setMessage("initial").call();
+        git.branchCreate().setName("in-core").setStartPoint(initial).call();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        FileUtils.delete(directory, FileUtils.RECURSIVE);
+    }
+
+    @Benchmark
+    public RevCommit worktreeCommit() throws IOException, GitAPIException {
+        int next = revision++;
+        write(SyntheticHistory.path(next % files), "revision " + next);
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage("revision " + next).call();
+    }
+
+    @Benchmark
+    public RevCommit inCoreCommit() throws IOException, GitAPIException {
+        int next = revision++;
+        return new InCoreCommitBuilder(repository).setBranch("in-core").setMessage("revision " + next)
+                .add(SyntheticHistory.path(next % files), ("revision " + next).getBytes(StandardCharsets.UTF_8))
+                .commit();
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
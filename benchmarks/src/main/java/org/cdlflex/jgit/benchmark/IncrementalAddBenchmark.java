@@ -0,0 +1,97 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.commit.IncrementalAdd;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares staging a single modified file with a full {@code git add .} against an {@link IncrementalAdd} that is
+ * told which path changed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IncrementalAddBenchmark {
+
+    @Param({ "100000" })
+    public int files;
+
+    private File directory;
+    private Repository repository;
+    private Git git;
+    private int revision;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        directory = Files.createTempDirectory("add-bench").toFile();
+        repository = new FileRepositoryBuilder().setWorkTree(directory).build();
+        repository.create();
+        git = new Git(repository);
+        for (int i = 0; i < files; i++) {
+            write(SyntheticHistory.path(i), "initial " + i);
+        }
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("initial").call();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        FileUtils.delete(directory, FileUtils.RECURSIVE);
+    }
+
+    @Benchmark
+    public DirCache fullScanAdd() throws IOException, GitAPIException {
+        modifyNext();
+        return git.add().addFilepattern(".").call();
+    }
+
+    @Benchmark
+    public DirCache incrementalAdd() throws IOException {
+        String path = modifyNext();
+        return new IncrementalAdd(repository).add(Collections.singleton(path));
+    }
+
+    private String modifyNext() throws IOException {
+        int next = revision++;
+        String path = SyntheticHistory.path(next % files);
+        write(path, "revision " + next);
+        return path;
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
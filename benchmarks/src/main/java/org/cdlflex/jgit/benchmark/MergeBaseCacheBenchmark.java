@@ -0,0 +1,120 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.commit.HistoryGenerator;
+import org.cdlflex.jgit.history.CommitGraph;
+import org.cdlflex.jgit.history.CommitGraphWriter;
+import org.cdlflex.jgit.merge.MergeBaseCache;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares computing the merge bases of the mainline and every topic branch of a {@link HistoryGenerator} history,
+ * where topics are merged back into the mainline again and again, with a {@link RevWalk}, on a {@link CommitGraph}
+ * and from a warm {@link MergeBaseCache}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MergeBaseCacheBenchmark {
+
+    @Param({ "10000" })
+    public int commits;
+
+    @Param({ "8" })
+    public int branches;
+
+    private File directory;
+    private Repository repository;
+    private ObjectId mainline;
+    private List<ObjectId> topics;
+    private CommitGraph graph;
+    private MergeBaseCache warmCache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        directory = Files.createTempDirectory("merge-base-bench").toFile();
+        repository = new FileRepositoryBuilder().setGitDir(directory).build();
+        repository.create(true);
+        mainline = new HistoryGenerator().setSeed(42).setCommits(commits).setFiles(1000).setBranches(branches)
+                .setMergeRate(0.05).setFileSizes(HistoryGenerator.SizeDistribution.fixed(256)).generate(repository);
+        topics = new ArrayList<>(branches);
+        for (int b = 0; b < branches; b++) {
+            topics.add(repository.resolve("topic-" + b));
+        }
+        graph = CommitGraphWriter.write(repository);
+        warmCache = MergeBaseCache.inMemory(repository);
+        for (ObjectId topic : topics) {
+            warmCache.getMergeBases(mainline, topic);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        FileUtils.delete(directory, FileUtils.RECURSIVE);
+    }
+
+    @Benchmark
+    public void revWalk(Blackhole blackhole) throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            for (ObjectId topic : topics) {
+                walk.reset();
+                walk.setRevFilter(RevFilter.MERGE_BASE);
+                walk.markStart(walk.parseCommit(mainline));
+                walk.markStart(walk.parseCommit(topic));
+                for (RevCommit base : walk) {
+                    blackhole.consume(base);
+                }
+            }
+        } finally {
+            walk.release();
+        }
+    }
+
+    @Benchmark
+    public void commitGraph(Blackhole blackhole) throws IOException {
+        MergeBaseCache cache = MergeBaseCache.inMemory(repository);
+        cache.setCommitGraph(graph);
+        for (ObjectId topic : topics) {
+            blackhole.consume(cache.getMergeBases(mainline, topic));
+        }
+    }
+
+    @Benchmark
+    public void warmCache(Blackhole blackhole) throws IOException {
+        for (ObjectId topic : topics) {
+            blackhole.consume(warmCache.getMergeBases(mainline, topic));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.commit.ParallelAdd;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the initial import of a working tree full of new files with {@code git add .} against a
+ * {@link ParallelAdd} using one and several threads. Every iteration starts from a fresh repository, so no blob is
+ * already in the object database.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelAddBenchmark {
+
+    @Param({ "10000" })
+    public int files;
+
+    @Param({ "4096" })
+    public int fileSize;
+
+    @Param({ "1", "4" })
+    public int parallelism;
+
+    private File directory;
+    private Repository repository;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("parallel-add-bench").toFile();
+        repository = new FileRepositoryBuilder().setWorkTree(directory).build();
+        repository.create();
+        Random random = new Random(42);
+        byte[] content = new byte[fileSize];
+        for (int i = 0; i < files; i++) {
+            random.nextBytes(content);
+            File file = new File(directory, SyntheticHistory.path(i));
+            file.getParentFile().mkdirs();
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(content);
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        repository.close();
+        FileUtils.delete(directory, FileUtils.RECURSIVE);
+    }
+
+    @Benchmark
+    public DirCache addCommand() throws GitAPIException {
+        return new Git(repository).add().addFilepattern(".").call();
+    }
+
+    @Benchmark
+    public DirCache parallelAdd() throws IOException {
+        return new ParallelAdd(repository).setParallelism(parallelism).add(Collections.singleton("."));
+    }
+}
@@ -0,0 +1,102 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.history.TreeEntryCache;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving one path in every commit of a history with {@link TreeWalk#forPath}, which parses every tree on
+ * the path again for each commit, against a {@link TreeEntryCache} that only parses the trees that changed since an
+ * earlier commit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathResolutionBenchmark {
+
+    @Param({ "10000" })
+    public int commits;
+
+    @Param({ "1000", "10000" })
+    public int paths;
+
+    private Repository repository;
+    private List<RevCommit> history;
+    private String path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        repository = SyntheticHistory.openCached(commits, paths, 42);
+        path = SyntheticHistory.path(paths / 2);
+        history = new ArrayList<>(commits);
+        RevWalk walk = new RevWalk(repository);
+        try {
+            walk.markStart(walk.parseCommit(repository.resolve(Constants.MASTER)));
+            for (RevCommit commit : walk) {
+                history.add(commit);
+            }
+        } finally {
+            walk.release();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+    }
+
+    @Benchmark
+    public void treeWalkForPath(Blackhole blackhole) throws IOException {
+        ObjectReader reader = repository.newObjectReader();
+        try {
+            for (RevCommit commit : history) {
+                TreeWalk treeWalk = TreeWalk.forPath(reader, path, commit.getTree());
+                blackhole.consume(treeWalk != null ? treeWalk.getObjectId(0) : null);
+            }
+        } finally {
+            reader.release();
+        }
+    }
+
+    @Benchmark
+    public void treeEntryCache(Blackhole blackhole) throws IOException {
+        TreeEntryCache cache = new TreeEntryCache();
+        ObjectReader reader = repository.newObjectReader();
+        try {
+            for (RevCommit commit : history) {
+                ObjectId blobId = cache.lookup(reader, commit.getTree(), path);
+                blackhole.consume(blobId);
+            }
+        } finally {
+            reader.release();
+        }
+    }
+}
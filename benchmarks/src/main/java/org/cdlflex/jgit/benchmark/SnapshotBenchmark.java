@@ -0,0 +1,103 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.cdlflex.jgit.history.FileHistoryReader;
+import org.cdlflex.jgit.history.FileVersion;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading many files of one commit with one {@link TreeWalk#forPath} per file, as
+ * {@code JGitExampleTest.getFileRevisionContent} does, against a single {@link FileHistoryReader#snapshot} walk that
+ * reads the blobs in pack order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    @Param({ "10000" })
+    public int commits;
+
+    @Param({ "1000", "10000" })
+    public int paths;
+
+    @Param({ "500" })
+    public int files;
+
+    private Repository repository;
+    private RevCommit commit;
+    private List<String> selected;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GitAPIException {
+        repository = SyntheticHistory.openCached(commits, paths, 42);
+        RevWalk walk = new RevWalk(repository);
+        try {
+            commit = walk.parseCommit(repository.resolve(Constants.MASTER));
+        } finally {
+            walk.release();
+        }
+        selected = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            selected.add(SyntheticHistory.path((int) ((long) i * paths / files)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+    }
+
+    @Benchmark
+    public void treeWalkPerPath(Blackhole blackhole) throws IOException {
+        ObjectReader reader = repository.newObjectReader();
+        try {
+            for (String path : selected) {
+                TreeWalk treeWalk = TreeWalk.forPath(reader, path, commit.getTree());
+                byte[] data = reader.open(treeWalk.getObjectId(0)).getBytes();
+                blackhole.consume(new String(data, StandardCharsets.UTF_8));
+            }
+        } finally {
+            reader.release();
+        }
+    }
+
+    @Benchmark
+    public void snapshot(Blackhole blackhole) throws IOException {
+        try (FileHistoryReader historyReader = new FileHistoryReader(repository)) {
+            Iterator<FileVersion> versions = historyReader.snapshot(commit, selected);
+            while (versions.hasNext()) {
+                blackhole.consume(versions.next().getContent().toString());
+            }
+        }
+    }
+}
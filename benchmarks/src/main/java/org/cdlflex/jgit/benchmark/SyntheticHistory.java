@@ -0,0 +1,127 @@
+package org.cdlflex.jgit.benchmark;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Writes a linear synthetic history straight into the object database, without a working tree.
+ * <p>
+ * The paths are spread over directories of {@link #FILES_PER_DIRECTORY} files each, named {@code dNNNN/fNNNN}. Every
+ * commit changes one randomly chosen path, so only that file's directory tree and the root tree are rewritten.
+ * <p>
+ * Building a large history takes minutes, so {@link #openCached(int, int, long)} keeps the gc'ed result in the
+ * temporary directory and reuses it across trials, benchmarks and runs.
+ */
+final class SyntheticHistory {
+
+    static final int FILES_PER_DIRECTORY = 100;
+
+    private SyntheticHistory() {
+    }
+
+    static String path(int file) {
+        return String.format("d%04d/f%04d", file / FILES_PER_DIRECTORY, file % FILES_PER_DIRECTORY);
+    }
+
+    /**
+     * Opens the bare, gc'ed repository holding the history for the given parameters, building it on first use.
+     */
+    static Repository openCached(int commits, int paths, long seed) throws IOException, GitAPIException {
+        File directory = new File(System.getProperty("java.io.tmpdir"),
+                "jgit-synthetic-" + commits + "-" + paths + "-" + seed + ".git");
+        File complete = new File(directory, "synthetic-complete");
+        if (!complete.exists()) {
+            if (directory.exists()) {
+                FileUtils.delete(directory, FileUtils.RECURSIVE);
+            }
+            Repository repository = new FileRepositoryBuilder().setGitDir(directory).build();
+            repository.create(true);
+            create(repository, commits, paths, seed);
+            new Git(repository).gc().call();
+            repository.close();
+            FileUtils.createNewFile(complete);
+        }
+        return new FileRepositoryBuilder().setGitDir(directory).setMustExist(true).build();
+    }
+
+    /**
+     * Creates the history on master and returns the tip commit.
+     */
+    static ObjectId create(Repository repository, int commits, int paths, long seed) throws IOException {
+        int directories = (paths + FILES_PER_DIRECTORY - 1) / FILES_PER_DIRECTORY;
+        ObjectId[][] blobs = new ObjectId[directories][];
+        ObjectId[] trees = new ObjectId[directories];
+        Random random = new Random(seed);
+        PersonIdent ident = new PersonIdent("bench", "bench@example.com", 0, 0);
+        ObjectId parent = null;
+        ObjectInserter inserter = repository.newObjectInserter();
+        try {
+            for (int d = 0; d < directories; d++) {
+                int files = Math.min(FILES_PER_DIRECTORY, paths - d * FILES_PER_DIRECTORY);
+                blobs[d] = new ObjectId[files];
+                for (int f = 0; f < files; f++) {
+                    blobs[d][f] = inserter.insert(Constants.OBJ_BLOB, content(d * FILES_PER_DIRECTORY + f, 0));
+                }
+                trees[d] = insertDirectory(inserter, blobs[d]);
+            }
+
+            for (int c = 0; c < commits; c++) {
+                int file = random.nextInt(paths);
+                int d = file / FILES_PER_DIRECTORY;
+                blobs[d][file % FILES_PER_DIRECTORY] = inserter.insert(Constants.OBJ_BLOB, content(file, c));
+                trees[d] = insertDirectory(inserter, blobs[d]);
+
+                TreeFormatter root = new TreeFormatter();
+                for (int i = 0; i < directories; i++) {
+                    root.append(String.format("d%04d", i), FileMode.TREE, trees[i]);
+                }
+                CommitBuilder commit = new CommitBuilder();
+                commit.setTreeId(inserter.insert(root));
+                if (parent != null) {
+                    commit.setParentId(parent);
+                }
+                PersonIdent when = new PersonIdent(ident, 1000000000000L + c * 1000L, 0);
+                commit.setAuthor(when);
+                commit.setCommitter(when);
+                commit.setMessage("change " + path(file));
+                parent = inserter.insert(commit);
+            }
+            inserter.flush();
+        } finally {
+            inserter.release();
+        }
+
+        RefUpdate update = repository.updateRef(Constants.R_HEADS + Constants.MASTER);
+        update.setNewObjectId(parent);
+        update.forceUpdate();
+        return parent;
+    }
+
+    private static ObjectId insertDirectory(ObjectInserter inserter, ObjectId[] blobs) throws IOException {
+        TreeFormatter tree = new TreeFormatter();
+        for (int f = 0; f < blobs.length; f++) {
+            tree.append(String.format("f%04d", f), FileMode.REGULAR_FILE, blobs[f]);
+        }
+        return inserter.insert(tree);
+    }
+
+    private static byte[] content(int file, int revision) {
+        return ("file " + file + " revision " + revision + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
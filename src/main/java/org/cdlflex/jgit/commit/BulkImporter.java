@@ -0,0 +1,538 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.api.errors.ConcurrentRefUpdateException;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports a stream of commits straight into pack files, in the spirit of {@code git fast-import}.
+ * <p>
+ * Each branch keeps its current tree in memory as a persistent structure: a commit copies and rewrites only the trees
+ * on the way to its changed paths, unchanged subtrees are shared with earlier commits and other branches. Objects go
+ * through a {@link PackFileInserter}, so no loose object is ever written; in-memory (DFS) repositories already pack
+ * on insertion and use their own inserter. Branch refs are only moved by {@link #checkpoint()} and {@link #close()},
+ * after the objects they point to have been flushed, each with a compare-and-swap against the value it had when the
+ * import started.
+ */
+public class BulkImporter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkImporter.class);
+
+    /**
+     * Number of recently imported commits whose trees are kept, so branches can be started from them without a flush.
+     */
+    private static final int RECENT_COMMITS = 1024;
+
+    private final Repository repository;
+    private final ObjectInserter inserter;
+    private final ObjectReader reader;
+    private final Map<String, Branch> branches = new HashMap<>();
+    private final Map<ObjectId, TreeNode> recentTrees = new LinkedHashMap<ObjectId, TreeNode>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, TreeNode> eldest) {
+            return size() > RECENT_COMMITS;
+        }
+    };
+    private final long startTime = System.nanoTime();
+
+    private long objectCount;
+    private long commitCount;
+
+    public BulkImporter(Repository repository) {
+        this.repository = repository;
+        this.inserter = repository.getObjectDatabase() instanceof ObjectDirectory ? new PackFileInserter(repository)
+                : repository.newObjectInserter();
+        this.reader = repository.newObjectReader();
+    }
+
+    /**
+     * Starts a new commit on top of the current tip of the branch.
+     *
+     * @param branch a short branch name or a full ref name
+     * @return the commit to fill
+     */
+    public BulkCommit newCommit(String branch) {
+        return new BulkCommit(refName(branch));
+    }
+
+    /**
+     * Points the branch at the given commit, like the {@code reset} and {@code from} commands of fast-import. The next
+     * commit on the branch then starts from the tree of that commit.
+     *
+     * @param branch a short branch name or a full ref name
+     * @param commit a commit imported in this session or existing in the repository, null for an unborn branch
+     * @throws IOException when the commit cannot be read
+     */
+    public void resetBranch(String branch, AnyObjectId commit) throws IOException {
+        Branch state = branch(refName(branch));
+        state.tip = commit != null ? commit.copy() : null;
+        state.root = commit != null ? treeOf(state.tip) : new TreeNode(null);
+    }
+
+    /**
+     * Returns the commit the branch points to in this import.
+     *
+     * @param branch a short branch name or a full ref name
+     * @return the tip, or null if the branch is unborn
+     * @throws IOException when the ref cannot be read
+     */
+    public ObjectId getBranchTip(String branch) throws IOException {
+        return branch(refName(branch)).tip;
+    }
+
+    /**
+     * Flushes all objects into a pack and moves every changed branch to its new tip.
+     *
+     * @throws IOException when the pack or a ref cannot be written
+     * @throws ConcurrentRefUpdateException when a branch was moved by someone else during the import
+     */
+    public void checkpoint() throws IOException, ConcurrentRefUpdateException {
+        inserter.flush();
+        for (Branch branch : branches.values()) {
+            if (branch.tip == null || branch.tip.equals(branch.updated)) {
+                continue;
+            }
+            RefUpdate update = repository.updateRef(branch.name);
+            update.setNewObjectId(branch.tip);
+            update.setExpectedOldObjectId(branch.updated != null ? branch.updated : ObjectId.zeroId());
+            update.setForceUpdate(true);
+            update.setRefLogMessage("bulk import", false);
+            RefUpdate.Result result = RefUpdater.update(repository, update, null);
+            switch (result) {
+                case NEW:
+                case FAST_FORWARD:
+                case FORCED:
+                    branch.updated = branch.tip;
+                    break;
+                default:
+                    throw new ConcurrentRefUpdateException("Could not update " + branch.name + " to "
+                            + branch.tip.name(), update.getRef(), result);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of objects written so far, including objects that turned out to exist already.
+     *
+     * @return the number of inserted objects
+     */
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * Returns the import rate since the importer was created.
+     *
+     * @return the number of inserted objects per second
+     */
+    public double getObjectsPerSecond() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return seconds > 0 ? objectCount / seconds : 0;
+    }
+
+    /**
+     * Runs a final {@link #checkpoint()} and releases the inserter.
+     *
+     * @throws IOException when the pack or a ref cannot be written
+     * @throws ConcurrentRefUpdateException when a branch was moved by someone else during the import
+     */
+    @Override
+    public void close() throws IOException, ConcurrentRefUpdateException {
+        try {
+            checkpoint();
+            LOGGER.info("Imported {} commits, {} objects at {} objects/s", commitCount, objectCount,
+                    (long) getObjectsPerSecond());
+        } finally {
+            inserter.release();
+            reader.release();
+        }
+    }
+
+    private Branch branch(String name) throws IOException {
+        Branch branch = branches.get(name);
+        if (branch == null) {
+            Ref ref = repository.getRef(name);
+            ObjectId tip = ref != null ? ref.getObjectId() : null;
+            branch = new Branch(name, tip, tip != null ? treeOf(tip) : new TreeNode(null));
+            branches.put(name, branch);
+        }
+        return branch;
+    }
+
+    private TreeNode treeOf(ObjectId commit) throws IOException {
+        TreeNode root = recentTrees.get(commit);
+        if (root != null) {
+            return root;
+        }
+        if (!reader.has(commit)) {
+            // imported earlier in this session, its objects have to be readable first
+            inserter.flush();
+        }
+        RevWalk walk = new RevWalk(reader);
+        return new TreeNode(walk.parseCommit(commit).getTree().copy());
+    }
+
+    private ObjectId insert(int type, byte[] data) throws IOException {
+        objectCount++;
+        return inserter.insert(type, data);
+    }
+
+    private static String refName(String branch) {
+        return branch.startsWith(Constants.R_REFS) ? branch : Constants.R_HEADS + branch;
+    }
+
+    /**
+     * Returns a node that may be modified: the node itself if it has not been written yet, otherwise a copy.
+     */
+    private TreeNode mutable(TreeNode node) throws IOException {
+        load(node);
+        return node.id == null ? node : copy(node);
+    }
+
+    private static TreeNode copy(TreeNode node) {
+        TreeNode copy = new TreeNode(null);
+        copy.entries = new HashMap<>(node.entries);
+        return copy;
+    }
+
+    private void load(TreeNode node) throws IOException {
+        if (node.entries != null) {
+            return;
+        }
+        node.entries = new HashMap<>();
+        CanonicalTreeParser parser = new CanonicalTreeParser(null, reader, node.id);
+        while (!parser.eof()) {
+            String name = parser.getEntryPathString();
+            FileMode mode = parser.getEntryFileMode();
+            ObjectId id = parser.getEntryObjectId();
+            node.entries.put(name, mode == FileMode.TREE ? new TreeEntry(name, new TreeNode(id))
+                    : new TreeEntry(name, mode, id));
+            parser.next();
+        }
+    }
+
+    private TreeNode set(TreeNode node, String[] names, int depth, TreeEntry leaf) throws IOException {
+        TreeNode copy = mutable(node);
+        String name = names[depth];
+        if (depth == names.length - 1) {
+            copy.entries.put(name, leaf.rename(name));
+        } else {
+            TreeEntry entry = copy.entries.get(name);
+            TreeNode child = entry != null && entry.tree != null ? entry.tree : new TreeNode(null);
+            copy.entries.put(name, new TreeEntry(name, set(child, names, depth + 1, leaf)));
+        }
+        return copy;
+    }
+
+    private TreeNode remove(TreeNode node, String[] names, int depth) throws IOException {
+        load(node);
+        TreeEntry entry = node.entries.get(names[depth]);
+        if (entry == null) {
+            return node;
+        }
+        TreeNode copy = mutable(node);
+        if (depth == names.length - 1) {
+            copy.entries.remove(names[depth]);
+        } else if (entry.tree != null) {
+            copy.entries.put(names[depth], new TreeEntry(names[depth], remove(entry.tree, names, depth + 1)));
+        }
+        return copy;
+    }
+
+    private TreeEntry get(TreeNode node, String[] names) throws IOException {
+        TreeEntry entry = null;
+        for (String name : names) {
+            if (node == null) {
+                return null;
+            }
+            load(node);
+            entry = node.entries.get(name);
+            if (entry == null) {
+                return null;
+            }
+            node = entry.tree;
+        }
+        return entry;
+    }
+
+    /**
+     * Writes all modified trees below and including node.
+     *
+     * @return the id of the tree, or null if it is empty
+     */
+    private ObjectId write(TreeNode node) throws IOException {
+        if (node.id != null) {
+            return node.id;
+        }
+        List<TreeEntry> entries = new ArrayList<>();
+        for (TreeEntry entry : new ArrayList<>(node.entries.values())) {
+            if (entry.tree != null && write(entry.tree) == null) {
+                node.entries.remove(entry.name);
+            } else {
+                entries.add(entry);
+            }
+        }
+        if (entries.isEmpty()) {
+            return null;
+        }
+        entries.sort((a, b) -> TreeUpdater.compareNames(a.rawName, a.tree != null, b.rawName, b.tree != null));
+        TreeFormatter formatter = new TreeFormatter();
+        for (TreeEntry entry : entries) {
+            formatter.append(entry.rawName, entry.tree != null ? FileMode.TREE : entry.mode,
+                    entry.tree != null ? entry.tree.id : entry.id);
+        }
+        node.id = insert(Constants.OBJ_TREE, formatter.toByteArray());
+        return node.id;
+    }
+
+    /**
+     * One commit of the import. Changes are applied in the order they are added when the commit is written.
+     */
+    public class BulkCommit {
+
+        private final String branch;
+        private final List<Operation> operations = new ArrayList<>();
+        private final List<ObjectId> mergeParents = new ArrayList<>();
+        private String message = "";
+        private PersonIdent author;
+        private PersonIdent committer;
+
+        BulkCommit(String branch) {
+            this.branch = branch;
+        }
+
+        public BulkCommit setMessage(String message) {
+            this.message = message;
+            return this;
+        }
+
+        public BulkCommit setAuthor(PersonIdent author) {
+            this.author = author;
+            return this;
+        }
+
+        public BulkCommit setCommitter(PersonIdent committer) {
+            this.committer = committer;
+            return this;
+        }
+
+        /**
+         * Adds or replaces a regular file.
+         *
+         * @param path the repository relative path
+         * @param content the file content
+         * @return this commit
+         */
+        public BulkCommit add(String path, byte[] content) {
+            operations.add(new Operation(Operation.Kind.ADD, TreeUpdater.split(path), content, null));
+            return this;
+        }
+
+        /**
+         * Removes a file or a directory.
+         *
+         * @param path the repository relative path
+         * @return this commit
+         */
+        public BulkCommit remove(String path) {
+            operations.add(new Operation(Operation.Kind.REMOVE, TreeUpdater.split(path), null, null));
+            return this;
+        }
+
+        /**
+         * Moves a file or a directory, keeping its content.
+         *
+         * @param from the current repository relative path
+         * @param to the new repository relative path
+         * @return this commit
+         */
+        public BulkCommit rename(String from, String to) {
+            operations.add(new Operation(Operation.Kind.RENAME, TreeUpdater.split(from), null,
+                    TreeUpdater.split(to)));
+            return this;
+        }
+
+        /**
+         * Adds a further parent, making this a merge commit. The tree is still the tree of the branch with this
+         * commit's changes applied.
+         *
+         * @param parent the commit to merge
+         * @return this commit
+         */
+        public BulkCommit addMergeParent(AnyObjectId parent) {
+            mergeParents.add(parent.copy());
+            return this;
+        }
+
+        /**
+         * Writes the changed trees and the commit and advances the branch in this import.
+         *
+         * @return the id of the new commit
+         * @throws IOException when objects cannot be read or written
+         */
+        public ObjectId write() throws IOException {
+            Branch state = branch(branch);
+            // the root of an unborn branch is not written and would be changed in place, leaving the changes of a
+            // failing commit in the branch
+            TreeNode root = state.root.id == null ? copy(state.root) : state.root;
+            for (Operation operation : operations) {
+                switch (operation.kind) {
+                    case ADD:
+                        ObjectId blob = insert(Constants.OBJ_BLOB, operation.content);
+                        root = set(root, operation.path, 0, new TreeEntry(null, FileMode.REGULAR_FILE, blob));
+                        break;
+                    case REMOVE:
+                        root = BulkImporter.this.remove(root, operation.path, 0);
+                        break;
+                    case RENAME:
+                        TreeEntry entry = get(root, operation.path);
+                        if (entry == null) {
+                            throw new IllegalArgumentException("Cannot rename missing path "
+                                    + String.join("/", operation.path));
+                        }
+                        root = set(BulkImporter.this.remove(root, operation.path, 0), operation.target, 0, entry);
+                        break;
+                }
+            }
+            ObjectId tree = BulkImporter.this.write(root);
+            if (tree == null) {
+                tree = insert(Constants.OBJ_TREE, new TreeFormatter().toByteArray());
+                root.id = tree;
+            }
+
+            CommitBuilder builder = new CommitBuilder();
+            builder.setTreeId(tree);
+            List<ObjectId> parents = new ArrayList<>();
+            if (state.tip != null) {
+                parents.add(state.tip);
+            }
+            parents.addAll(mergeParents);
+            builder.setParentIds(parents);
+            PersonIdent commitAuthor = author != null ? author : new PersonIdent(repository);
+            builder.setAuthor(commitAuthor);
+            builder.setCommitter(committer != null ? committer : commitAuthor);
+            builder.setMessage(message);
+            objectCount++;
+            ObjectId commit = inserter.insert(builder);
+            commitCount++;
+
+            state.tip = commit;
+            state.root = root;
+            recentTrees.put(commit, root);
+            return commit;
+        }
+    }
+
+    /**
+     * A change recorded by a {@link BulkCommit}, applied when the commit is written.
+     */
+    private static class Operation {
+
+        enum Kind {
+            ADD, REMOVE, RENAME
+        }
+
+        final Kind kind;
+        final String[] path;
+        /** The file content of an add. */
+        final byte[] content;
+        /** The new path of a rename. */
+        final String[] target;
+
+        Operation(Kind kind, String[] path, byte[] content, String[] target) {
+            this.kind = kind;
+            this.path = path;
+            this.content = content;
+            this.target = target;
+        }
+    }
+
+    private static class Branch {
+
+        final String name;
+        ObjectId tip;
+        ObjectId updated;
+        TreeNode root;
+
+        Branch(String name, ObjectId tip, TreeNode root) {
+            this.name = name;
+            this.tip = tip;
+            this.updated = tip;
+            this.root = root;
+        }
+    }
+
+    /**
+     * A tree that is either written (id set, never modified again) or under construction (id null).
+     */
+    private static class TreeNode {
+
+        ObjectId id;
+        Map<String, TreeEntry> entries;
+
+        TreeNode(ObjectId id) {
+            this.id = id;
+            if (id == null) {
+                entries = new HashMap<>();
+            }
+        }
+    }
+
+    private static class TreeEntry {
+
+        final String name;
+        final byte[] rawName;
+        final FileMode mode;
+        final ObjectId id;
+        final TreeNode tree;
+
+        TreeEntry(String name, FileMode mode, ObjectId id) {
+            this.name = name;
+            this.rawName = name != null ? name.getBytes(StandardCharsets.UTF_8) : null;
+            this.mode = mode;
+            this.id = id;
+            this.tree = null;
+        }
+
+        TreeEntry(String name, TreeNode tree) {
+            this.name = name;
+            this.rawName = name.getBytes(StandardCharsets.UTF_8);
+            this.mode = FileMode.TREE;
+            this.id = null;
+            this.tree = tree;
+        }
+
+        TreeEntry rename(String newName) {
+            return tree != null ? new TreeEntry(newName, tree) : new TreeEntry(newName, mode, id);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.api.errors.ConcurrentRefUpdateException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces commits of concurrent writers to one branch into batches.
+ * <p>
+ * Callers submit their changes as an {@link InCoreCommitBuilder}; its branch and parent are ignored. A single writer
+ * thread collects the queued builders until the batch is full or the batch window has passed since the first one
+ * arrived, then writes them as a linear chain of commits on top of the branch tip, flushes all objects at once and
+ * moves the branch with a single ref update. Every caller receives its own commit of the chain, so messages and
+ * authors are kept. If the branch was moved by someone else in the meantime, the batch is rebuilt on the new tip.
+ * <p>
+ * A builder whose changes cannot be written fails on its own, the other commits of the batch are not affected.
+ */
+public class GroupCommitter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitter.class);
+
+    private static final int MAX_ATTEMPTS = 10;
+    private static final Request CLOSE = new Request(null);
+
+    private final Repository repository;
+    private final String branch;
+    private final int maxBatchSize;
+    private final long batchWindowNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    private boolean closed;
+
+    /**
+     * Creates a group committer with batches of up to 256 commits and a window of one millisecond.
+     *
+     * @param repository the repository
+     * @param branch a short branch name or a full ref name
+     */
+    public GroupCommitter(Repository repository, String branch) {
+        this(repository, branch, 256, 1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a group committer and starts its writer thread.
+     *
+     * @param repository the repository
+     * @param branch a short branch name or a full ref name
+     * @param maxBatchSize the maximum number of commits written with one ref update
+     * @param batchWindow how long to wait for more commits after the first of a batch, 0 only takes what is queued
+     * @param unit the unit of batchWindow
+     */
+    public GroupCommitter(Repository repository, String branch, int maxBatchSize, long batchWindow, TimeUnit unit) {
+        this.repository = repository;
+        this.branch = branch.startsWith(Constants.R_REFS) ? branch : Constants.R_HEADS + branch;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWindowNanos = unit.toNanos(batchWindow);
+        this.writer = new Thread(this::run, "group-commit-" + this.branch);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the changes for the next batch.
+     *
+     * @param changes the changes and commit metadata
+     * @return completes with the commit of the changes once the branch points to it or a descendant
+     */
+    public synchronized CompletableFuture<RevCommit> submit(InCoreCommitBuilder changes) {
+        Request request = new Request(changes);
+        if (closed) {
+            request.result.completeExceptionally(new IllegalStateException("Group committer is closed"));
+        } else {
+            queue.add(request);
+        }
+        return request.result;
+    }
+
+    /**
+     * Queues the changes and waits until they are committed.
+     *
+     * @param changes the changes and commit metadata
+     * @return the commit of the changes
+     * @throws IOException when the commit cannot be written
+     * @throws ConcurrentRefUpdateException when the branch could not be updated
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public RevCommit commit(InCoreCommitBuilder changes) throws IOException, ConcurrentRefUpdateException,
+        InterruptedException {
+        try {
+            return submit(changes).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ConcurrentRefUpdateException) {
+                throw (ConcurrentRefUpdateException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Writes all queued commits, then stops the writer thread. When interrupted while waiting for the writer, returns
+     * with the interrupt status set while the writer finishes on its own.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                queue.add(CLOSE);
+            }
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        boolean running = true;
+        while (running) {
+            List<Request> batch = new ArrayList<>();
+            try {
+                Request first = queue.take();
+                if (first == CLOSE) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + batchWindowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    } else if (next == CLOSE) {
+                        running = false;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            write(batch);
+        }
+        for (Request request = queue.poll(); request != null; request = queue.poll()) {
+            if (request != CLOSE) {
+                request.result.completeExceptionally(new IllegalStateException("Group committer is closed"));
+            }
+        }
+    }
+
+    private void write(List<Request> batch) {
+        try {
+            for (int attempt = 1; !batch.isEmpty(); attempt++) {
+                if (tryWrite(batch, attempt == MAX_ATTEMPTS)) {
+                    return;
+                }
+                LOGGER.debug("{} moved while writing a batch of {}, retrying", branch, batch.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Request request : batch) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the batch on the current tip of the branch.
+     *
+     * @return false if the branch moved concurrently and the batch has to be written again
+     */
+    private boolean tryWrite(List<Request> batch, boolean lastAttempt) throws IOException {
+        Ref ref = repository.getRef(branch);
+        ObjectId tip = ref != null ? ref.getObjectId() : null;
+
+        ObjectInserter inserter = repository.newObjectInserter();
+        ObjectReader reader = inserter.newReader();
+        RevWalk walk = new RevWalk(reader);
+        try {
+            RevCommit parent = tip != null ? walk.parseCommit(tip) : null;
+            List<Request> written = new ArrayList<>();
+            List<ObjectId> commits = new ArrayList<>();
+            for (Request request : batch) {
+                try {
+                    ObjectId commit = request.changes.insert(inserter, reader, parent);
+                    parent = walk.parseCommit(commit);
+                    written.add(request);
+                    commits.add(commit);
+                } catch (IOException | RuntimeException e) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+            batch.retainAll(written);
+            if (written.isEmpty()) {
+                return true;
+            }
+            inserter.flush();
+
+            RefUpdate update = repository.updateRef(branch);
+            update.setNewObjectId(parent);
+            update.setExpectedOldObjectId(tip != null ? tip : ObjectId.zeroId());
+            update.setRefLogMessage("commit (group): " + written.size() + " commits", false);
+            RefUpdate.Result result = RefUpdater.update(repository, update, walk);
+            switch (result) {
+                case NEW:
+                case FAST_FORWARD:
+                case FORCED:
+                    for (int i = 0; i < written.size(); i++) {
+                        written.get(i).result.complete(walk.parseCommit(commits.get(i)));
+                    }
+                    LOGGER.debug("Wrote {} commits to {}", written.size(), branch);
+                    return true;
+                case LOCK_FAILURE:
+                    if (!lastAttempt) {
+                        return false;
+                    }
+                    // fall through
+                default:
+                    ConcurrentRefUpdateException failure = new ConcurrentRefUpdateException("Could not update "
+                            + branch + " to " + parent.name(), update.getRef(), result);
+                    for (Request request : written) {
+                        request.result.completeExceptionally(failure);
+                    }
+                    return true;
+            }
+        } finally {
+            walk.release();
+            inserter.release();
+        }
+    }
+
+    private static class Request {
+
+        final InCoreCommitBuilder changes;
+        final CompletableFuture<RevCommit> result = new CompletableFuture<>();
+
+        Request(InCoreCommitBuilder changes) {
+            this.changes = changes;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.api.errors.ConcurrentRefUpdateException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates large synthetic histories through a {@link BulkImporter}, for benchmarks and soak tests.
+ * <p>
+ * The history starts with one commit adding all files, named {@code dNNNN/fNNNN} with 100 files per directory. Every
+ * further commit is written either on the mainline or on one of the topic branches {@code topic-N}, picked at random.
+ * A commit changes {@link #setChangesPerCommit(int) a number of} random files; on the mainline it may also rename
+ * one, on a topic branch with unmerged changes it may instead merge the topic into the mainline, after which the topic
+ * starts again from the merge. Topic branches never rename, and changes to files the mainline renamed meanwhile are
+ * dropped by the merge.
+ * <p>
+ * Everything, including contents, dates and therefore commit ids, is derived from the seed: the same settings always
+ * produce the same history. Memory use does not grow with the number of commits, so million commit histories can be
+ * generated; objects are flushed into a new pack every {@link #setCheckpointInterval(int) checkpoint interval}.
+ */
+public class HistoryGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HistoryGenerator.class);
+
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final int LINE_LENGTH = 64;
+    private static final long START_TIME = 1000000000000L;
+
+    private long seed;
+    private int commits = 1000;
+    private int files = 100;
+    private int branches;
+    private int changesPerCommit = 1;
+    private SizeDistribution fileSizes = SizeDistribution.fixed(1024);
+    private double renameRate;
+    private double mergeRate;
+    private int checkpointInterval = 10000;
+    private String mainline = Constants.MASTER;
+
+    public HistoryGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the total number of commits, including the initial commit and merges.
+     *
+     * @param commits at least 1, 1000 by default
+     * @return this generator
+     */
+    public HistoryGenerator setCommits(int commits) {
+        if (commits < 1) {
+            throw new IllegalArgumentException("At least one commit is needed, not " + commits);
+        }
+        this.commits = commits;
+        return this;
+    }
+
+    /**
+     * Sets the number of files added by the initial commit. Renames keep the number of files.
+     *
+     * @param files at least 1, 100 by default
+     * @return this generator
+     */
+    public HistoryGenerator setFiles(int files) {
+        if (files < 1) {
+            throw new IllegalArgumentException("At least one file is needed, not " + files);
+        }
+        this.files = files;
+        return this;
+    }
+
+    /**
+     * Sets the number of topic branches that are worked on besides the mainline.
+     *
+     * @param branches 0, the default, for a linear history
+     * @return this generator
+     */
+    public HistoryGenerator setBranches(int branches) {
+        if (branches < 0) {
+            throw new IllegalArgumentException("Negative number of branches " + branches);
+        }
+        this.branches = branches;
+        return this;
+    }
+
+    /**
+     * Sets the number of files changed by each commit other than the initial commit and merges.
+     *
+     * @param changesPerCommit at least 1, the default
+     * @return this generator
+     */
+    public HistoryGenerator setChangesPerCommit(int changesPerCommit) {
+        if (changesPerCommit < 1) {
+            throw new IllegalArgumentException("At least one change per commit is needed, not " + changesPerCommit);
+        }
+        this.changesPerCommit = changesPerCommit;
+        return this;
+    }
+
+    /**
+     * Sets the distribution the size of every written file version is drawn from.
+     *
+     * @param fileSizes the sizes in bytes, 1024 bytes for every version by default
+     * @return this generator
+     */
+    public HistoryGenerator setFileSizes(SizeDistribution fileSizes) {
+        this.fileSizes = fileSizes;
+        return this;
+    }
+
+    /**
+     * Sets the probability that a mainline commit also renames a file.
+     *
+     * @param renameRate between 0, the default, and 1
+     * @return this generator
+     */
+    public HistoryGenerator setRenameRate(double renameRate) {
+        this.renameRate = checkRate(renameRate);
+        return this;
+    }
+
+    /**
+     * Sets the probability that a commit picked for a topic branch with unmerged changes merges it into the mainline.
+     *
+     * @param mergeRate between 0, the default, and 1
+     * @return this generator
+     */
+    public HistoryGenerator setMergeRate(double mergeRate) {
+        this.mergeRate = checkRate(mergeRate);
+        return this;
+    }
+
+    /**
+     * Sets the number of commits after which all objects are flushed into a pack and the branches are updated.
+     *
+     * @param checkpointInterval at least 1, 10000 by default
+     * @return this generator
+     */
+    public HistoryGenerator setCheckpointInterval(int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Invalid checkpoint interval " + checkpointInterval);
+        }
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    /**
+     * Sets the branch that holds the initial commit and the merges.
+     *
+     * @param mainline a short branch name or a full ref name, master by default
+     * @return this generator
+     */
+    public HistoryGenerator setMainline(String mainline) {
+        this.mainline = mainline;
+        return this;
+    }
+
+    /**
+     * Returns the path of a file of the initial commit.
+     *
+     * @param file the number of the file, from 0
+     * @return the repository relative path
+     */
+    public static String path(int file) {
+        return String.format("d%04d/f%04d", file / FILES_PER_DIRECTORY, file % FILES_PER_DIRECTORY);
+    }
+
+    /**
+     * Generates the history. The branches must not exist yet or be unborn.
+     *
+     * @param repository the repository to write to
+     * @return the tip of the mainline
+     * @throws IOException when objects or refs cannot be written
+     * @throws ConcurrentRefUpdateException when a branch is moved by someone else while generating
+     */
+    public ObjectId generate(Repository repository) throws IOException, ConcurrentRefUpdateException {
+        Random random = new Random(seed);
+        List<String> paths = new ArrayList<>(files);
+        Map<String, Integer> pathIndex = new HashMap<>();
+        List<Map<String, Long>> unmerged = new ArrayList<>(branches);
+        int merges = 0;
+        int renames = 0;
+
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            BulkImporter.BulkCommit initial = importer.newCommit(mainline).setMessage("initial");
+            for (int f = 0; f < files; f++) {
+                String path = path(f);
+                paths.add(path);
+                pathIndex.put(path, f);
+                initial.add(path, content(random.nextLong()));
+            }
+            ObjectId initialCommit = write(initial, 0);
+            for (int b = 0; b < branches; b++) {
+                importer.resetBranch(topic(b), initialCommit);
+                unmerged.add(new LinkedHashMap<>());
+            }
+
+            for (int c = 1; c < commits; c++) {
+                int branch = random.nextInt(branches + 1) - 1;
+                if (branch >= 0 && !unmerged.get(branch).isEmpty() && random.nextDouble() < mergeRate) {
+                    BulkImporter.BulkCommit merge = importer.newCommit(mainline)
+                            .setMessage("Merge branch '" + topic(branch) + "'")
+                            .addMergeParent(importer.getBranchTip(topic(branch)));
+                    for (Map.Entry<String, Long> change : unmerged.get(branch).entrySet()) {
+                        if (pathIndex.containsKey(change.getKey())) {
+                            merge.add(change.getKey(), content(change.getValue()));
+                        }
+                    }
+                    unmerged.get(branch).clear();
+                    importer.resetBranch(topic(branch), write(merge, c));
+                    merges++;
+                } else {
+                    BulkImporter.BulkCommit commit = importer.newCommit(branch >= 0 ? topic(branch) : mainline);
+                    StringBuilder message = new StringBuilder("change");
+                    for (int i = 0; i < changesPerCommit; i++) {
+                        String path = paths.get(random.nextInt(paths.size()));
+                        long contentSeed = random.nextLong();
+                        commit.add(path, content(contentSeed));
+                        message.append(' ').append(path);
+                        if (branch >= 0) {
+                            unmerged.get(branch).put(path, contentSeed);
+                        }
+                    }
+                    if (branch < 0 && random.nextDouble() < renameRate) {
+                        int index = random.nextInt(paths.size());
+                        String from = paths.get(index);
+                        String to = from.substring(0, from.indexOf('/')) + String.format("/r%07d", c);
+                        commit.rename(from, to);
+                        message.append(", rename ").append(from).append(" to ").append(to);
+                        paths.set(index, to);
+                        pathIndex.remove(from);
+                        pathIndex.put(to, index);
+                        renames++;
+                    }
+                    write(commit.setMessage(message.toString()), c);
+                }
+                if (c % checkpointInterval == 0) {
+                    importer.checkpoint();
+                    LOGGER.info("Generated {} of {} commits", c, commits);
+                }
+            }
+            LOGGER.info("Generated {} commits with {} merges and {} renames", commits, merges, renames);
+            return importer.getBranchTip(mainline);
+        }
+    }
+
+    private static String topic(int branch) {
+        return "topic-" + branch;
+    }
+
+    private static ObjectId write(BulkImporter.BulkCommit commit, int number) throws IOException {
+        PersonIdent ident = new PersonIdent("synthetic", "synthetic@example.com", START_TIME + number * 60000L, 0);
+        return commit.setAuthor(ident).setCommitter(ident).write();
+    }
+
+    /**
+     * Returns lines of random lowercase letters, the size and letters derived from the given seed.
+     */
+    private byte[] content(long contentSeed) {
+        Random random = new Random(contentSeed);
+        byte[] content = new byte[Math.max(0, fileSizes.nextSize(random))];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = i % LINE_LENGTH == LINE_LENGTH - 1 ? (byte) '\n' : (byte) ('a' + random.nextInt(26));
+        }
+        return content;
+    }
+
+    private static double checkRate(double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Rate must be between 0 and 1, not " + rate);
+        }
+        return rate;
+    }
+
+    /**
+     * A distribution of file sizes.
+     */
+    @FunctionalInterface
+    public interface SizeDistribution {
+
+        /**
+         * Draws the size of the next file version.
+         *
+         * @param random the only source of randomness to use, so that sizes are reproducible
+         * @return the size in bytes
+         */
+        int nextSize(Random random);
+
+        static SizeDistribution fixed(int size) {
+            return random -> size;
+        }
+
+        static SizeDistribution uniform(int min, int max) {
+            return random -> min + random.nextInt(max - min + 1);
+        }
+
+        /**
+         * Returns a log-normal distribution, where most files are small and a few are much larger.
+         *
+         * @param median the median size in bytes
+         * @param sigma the standard deviation of the logarithm of the size, 1 spreads most sizes over a factor of 7
+         * @param max the largest size in bytes
+         * @return the distribution
+         */
+        static SizeDistribution logNormal(int median, double sigma, int max) {
+            return random -> (int) Math.min(max, Math.round(median * Math.exp(sigma * random.nextGaussian())));
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.api.errors.ConcurrentRefUpdateException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates a commit from content held in memory, without a working tree or an index.
+ * <p>
+ * Blobs, the rewritten trees and the commit are written through a single {@link ObjectInserter} that is flushed once.
+ * Only the trees on the way to the changed paths are rewritten (see {@link TreeUpdater}), so the cost of a commit
+ * depends on the number of changed paths, not on the size of the tree. The builder works on bare repositories as well.
+ * <p>
+ * If a branch is set, it is moved to the new commit with a compare-and-swap against the parent the commit was built
+ * on, so concurrent writers cannot silently overwrite each other.
+ */
+public class InCoreCommitBuilder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InCoreCommitBuilder.class);
+
+    private final Repository repository;
+    private final List<Change> changes = new ArrayList<>();
+
+    private ObjectId parent;
+    private String branch;
+    private String message = "";
+    private PersonIdent author;
+    private PersonIdent committer;
+
+    public InCoreCommitBuilder(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Sets the commit the new commit is based on. Defaults to the tip of the branch, if one is set.
+     *
+     * @param parent the parent commit, or null for a root commit
+     * @return this builder
+     */
+    public InCoreCommitBuilder setParent(AnyObjectId parent) {
+        this.parent = parent != null ? parent.copy() : null;
+        return this;
+    }
+
+    /**
+     * Sets the branch to update after the commit has been written.
+     *
+     * @param branch a short branch name or a full ref name
+     * @return this builder
+     */
+    public InCoreCommitBuilder setBranch(String branch) {
+        this.branch = branch.startsWith(Constants.R_REFS) ? branch : Constants.R_HEADS + branch;
+        return this;
+    }
+
+    public InCoreCommitBuilder setMessage(String message) {
+        this.message = message;
+        return this;
+    }
+
+    public InCoreCommitBuilder setAuthor(PersonIdent author) {
+        this.author = author;
+        return this;
+    }
+
+    public InCoreCommitBuilder setCommitter(PersonIdent committer) {
+        this.committer = committer;
+        return this;
+    }
+
+    /**
+     * Adds a regular file or replaces the content of a file, keeping the mode of an executable file or symbolic link.
+     *
+     * @param path the repository relative path
+     * @param content the file content
+     * @return this builder
+     */
+    public InCoreCommitBuilder add(String path, byte[] content) {
+        changes.add(new Change(path, content, null, content.length));
+        return this;
+    }
+
+    /**
+     * Adds or replaces a file like {@link #add(String, byte[])}, with content read from a stream when the commit is
+     * created.
+     *
+     * @param path the repository relative path
+     * @param content the file content, it is not closed
+     * @param length the number of bytes to read from the stream
+     * @return this builder
+     */
+    public InCoreCommitBuilder add(String path, InputStream content, long length) {
+        changes.add(new Change(path, null, content, length));
+        return this;
+    }
+
+    /**
+     * Adds or replaces a file like {@link #add(String, byte[])} for every entry of the map.
+     *
+     * @param files the file contents by repository relative path
+     * @return this builder
+     */
+    public InCoreCommitBuilder addAll(Map<String, byte[]> files) {
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            add(file.getKey(), file.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * Removes a file or a whole directory.
+     *
+     * @param path the repository relative path
+     * @return this builder
+     */
+    public InCoreCommitBuilder remove(String path) {
+        changes.add(new Change(path, null, null, -1));
+        return this;
+    }
+
+    /**
+     * Writes the blobs, trees and the commit, then updates the branch if one is set.
+     *
+     * @return the new commit
+     * @throws IOException when objects cannot be read or written
+     * @throws ConcurrentRefUpdateException when the branch no longer points to the parent
+     */
+    public RevCommit commit() throws IOException, ConcurrentRefUpdateException {
+        ObjectId base = parent;
+        if (base == null && branch != null) {
+            base = repository.resolve(branch);
+        }
+
+        ObjectInserter inserter = repository.newObjectInserter();
+        ObjectReader reader = inserter.newReader();
+        RevWalk walk = new RevWalk(reader);
+        try {
+            RevCommit baseCommit = base != null ? walk.parseCommit(base) : null;
+            ObjectId commitId = insert(inserter, reader, baseCommit);
+            inserter.flush();
+
+            RevCommit commit = walk.parseCommit(commitId);
+            if (branch != null) {
+                updateBranch(commit, baseCommit);
+            }
+            LOGGER.debug("Created commit {} with {} changed paths", commitId.name(), changes.size());
+            return commit;
+        } finally {
+            walk.release();
+            inserter.release();
+        }
+    }
+
+    /**
+     * Inserts the blobs, trees and the commit on top of parent without flushing the inserter or updating any ref.
+     * Blobs are only inserted once, so the changes can be inserted again on another parent.
+     *
+     * @param inserter receives all objects
+     * @param reader must be able to see the objects inserted through inserter
+     * @param parentCommit the parent, or null for a root commit
+     * @return the id of the new commit
+     * @throws IOException when objects cannot be read or written
+     */
+    ObjectId insert(ObjectInserter inserter, ObjectReader reader, RevCommit parentCommit) throws IOException {
+        TreeUpdater updater = new TreeUpdater();
+        for (Change change : changes) {
+            if (change.length < 0) {
+                updater.remove(change.path);
+            } else {
+                if (change.blob == null) {
+                    change.blob = change.bytes != null ? inserter.insert(Constants.OBJ_BLOB, change.bytes)
+                            : inserter.insert(Constants.OBJ_BLOB, change.length, change.stream);
+                }
+                updater.add(change.path, change.blob);
+            }
+        }
+        ObjectId tree = updater.apply(reader, inserter, parentCommit != null ? parentCommit.getTree() : null);
+
+        CommitBuilder builder = new CommitBuilder();
+        builder.setTreeId(tree);
+        if (parentCommit != null) {
+            builder.setParentId(parentCommit);
+        }
+        PersonIdent commitAuthor = author != null ? author : new PersonIdent(repository);
+        builder.setAuthor(commitAuthor);
+        builder.setCommitter(committer != null ? committer : commitAuthor);
+        builder.setMessage(message);
+        return inserter.insert(builder);
+    }
+
+    private void updateBranch(RevCommit commit, RevCommit baseCommit) throws IOException,
+        ConcurrentRefUpdateException {
+        RefUpdate update = repository.updateRef(branch);
+        update.setNewObjectId(commit);
+        update.setExpectedOldObjectId(baseCommit != null ? baseCommit : ObjectId.zeroId());
+        update.setRefLogMessage("commit: " + commit.getShortMessage(), false);
+        RefUpdate.Result result = RefUpdater.update(repository, update, null);
+        switch (result) {
+            case NEW:
+            case FAST_FORWARD:
+            case FORCED:
+                return;
+            default:
+                throw new ConcurrentRefUpdateException("Could not update " + branch + " to " + commit.name(),
+                        update.getRef(), result);
+        }
+    }
+
+    private static class Change {
+
+        final String path;
+        final byte[] bytes;
+        final InputStream stream;
+        final long length;
+        ObjectId blob;
+
+        Change(String path, byte[] bytes, InputStream stream, long length) {
+            this.path = path;
+            this.bytes = bytes;
+            this.stream = stream;
+            this.length = length;
+        }
+    }
+}
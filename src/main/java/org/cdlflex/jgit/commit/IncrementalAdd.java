@@ -0,0 +1,252 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.ignore.IgnoreNode;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Stages a known set of dirty paths instead of scanning the whole working tree as {@code git add .} does.
+ * <p>
+ * Only the given paths are stat'ed; files whose length and modification time still match their index entry are not
+ * rehashed. Dirty directories are expanded to the files below them, paths that no longer exist are removed from the
+ * index. Untracked files are skipped when they are ignored by a {@code .gitignore} file on their way to the root or by
+ * {@code info/exclude}, tracked files are always staged, as with {@code git add}. A file replacing a directory of the
+ * same name or the other way round removes the old entries, nested repositories are skipped.
+ * <p>
+ * The set of dirty paths can come from the caller or from a {@link WorktreeWatcher}.
+ */
+public class IncrementalAdd {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalAdd.class);
+
+    private final Repository repository;
+    private final File workTree;
+    private final FS fs;
+    private final boolean fileMode;
+
+    public IncrementalAdd(Repository repository) {
+        this.repository = repository;
+        this.workTree = repository.getWorkTree();
+        this.fs = repository.getFS();
+        this.fileMode = fs.supportsExecute() && repository.getConfig().getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+                ConfigConstants.CONFIG_KEY_FILEMODE, true);
+    }
+
+    /**
+     * Stages the given paths.
+     *
+     * @param paths the repository relative paths of changed, created or deleted files or directories
+     * @return the updated index
+     * @throws IOException when the index is locked or a file cannot be read
+     */
+    public DirCache add(Collection<String> paths) throws IOException {
+        DirCache dirCache = repository.lockDirCache();
+        ObjectInserter inserter = repository.newObjectInserter();
+        try {
+            Ignores ignores = new Ignores();
+            DirCacheEditor editor = dirCache.editor();
+            int staged = 0;
+            for (String path : new TreeSet<>(paths)) {
+                staged += add(dirCache, editor, inserter, ignores, path);
+            }
+            inserter.flush();
+            editor.commit();
+            LOGGER.debug("Staged {} of {} dirty paths", staged, paths.size());
+            return dirCache;
+        } finally {
+            inserter.release();
+            dirCache.unlock();
+        }
+    }
+
+    /**
+     * Stages the paths collected by the watcher, or falls back to a full {@code git add .} and {@code git add -u .} if
+     * the watcher lost events.
+     *
+     * @param watcher the watcher of this repository's working tree
+     * @return the updated index
+     * @throws IOException when the index is locked or a file cannot be read
+     * @throws GitAPIException when the fallback scan fails
+     */
+    public DirCache add(WorktreeWatcher watcher) throws IOException, GitAPIException {
+        return add(watcher.takeDirtyPaths());
+    }
+
+    /**
+     * Stages the dirty paths, or the whole working tree including deletions if they are incomplete.
+     */
+    DirCache add(WorktreeWatcher.DirtyPaths dirty) throws IOException, GitAPIException {
+        if (dirty.isComplete()) {
+            return add(dirty.getPaths());
+        }
+        LOGGER.info("Watcher overflowed, scanning the whole working tree");
+        Git git = new Git(repository);
+        try {
+            git.add().addFilepattern(".").call();
+            return git.add().addFilepattern(".").setUpdate(true).call();
+        } finally {
+            git.close();
+        }
+    }
+
+    private int add(DirCache dirCache, DirCacheEditor editor, ObjectInserter inserter, Ignores ignores, String path)
+            throws IOException {
+        if (("/" + path + "/").contains("/" + Constants.DOT_GIT + "/")) {
+            // the repository itself or a nested one
+            return 0;
+        }
+        File file = new File(workTree, path);
+        if (fs.isDirectory(file) && !fs.isSymLink(file)) {
+            if (ignores.isIgnored(path, true)) {
+                return 0;
+            }
+            int staged = 0;
+            if (dirCache.getEntry(path) != null) {
+                // a file replaced by a directory, the editor does not resolve the name clash itself
+                editor.add(new DirCacheEditor.DeletePath(path));
+                staged++;
+            }
+            String[] names = file.list();
+            if (names != null) {
+                for (String name : names) {
+                    staged += add(dirCache, editor, inserter, ignores, path + "/" + name);
+                }
+            }
+            return staged;
+        }
+
+        DirCacheEntry existing = dirCache.getEntry(path);
+        if (!fs.exists(file)) {
+            editor.add(existing != null ? new DirCacheEditor.DeletePath(path) : new DirCacheEditor.DeleteTree(path));
+            return 1;
+        }
+        if (existing == null && ignores.isIgnored(path, false)) {
+            return 0;
+        }
+        if (existing == null) {
+            // the file may replace a directory, whose entries have to go
+            editor.add(new DirCacheEditor.DeleteTree(path));
+        }
+
+        FileMode mode = modeOf(file, existing);
+        long length = fs.length(file);
+        long lastModified = fs.lastModified(file);
+        if (existing != null && !existing.isSmudged() && existing.getFileMode() == mode
+                && existing.getLength() == (int) length && existing.getLastModified() == lastModified) {
+            return 0;
+        }
+
+        ObjectId blob;
+        if (mode == FileMode.SYMLINK) {
+            blob = inserter.insert(Constants.OBJ_BLOB, Constants.encode(fs.readSymLink(file)));
+        } else {
+            try (InputStream in = new FileInputStream(file)) {
+                blob = inserter.insert(Constants.OBJ_BLOB, length, in);
+            }
+        }
+        editor.add(new DirCacheEditor.PathEdit(path) {
+            @Override
+            public void apply(DirCacheEntry entry) {
+                entry.setFileMode(mode);
+                entry.setLength(length);
+                entry.setLastModified(lastModified);
+                entry.setObjectId(blob);
+            }
+        });
+        return 1;
+    }
+
+    private FileMode modeOf(File file, DirCacheEntry existing) throws IOException {
+        if (fs.isSymLink(file)) {
+            return FileMode.SYMLINK;
+        }
+        if (fileMode) {
+            return fs.canExecute(file) ? FileMode.EXECUTABLE_FILE : FileMode.REGULAR_FILE;
+        }
+        return existing != null && existing.getFileMode() == FileMode.EXECUTABLE_FILE ? FileMode.EXECUTABLE_FILE
+                : FileMode.REGULAR_FILE;
+    }
+
+    /**
+     * Lazily parsed ignore rules, cached per directory for the duration of one add.
+     */
+    private class Ignores {
+
+        private final Map<String, IgnoreNode> nodes = new HashMap<>();
+        private IgnoreNode exclude;
+
+        boolean isIgnored(String path, boolean isDirectory) throws IOException {
+            // a file below an ignored directory is ignored, whatever the rules for the file itself say
+            for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                if (match(path.substring(0, slash), true)) {
+                    return true;
+                }
+            }
+            return match(path, isDirectory);
+        }
+
+        /**
+         * Asks the innermost .gitignore first, each one matching the path relative to its own directory.
+         */
+        private boolean match(String path, boolean isDirectory) throws IOException {
+            for (int slash = path.lastIndexOf('/');; slash = path.lastIndexOf('/', slash - 1)) {
+                String directory = slash < 0 ? "" : path.substring(0, slash);
+                IgnoreNode.MatchResult result = node(directory).isIgnored(path.substring(slash + 1), isDirectory);
+                if (result == IgnoreNode.MatchResult.IGNORED || result == IgnoreNode.MatchResult.NOT_IGNORED) {
+                    return result == IgnoreNode.MatchResult.IGNORED;
+                }
+                if (slash < 0) {
+                    return exclude().isIgnored(path, isDirectory) == IgnoreNode.MatchResult.IGNORED;
+                }
+            }
+        }
+
+        private IgnoreNode node(String directory) throws IOException {
+            IgnoreNode node = nodes.get(directory);
+            if (node == null) {
+                node = parse(new File(directory.isEmpty() ? workTree : new File(workTree, directory),
+                        Constants.DOT_GIT_IGNORE));
+                nodes.put(directory, node);
+            }
+            return node;
+        }
+
+        private IgnoreNode exclude() throws IOException {
+            if (exclude == null) {
+                exclude = parse(new File(repository.getDirectory(), Constants.INFO_EXCLUDE));
+            }
+            return exclude;
+        }
+
+        private IgnoreNode parse(File file) throws IOException {
+            IgnoreNode node = new IgnoreNode();
+            if (file.isFile()) {
+                try (InputStream in = new FileInputStream(file)) {
+                    node.parse(in);
+                }
+            }
+            return node;
+        }
+    }
+}
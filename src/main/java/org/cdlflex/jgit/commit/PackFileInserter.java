@@ -0,0 +1,315 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackIndexWriter;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.PackParser;
+import org.eclipse.jgit.transport.PackedObjectInfo;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.jgit.util.NB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Inserts objects into a new pack file instead of writing loose objects.
+ * <p>
+ * Every object is deflated as a whole (no deltas) and appended to a temporary pack in the pack directory; objects
+ * inserted twice are only stored once and, as with loose objects, objects the repository already has are not stored
+ * again. {@link #flush()} completes the pack with its object count and checksum, writes the version 2 index next to
+ * it and registers the pack with the object directory. Objects are not visible to readers before they are flushed.
+ * <p>
+ * Only works for file based repositories.
+ */
+public class PackFileInserter extends ObjectInserter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackFileInserter.class);
+
+    private static final int PACK_HEADER_SIZE = 12;
+    private static final int PACK_VERSION = 2;
+    private static final int INDEX_VERSION = 2;
+
+    private final Repository repository;
+    private final ObjectDirectory objectDirectory;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] buffer = new byte[65536];
+    private final byte[] inflated = new byte[8192];
+
+    private List<PackedObjectInfo> objects = new ArrayList<>();
+    private ObjectIdOwnerMap<PackedObjectInfo> objectMap = new ObjectIdOwnerMap<>();
+    private File tempPack;
+    private RandomAccessFile pack;
+    private int buffered;
+    private long position;
+    private ObjectInserter delegate;
+
+    /**
+     * Creates an inserter for a file based repository.
+     *
+     * @param repository the repository
+     * @throws IllegalArgumentException when the repository does not store its objects in an object directory
+     */
+    public PackFileInserter(Repository repository) {
+        if (!(repository.getObjectDatabase() instanceof ObjectDirectory)) {
+            throw new IllegalArgumentException("Not a file based repository: " + repository);
+        }
+        this.repository = repository;
+        this.objectDirectory = (ObjectDirectory) repository.getObjectDatabase();
+        this.deflater = new Deflater(repository.getConfig().get(CoreConfig.KEY).getCompression());
+    }
+
+    /**
+     * Returns the number of distinct objects waiting for the next {@link #flush()}.
+     *
+     * @return the number of pending objects
+     */
+    public int getPendingObjectCount() {
+        return objects.size();
+    }
+
+    @Override
+    public ObjectId insert(int type, byte[] data, int off, int len) throws IOException {
+        ObjectId id = idFor(type, data, off, len);
+        if (objectMap.contains(id) || objectDirectory.has(id)) {
+            return id;
+        }
+        return append(type, len, new ByteArrayInputStream(data, off, len), id);
+    }
+
+    @Override
+    public ObjectId insert(int type, long length, InputStream in) throws IOException {
+        return append(type, length, in, null);
+    }
+
+    /**
+     * Appends an object to the pack, unless it turns out to be pending or in the repository already.
+     *
+     * @param id the id of the object, or null to compute it while appending
+     */
+    private ObjectId append(int type, long length, InputStream in, ObjectId id) throws IOException {
+        if (pack == null) {
+            open();
+        }
+        long offset = position;
+        crc.reset();
+        writeHeader(type, length);
+
+        MessageDigest md = null;
+        if (id == null) {
+            md = digest();
+            md.update(Constants.encodedTypeString(type));
+            md.update((byte) ' ');
+            md.update(Constants.encodeASCII(length));
+            md.update((byte) 0);
+        }
+        deflater.reset();
+        for (long remaining = length; remaining > 0;) {
+            int n = in.read(inflated, 0, (int) Math.min(inflated.length, remaining));
+            if (n < 0) {
+                throw new EOFException("Stream ended " + remaining + " bytes before the announced length");
+            }
+            if (md != null) {
+                md.update(inflated, 0, n);
+            }
+            deflater.setInput(inflated, 0, n);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+            remaining -= n;
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate();
+        }
+
+        if (md != null) {
+            id = ObjectId.fromRaw(md.digest());
+        }
+        if (md != null && (objectMap.contains(id) || objectDirectory.has(id))) {
+            truncate(offset);
+            return id;
+        }
+        PackedObjectInfo info = new PackedObjectInfo(id);
+        info.setOffset(offset);
+        info.setCRC((int) crc.getValue());
+        objects.add(info);
+        objectMap.add(info);
+        return id;
+    }
+
+    @Override
+    public PackParser newPackParser(InputStream in) throws IOException {
+        if (delegate == null) {
+            delegate = repository.newObjectInserter();
+        }
+        return delegate.newPackParser(in);
+    }
+
+    /**
+     * Returns a reader of the repository. It does not see objects that have not been flushed yet.
+     */
+    @Override
+    public ObjectReader newReader() {
+        return repository.newObjectReader();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (pack == null) {
+            return;
+        }
+        flushBuffer();
+        if (objects.isEmpty()) {
+            discard();
+            return;
+        }
+
+        byte[] count = new byte[4];
+        NB.encodeInt32(count, 0, objects.size());
+        pack.seek(8);
+        pack.write(count);
+        MessageDigest md = Constants.newMessageDigest();
+        pack.seek(0);
+        for (int n = pack.read(buffer); n > 0; n = pack.read(buffer)) {
+            md.update(buffer, 0, n);
+        }
+        byte[] checksum = md.digest();
+        pack.write(checksum);
+        pack.getFD().sync();
+        pack.close();
+        pack = null;
+
+        String name = "pack-" + ObjectId.fromRaw(checksum).name();
+        File packDirectory = tempPack.getParentFile();
+        File tempIndex = new File(packDirectory, tempPack.getName().replace(".pack", ".idx"));
+        Collections.sort(objects);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempIndex))) {
+            PackIndexWriter.createVersion(out, INDEX_VERSION).write(objects, checksum);
+        }
+
+        File packFile = new File(packDirectory, name + ".pack");
+        File indexFile = new File(packDirectory, name + ".idx");
+        tempPack.setReadOnly();
+        tempIndex.setReadOnly();
+        FileUtils.rename(tempPack, packFile);
+        FileUtils.rename(tempIndex, indexFile);
+        objectDirectory.openPack(packFile);
+        LOGGER.debug("Wrote {} objects to {}", objects.size(), packFile);
+
+        tempPack = null;
+        objects = new ArrayList<>();
+        objectMap = new ObjectIdOwnerMap<>();
+    }
+
+    @Override
+    public void release() {
+        try {
+            discard();
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete temporary pack {}", tempPack, e);
+        }
+        deflater.end();
+        if (delegate != null) {
+            delegate.release();
+        }
+    }
+
+    private void open() throws IOException {
+        File packDirectory = new File(objectDirectory.getDirectory(), "pack");
+        FileUtils.mkdirs(packDirectory, true);
+        tempPack = File.createTempFile("insert_", ".pack", packDirectory);
+        pack = new RandomAccessFile(tempPack, "rw");
+        byte[] header = new byte[PACK_HEADER_SIZE];
+        System.arraycopy(Constants.PACK_SIGNATURE, 0, header, 0, 4);
+        NB.encodeInt32(header, 4, PACK_VERSION);
+        pack.write(header);
+        position = PACK_HEADER_SIZE;
+        buffered = 0;
+    }
+
+    private void discard() throws IOException {
+        if (pack != null) {
+            pack.close();
+            pack = null;
+        }
+        if (tempPack != null) {
+            FileUtils.delete(tempPack, FileUtils.SKIP_MISSING);
+            tempPack = null;
+        }
+        objects = new ArrayList<>();
+        objectMap = new ObjectIdOwnerMap<>();
+    }
+
+    private void writeHeader(int type, long length) throws IOException {
+        byte[] header = new byte[10];
+        int n = 0;
+        long size = length >>> 4;
+        int c = (type << 4) | (int) (length & 0x0f);
+        while (size != 0) {
+            header[n++] = (byte) (c | 0x80);
+            c = (int) (size & 0x7f);
+            size >>>= 7;
+        }
+        header[n++] = (byte) c;
+        write(header, 0, n);
+    }
+
+    private void deflate() throws IOException {
+        if (buffered == buffer.length) {
+            flushBuffer();
+        }
+        int n = deflater.deflate(buffer, buffered, buffer.length - buffered);
+        crc.update(buffer, buffered, n);
+        buffered += n;
+        position += n;
+    }
+
+    private void write(byte[] data, int offset, int length) throws IOException {
+        if (buffer.length - buffered < length) {
+            flushBuffer();
+        }
+        System.arraycopy(data, offset, buffer, buffered, length);
+        crc.update(data, offset, length);
+        buffered += length;
+        position += length;
+    }
+
+    private void flushBuffer() throws IOException {
+        pack.write(buffer, 0, buffered);
+        buffered = 0;
+    }
+
+    private void truncate(long offset) throws IOException {
+        long written = position - buffered;
+        if (offset >= written) {
+            buffered = (int) (offset - written);
+        } else {
+            flushBuffer();
+            pack.setLength(offset);
+            pack.seek(offset);
+        }
+        position = offset;
+    }
+}
@@ -0,0 +1,254 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuildIterator;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.WorkingTreeOptions;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.io.AutoCRLFInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Stages files like {@link org.eclipse.jgit.api.AddCommand}, but hashes and deflates their content on a fork-join
+ * pool.
+ * <p>
+ * The working tree is walked once on the calling thread, exactly as {@code AddCommand} does, to decide which entries
+ * are kept and which files have to be read. The files are then inserted in parallel, every task using its own
+ * {@link ObjectInserter}, and the entries are finally added to the index in walk order, that is in path order. The
+ * resulting index is byte-identical to the one {@code AddCommand} writes for the same file patterns.
+ */
+public class ParallelAdd {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelAdd.class);
+
+    /**
+     * Number of files a single task inserts before the work is not split any further.
+     */
+    private static final int FILES_PER_TASK = 32;
+
+    private final Repository repository;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public ParallelAdd(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Sets the number of threads hashing files, 1 inserts every file on the calling thread.
+     *
+     * @param parallelism the number of threads, defaults to the number of available processors
+     * @return this instance
+     */
+    public ParallelAdd setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Stages all files matching the patterns, {@code "."} stages the whole working tree.
+     *
+     * @param filepatterns repository relative file or directory paths
+     * @return the updated index
+     * @throws IOException when the index is locked or a file cannot be read
+     */
+    public DirCache add(Collection<String> filepatterns) throws IOException {
+        DirCache dirCache = repository.lockDirCache();
+        try {
+            DirCacheBuilder builder = dirCache.builder();
+            List<DirCacheEntry> entries = new ArrayList<>();
+            List<Job> jobs = new ArrayList<>();
+            walk(builder, filepatterns, entries, jobs);
+
+            if (parallelism == 1 || jobs.size() <= FILES_PER_TASK) {
+                insert(jobs, 0, jobs.size());
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new InsertTask(jobs, 0, jobs.size()));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } finally {
+                    pool.shutdown();
+                }
+            }
+
+            for (DirCacheEntry entry : entries) {
+                builder.add(entry);
+            }
+            builder.commit();
+            LOGGER.debug("Staged {} files using {} threads", jobs.size(), parallelism);
+            return dirCache;
+        } finally {
+            dirCache.unlock();
+        }
+    }
+
+    /**
+     * Decides for every path what {@code AddCommand} would stage, deferring the content of files to jobs.
+     */
+    private void walk(DirCacheBuilder builder, Collection<String> filepatterns, List<DirCacheEntry> entries,
+            List<Job> jobs) throws IOException {
+        boolean addAll = filepatterns.contains(".");
+        boolean autoCrlf = repository.getConfig().get(WorkingTreeOptions.KEY).getAutoCRLF()
+                != CoreConfig.AutoCRLF.FALSE;
+        FS fs = repository.getFS();
+        TreeWalk walk = new TreeWalk(repository);
+        try {
+            walk.addTree(new DirCacheBuildIterator(builder));
+            walk.addTree(new FileTreeIterator(repository));
+            walk.setRecursive(true);
+            if (!addAll) {
+                walk.setFilter(PathFilterGroup.createFromStrings(filepatterns));
+            }
+
+            String lastAddedFile = null;
+            while (walk.next()) {
+                String path = walk.getPathString();
+                DirCacheIterator index = walk.getTree(0, DirCacheIterator.class);
+                WorkingTreeIterator file = walk.getTree(1, WorkingTreeIterator.class);
+                if (index == null && file != null && file.isEntryIgnored()) {
+                    continue;
+                }
+                if (path.equals(lastAddedFile)) {
+                    continue;
+                }
+                if (file == null) {
+                    if (index != null) {
+                        entries.add(index.getDirCacheEntry());
+                    }
+                    continue;
+                }
+                if (index != null && index.getDirCacheEntry() != null && index.getDirCacheEntry().isAssumeValid()) {
+                    entries.add(index.getDirCacheEntry());
+                    continue;
+                }
+
+                DirCacheEntry entry = new DirCacheEntry(path);
+                FileMode mode = file.getIndexFileMode(index);
+                entry.setFileMode(mode);
+                if (mode == FileMode.GITLINK) {
+                    entry.setObjectId(file.getEntryObjectId());
+                } else {
+                    entry.setLength(file.getEntryLength());
+                    entry.setLastModified(file.getEntryLastModified());
+                    jobs.add(new Job(entry, new File(repository.getWorkTree(), path), fs,
+                            mode == FileMode.SYMLINK, autoCrlf));
+                }
+                entries.add(entry);
+                lastAddedFile = path;
+            }
+        } finally {
+            walk.release();
+        }
+    }
+
+    private void insert(List<Job> jobs, int from, int to) throws IOException {
+        ObjectInserter inserter = repository.newObjectInserter();
+        try {
+            for (int i = from; i < to; i++) {
+                jobs.get(i).insert(inserter);
+            }
+            inserter.flush();
+        } finally {
+            inserter.release();
+        }
+    }
+
+    /**
+     * A file whose blob has to be inserted before its entry can be added to the index.
+     */
+    private static class Job {
+
+        final DirCacheEntry entry;
+        final File file;
+        final FS fs;
+        final boolean symlink;
+        final boolean autoCrlf;
+
+        Job(DirCacheEntry entry, File file, FS fs, boolean symlink, boolean autoCrlf) {
+            this.entry = entry;
+            this.file = file;
+            this.fs = fs;
+            this.symlink = symlink;
+            this.autoCrlf = autoCrlf;
+        }
+
+        void insert(ObjectInserter inserter) throws IOException {
+            if (symlink) {
+                entry.setObjectId(inserter.insert(Constants.OBJ_BLOB, Constants.encode(fs.readSymLink(file))));
+            } else if (autoCrlf) {
+                try (InputStream in = new AutoCRLFInputStream(new FileInputStream(file), true)) {
+                    ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                        content.write(buffer, 0, n);
+                    }
+                    entry.setObjectId(inserter.insert(Constants.OBJ_BLOB, content.toByteArray()));
+                }
+            } else {
+                try (InputStream in = new FileInputStream(file)) {
+                    entry.setObjectId(inserter.insert(Constants.OBJ_BLOB, file.length(), in));
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the jobs in halves until a range is small enough, then inserts it with its own inserter.
+     */
+    private class InsertTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Job> jobs;
+        private final int from;
+        private final int to;
+
+        InsertTask(List<Job> jobs, int from, int to) {
+            this.jobs = jobs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FILES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new InsertTask(jobs, from, middle), new InsertTask(jobs, middle, to));
+                return;
+            }
+            try {
+                insert(jobs, from, to);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
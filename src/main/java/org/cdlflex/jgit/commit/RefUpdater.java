@@ -0,0 +1,35 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+
+/**
+ * Runs the ref updates of the commit writers of this package. A repository implementing this interface, such as the
+ * {@code InstrumentedRepository}, decides how its ref updates are run, for example to record them; the ref updates of
+ * any other repository are run as they are.
+ */
+public interface RefUpdater {
+
+    /**
+     * Runs the update.
+     *
+     * @param update the prepared update
+     * @param walk the walk to check fast-forwards with, null to let the update open its own
+     * @return the result of the update
+     * @throws IOException when the update does
+     */
+    RefUpdate.Result update(RefUpdate update, RevWalk walk) throws IOException;
+
+    /**
+     * Runs the update through the repository if it is a {@link RefUpdater}, directly otherwise.
+     */
+    static RefUpdate.Result update(Repository repository, RefUpdate update, RevWalk walk) throws IOException {
+        if (repository instanceof RefUpdater) {
+            return ((RefUpdater) repository).update(update, walk);
+        }
+        return walk != null ? update.update(walk) : update.update();
+    }
+}
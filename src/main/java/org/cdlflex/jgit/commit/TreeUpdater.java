@@ -0,0 +1,248 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies a set of path edits to an existing tree by rewriting only the trees along the edited paths.
+ * <p>
+ * Unlike building a full {@link org.eclipse.jgit.dircache.DirCache} from the base tree, untouched subtrees are
+ * neither read nor rehashed, so the cost of an update is proportional to the number of edited paths times the size of
+ * the trees on their way to the root. Trees that become empty are dropped. When the same path is edited twice, the
+ * later edit wins; a file replaces a directory of the same name and vice versa.
+ */
+public class TreeUpdater {
+
+    private final Directory root = new Directory();
+
+    /**
+     * Sets the entry at path, creating missing parent directories.
+     *
+     * @param path the repository relative path
+     * @param mode the file mode of the entry
+     * @param id the id of the blob, or of the commit for a gitlink
+     * @return this updater
+     */
+    public TreeUpdater add(String path, FileMode mode, AnyObjectId id) {
+        return set(path, mode, id);
+    }
+
+    /**
+     * Sets the content of the file at path, keeping the mode of an executable file or symbolic link it replaces and
+     * creating a regular file otherwise.
+     *
+     * @param path the repository relative path
+     * @param blobId the id of the content
+     * @return this updater
+     */
+    public TreeUpdater add(String path, AnyObjectId blobId) {
+        return set(path, null, blobId);
+    }
+
+    /**
+     * Records an entry whose mode, if null, is taken from the entry it replaces when the updater is applied.
+     */
+    private TreeUpdater set(String path, FileMode mode, AnyObjectId id) {
+        String[] names = split(path);
+        Directory directory = root.directory(names, names.length - 1);
+        String name = names[names.length - 1];
+        directory.children.remove(name);
+        FileMode entryMode = mode;
+        if (mode == null && directory.files.containsKey(name)) {
+            // replaces an earlier edit, a removed file comes back as a regular file
+            Entry previous = directory.files.get(name);
+            entryMode = previous != null ? previous.mode : FileMode.REGULAR_FILE;
+        }
+        directory.files.put(name, new Entry(name, entryMode, id.copy()));
+        return this;
+    }
+
+    /**
+     * Removes the file or directory at path. Nothing is removed when a parent of path is not a directory.
+     *
+     * @param path the repository relative path
+     * @return this updater
+     */
+    public TreeUpdater remove(String path) {
+        String[] names = split(path);
+        Directory directory = root;
+        for (int i = 0; i < names.length - 1; i++) {
+            if (directory.files.containsKey(names[i])) {
+                // the parent was set to a file or removed before, so nothing below it exists
+                return this;
+            }
+            directory = directory.children.computeIfAbsent(names[i], name -> new Directory());
+        }
+        String name = names[names.length - 1];
+        directory.children.remove(name);
+        directory.files.put(name, null);
+        return this;
+    }
+
+    /**
+     * Returns whether no edit has been recorded.
+     *
+     * @return true if applying the updater would return the base tree
+     */
+    public boolean isEmpty() {
+        return root.isEmpty();
+    }
+
+    /**
+     * Applies all edits to the base tree and inserts the rewritten trees.
+     *
+     * @param reader reads the base trees, must be able to see objects inserted through inserter
+     * @param inserter receives the rewritten trees, it is not flushed
+     * @param baseTree the tree to edit, or null to start from an empty tree
+     * @return the id of the new root tree
+     * @throws IOException when a tree cannot be read or inserted
+     */
+    public ObjectId apply(ObjectReader reader, ObjectInserter inserter, AnyObjectId baseTree) throws IOException {
+        ObjectId tree = apply(reader, inserter, baseTree, root);
+        return tree != null ? tree : inserter.insert(new TreeFormatter());
+    }
+
+    private ObjectId apply(ObjectReader reader, ObjectInserter inserter, AnyObjectId treeId, Directory directory)
+            throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        if (treeId != null) {
+            CanonicalTreeParser parser = new CanonicalTreeParser(null, reader, treeId);
+            while (!parser.eof()) {
+                String name = parser.getEntryPathString();
+                entries.put(name, new Entry(name, parser.getEntryFileMode(), parser.getEntryObjectId()));
+                parser.next();
+            }
+        }
+
+        for (Map.Entry<String, Entry> file : directory.files.entrySet()) {
+            Entry entry = file.getValue();
+            if (entry == null) {
+                entries.remove(file.getKey());
+            } else if (entry.mode == null) {
+                entries.put(file.getKey(), new Entry(file.getKey(), keptMode(entries.get(file.getKey())), entry.id));
+            } else {
+                entries.put(file.getKey(), entry);
+            }
+        }
+        for (Map.Entry<String, Directory> child : directory.children.entrySet()) {
+            Entry existing = entries.get(child.getKey());
+            ObjectId base = !child.getValue().replaceBase && existing != null && existing.mode == FileMode.TREE
+                    ? existing.id : null;
+            ObjectId subtree = apply(reader, inserter, base, child.getValue());
+            if (subtree == null) {
+                // only removals below a base file, which has no children to remove
+                if (base != null || existing == null || child.getValue().replaceBase) {
+                    entries.remove(child.getKey());
+                }
+            } else {
+                entries.put(child.getKey(), new Entry(child.getKey(), FileMode.TREE, subtree));
+            }
+        }
+
+        if (entries.isEmpty()) {
+            return null;
+        }
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(TreeUpdater::compareEntries);
+        TreeFormatter formatter = new TreeFormatter();
+        for (Entry entry : sorted) {
+            formatter.append(entry.rawName, entry.mode, entry.id);
+        }
+        return inserter.insert(formatter);
+    }
+
+    private static FileMode keptMode(Entry replaced) {
+        if (replaced != null && (replaced.mode == FileMode.EXECUTABLE_FILE || replaced.mode == FileMode.SYMLINK)) {
+            return replaced.mode;
+        }
+        return FileMode.REGULAR_FILE;
+    }
+
+    private static int compareEntries(Entry a, Entry b) {
+        return compareNames(a.rawName, a.mode == FileMode.TREE, b.rawName, b.mode == FileMode.TREE);
+    }
+
+    /**
+     * Orders tree entries as git does, comparing directory names as if they ended with a slash.
+     */
+    static int compareNames(byte[] a, boolean aIsTree, byte[] b, boolean bIsTree) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return lastChar(a, aIsTree, length) - lastChar(b, bIsTree, length);
+    }
+
+    private static int lastChar(byte[] name, boolean isTree, int index) {
+        if (index < name.length) {
+            return name[index] & 0xff;
+        }
+        return isTree ? '/' : 0;
+    }
+
+    static String[] split(String path) {
+        if (path.isEmpty() || path.startsWith("/") || path.endsWith("/") || path.contains("//")) {
+            throw new IllegalArgumentException("Invalid path: " + path);
+        }
+        return path.split("/");
+    }
+
+    private static class Directory {
+
+        final Map<String, Directory> children = new TreeMap<>();
+        final Map<String, Entry> files = new TreeMap<>();
+        /** Set when the directory replaces an earlier edit of the same path, so the base tree must not be read. */
+        final boolean replaceBase;
+
+        Directory() {
+            this(false);
+        }
+
+        Directory(boolean replaceBase) {
+            this.replaceBase = replaceBase;
+        }
+
+        Directory directory(String[] names, int depth) {
+            Directory directory = this;
+            for (int i = 0; i < depth; i++) {
+                boolean replaced = directory.files.containsKey(names[i]);
+                directory.files.remove(names[i]);
+                directory = directory.children.computeIfAbsent(names[i], name -> new Directory(replaced));
+            }
+            return directory;
+        }
+
+        boolean isEmpty() {
+            return children.isEmpty() && files.isEmpty();
+        }
+    }
+
+    private static class Entry {
+
+        final byte[] rawName;
+        final FileMode mode;
+        final ObjectId id;
+
+        Entry(String name, FileMode mode, ObjectId id) {
+            this.rawName = name.getBytes(StandardCharsets.UTF_8);
+            this.mode = mode;
+            this.id = id;
+        }
+    }
+}
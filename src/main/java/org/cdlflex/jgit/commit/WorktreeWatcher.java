@@ -0,0 +1,150 @@
+package org.cdlflex.jgit.commit;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the paths changed in a working tree through a {@link WatchService}, for {@link IncrementalAdd}.
+ * <p>
+ * Every directory of the working tree except {@code .git} is registered; directories created later are registered when
+ * their creation is seen and reported as dirty as a whole, so files written into them before registration are not
+ * lost. If the watch service drops events, the next {@link #takeDirtyPaths()} reports itself incomplete and the
+ * caller has to fall back to a full scan.
+ * <p>
+ * Events are delivered asynchronously by the platform, so a change is only guaranteed to be reported once the
+ * service has seen it.
+ */
+public class WorktreeWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorktreeWatcher.class);
+
+    private final Path workTree;
+    private final Path gitDir;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    private Set<String> dirty = new HashSet<>();
+    private boolean overflowed;
+
+    /**
+     * Registers all directories of the working tree of the repository.
+     *
+     * @param repository the repository, must have a working tree
+     * @throws IOException when the working tree cannot be walked or watched
+     */
+    public WorktreeWatcher(Repository repository) throws IOException {
+        this.workTree = repository.getWorkTree().toPath().toAbsolutePath();
+        this.gitDir = repository.getDirectory().toPath().toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        registerAll(workTree);
+        LOGGER.debug("Watching {} directories below {}", directories.size(), workTree);
+    }
+
+    /**
+     * Returns the paths changed since the last call and starts collecting anew.
+     *
+     * @return the dirty paths
+     * @throws IOException when a new directory cannot be registered
+     */
+    public synchronized DirtyPaths takeDirtyPaths() throws IOException {
+        for (WatchKey key = watchService.poll(); key != null; key = watchService.poll()) {
+            process(key);
+        }
+        DirtyPaths result = new DirtyPaths(Collections.unmodifiableSet(dirty), !overflowed);
+        dirty = new HashSet<>();
+        overflowed = false;
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void process(WatchKey key) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowed = true;
+                continue;
+            }
+            Path child = directory.resolve((Path) event.context());
+            if (child.startsWith(gitDir)) {
+                continue;
+            }
+            dirty.add(toRepositoryPath(child));
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                registerAll(child);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+                    throws IOException {
+                if (directory.startsWith(gitDir) || directory.getFileName().toString().equals(Constants.DOT_GIT)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private String toRepositoryPath(Path path) {
+        return workTree.relativize(path).toString().replace('\\', '/');
+    }
+
+    /**
+     * The paths collected between two calls of {@link #takeDirtyPaths()}.
+     */
+    public static class DirtyPaths {
+
+        private final Set<String> paths;
+        private final boolean complete;
+
+        DirtyPaths(Set<String> paths, boolean complete) {
+            this.paths = paths;
+            this.complete = complete;
+        }
+
+        public Set<String> getPaths() {
+            return paths;
+        }
+
+        /**
+         * Returns whether every change was captured. If not, {@link #getPaths()} is only a subset of the changes.
+         *
+         * @return false if the watch service dropped events
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
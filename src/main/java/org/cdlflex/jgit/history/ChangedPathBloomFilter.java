@@ -0,0 +1,163 @@
+package org.cdlflex.jgit.history;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Bloom filter over the paths a single commit changed, modelled on the changed-path filters of git's commit-graph.
+ * <p>
+ * Every changed path is added together with all of its leading directories, using 10 bits per entry and 7 probes
+ * derived from two Murmur3 hashes. A negative answer is definite, so a path-limited walk can skip the tree diff of that
+ * commit. Commits that changed more than {@link #MAX_CHANGED_PATHS} entries get a filter that always answers maybe.
+ */
+public final class ChangedPathBloomFilter {
+
+    public static final int MAX_CHANGED_PATHS = 512;
+
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int NUM_HASHES = 7;
+    private static final int SEED_1 = 0x293ae76f;
+    private static final int SEED_2 = 0x7e646e2c;
+
+    private final byte[] data;
+
+    private ChangedPathBloomFilter(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Builds the filter for the given changed paths.
+     *
+     * @param paths the paths changed by a commit
+     * @return the filter containing the paths and their leading directories
+     */
+    public static ChangedPathBloomFilter create(Collection<String> paths) {
+        Set<String> entries = new LinkedHashSet<>();
+        for (String path : paths) {
+            for (String key = path; key != null; key = parent(key)) {
+                entries.add(key);
+            }
+        }
+        if (entries.size() > MAX_CHANGED_PATHS) {
+            return new ChangedPathBloomFilter(null);
+        }
+
+        byte[] data = new byte[Math.max(1, (entries.size() * BITS_PER_ENTRY + 7) / 8)];
+        for (String entry : entries) {
+            byte[] key = entry.getBytes(StandardCharsets.UTF_8);
+            int hash1 = murmur3(SEED_1, key);
+            int hash2 = murmur3(SEED_2, key);
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int bit = bitIndex(hash1 + i * hash2, data.length);
+                data[bit >>> 3] |= 1 << (bit & 7);
+            }
+        }
+        return new ChangedPathBloomFilter(data);
+    }
+
+    /**
+     * Restores a filter from the bytes returned by {@link #toBytes()}.
+     *
+     * @param data the serialized filter, or null for a filter that always answers maybe
+     * @return the filter
+     */
+    public static ChangedPathBloomFilter fromBytes(byte[] data) {
+        return new ChangedPathBloomFilter(data);
+    }
+
+    /**
+     * Returns the serialized filter.
+     *
+     * @return the filter bits, or null if the commit changed too many paths to be filtered
+     */
+    public byte[] toBytes() {
+        return data;
+    }
+
+    /**
+     * Returns whether the commit may have changed the path. A false result is definite.
+     *
+     * @param path the repository relative path
+     * @return false if the commit certainly did not change the path
+     */
+    public boolean mightContain(String path) {
+        if (data == null) {
+            return true;
+        }
+        for (String key = path; key != null; key = parent(key)) {
+            if (!probe(key.getBytes(StandardCharsets.UTF_8))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean probe(byte[] key) {
+        int hash1 = murmur3(SEED_1, key);
+        int hash2 = murmur3(SEED_2, key);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            int bit = bitIndex(hash1 + i * hash2, data.length);
+            if ((data[bit >>> 3] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String parent(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash > 0 ? path.substring(0, slash) : null;
+    }
+
+    private static int bitIndex(int hash, int length) {
+        return (int) ((hash & 0xffffffffL) % (length * 8L));
+    }
+
+    static int murmur3(int seed, byte[] data) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int hash = seed;
+        int blocks = data.length / 4;
+
+        for (int i = 0; i < blocks; i++) {
+            int k = (data[i * 4] & 0xff) | (data[i * 4 + 1] & 0xff) << 8 | (data[i * 4 + 2] & 0xff) << 16
+                    | (data[i * 4 + 3] & 0xff) << 24;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            hash ^= k;
+            hash = Integer.rotateLeft(hash, 13);
+            hash = hash * 5 + 0xe6546b64;
+        }
+
+        int k = 0;
+        int tail = blocks * 4;
+        switch (data.length & 3) {
+        case 3:
+            k ^= (data[tail + 2] & 0xff) << 16;
+            // fall through
+        case 2:
+            k ^= (data[tail + 1] & 0xff) << 8;
+            // fall through
+        case 1:
+            k ^= data[tail] & 0xff;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            hash ^= k;
+            break;
+        default:
+            break;
+        }
+
+        hash ^= data.length;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,188 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+/**
+ * Persistent side file holding one {@link ChangedPathBloomFilter} per commit.
+ * <p>
+ * Like the {@link PathHistoryIndex}, the file is append-only and is extended incrementally with the commits that are
+ * reachable from a tip but not indexed yet, so the set of indexed commits stays closed under ancestry. All filters are
+ * held in memory once loaded.
+ */
+public class ChangedPathFilterIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangedPathFilterIndex.class);
+
+    public static final String FILE_NAME = "changed-paths";
+
+    private static final int MAGIC = 0x43504631;
+
+    private final Repository repository;
+    private final File file;
+
+    private final ObjectIdOwnerMap<IndexedFilter> filters = new ObjectIdOwnerMap<>();
+
+    private ChangedPathFilterIndex(Repository repository, File file) {
+        this.repository = repository;
+        this.file = file;
+    }
+
+    /**
+     * Opens the filter index of the given repository, loading all filters written so far.
+     *
+     * @param repository the repository to index
+     * @return the index, empty if none has been written yet
+     * @throws IOException when the index cannot be read
+     */
+    public static ChangedPathFilterIndex open(Repository repository) throws IOException {
+        ChangedPathFilterIndex index = new ChangedPathFilterIndex(repository, IndexFiles.get(repository, FILE_NAME));
+        index.load();
+        return index;
+    }
+
+    /**
+     * Returns the filter of the commit.
+     *
+     * @param commit the commit id
+     * @return the filter, or null if the commit has not been indexed yet
+     */
+    public synchronized ChangedPathBloomFilter get(AnyObjectId commit) {
+        IndexedFilter indexed = filters.get(commit);
+        return indexed != null ? indexed.filter : null;
+    }
+
+    /**
+     * Returns the number of indexed commits.
+     *
+     * @return the number of indexed commits
+     */
+    public synchronized int size() {
+        return filters.size();
+    }
+
+    /**
+     * Builds the filters of all commits reachable from HEAD that are not indexed yet.
+     *
+     * @return the number of newly indexed commits
+     * @throws IOException when the repository or the index cannot be accessed
+     */
+    public int update() throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        return head != null ? update(head) : 0;
+    }
+
+    /**
+     * Builds the filters of all commits reachable from tip that are not indexed yet and appends them to the side file.
+     *
+     * @param tip the commit to index up to
+     * @return the number of newly indexed commits
+     * @throws IOException when the repository or the index cannot be accessed
+     */
+    public synchronized int update(AnyObjectId tip) throws IOException {
+        ObjectReader reader = repository.newObjectReader();
+        try {
+            RevWalk walk = new RevWalk(reader);
+            if (!UnindexedCommits.mark(walk, tip, filters::contains, commit -> { })) {
+                return 0;
+            }
+            // parents first, so a partly written update still leaves the indexed commits closed under ancestry
+            walk.sort(RevSort.TOPO);
+            walk.sort(RevSort.REVERSE, true);
+
+            boolean newFile = !file.exists() || file.length() == 0;
+            int added = 0;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file, true)))) {
+                if (newFile) {
+                    out.writeInt(MAGIC);
+                }
+                for (RevCommit commit : walk) {
+                    ChangedPathBloomFilter filter = ChangedPathBloomFilter.create(ChangedPaths.compute(walk, commit));
+                    writeRecord(out, commit, filter);
+                    filters.add(new IndexedFilter(commit, filter));
+                    added++;
+                }
+            }
+            LOGGER.debug("Built {} changed path filters up to {}", added, tip.name());
+            return added;
+        } finally {
+            reader.release();
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a changed path filter index: " + file);
+        }
+
+        long validLength = data.length - in.available();
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        try {
+            while (in.available() > 0) {
+                in.readFully(rawId);
+                int length = in.readInt();
+                byte[] bits = null;
+                if (length >= 0) {
+                    bits = new byte[length];
+                    in.readFully(bits);
+                }
+                filters.add(new IndexedFilter(ObjectId.fromRaw(rawId), ChangedPathBloomFilter.fromBytes(bits)));
+                validLength = data.length - in.available();
+            }
+        } catch (EOFException e) {
+            LOGGER.warn("Truncating torn record at offset {} of {}", validLength, file);
+            try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+                truncate.setLength(validLength);
+            }
+        }
+        LOGGER.debug("Loaded {} changed path filters from {}", filters.size(), file);
+    }
+
+    private static void writeRecord(DataOutputStream out, AnyObjectId id, ChangedPathBloomFilter filter)
+            throws IOException {
+        id.copyRawTo(out);
+        byte[] bits = filter.toBytes();
+        if (bits == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bits.length);
+            out.write(bits);
+        }
+    }
+
+    private static class IndexedFilter extends ObjectIdOwnerMap.Entry {
+
+        final ChangedPathBloomFilter filter;
+
+        IndexedFilter(AnyObjectId id, ChangedPathBloomFilter filter) {
+            super(id);
+            this.filter = filter;
+        }
+    }
+}
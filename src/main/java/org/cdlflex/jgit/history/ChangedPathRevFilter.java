@@ -0,0 +1,82 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+
+/**
+ * Includes only commits that changed a path, consulting the commit's {@link ChangedPathBloomFilter} first.
+ * <p>
+ * Commits whose filter rules the path out are rejected without diffing any tree. All other commits, including those
+ * that have no filter yet, are checked with {@link ChangedPaths}, so the result never depends on the state of the
+ * filter index. Use it on a {@link RevWalk} without a tree filter.
+ */
+public class ChangedPathRevFilter extends RevFilter {
+
+    private final ChangedPathFilterIndex filters;
+    private final String path;
+    private final TreeFilter pathFilter;
+
+    private long skipped;
+    private long diffed;
+
+    /**
+     * Creates a filter for the given file path.
+     *
+     * @param filters the bloom filters to consult
+     * @param path the repository relative path of the file
+     */
+    public ChangedPathRevFilter(ChangedPathFilterIndex filters, String path) {
+        this.filters = filters;
+        this.path = path;
+        this.pathFilter = PathFilter.create(path);
+    }
+
+    @Override
+    public boolean include(RevWalk walker, RevCommit commit) throws IOException {
+        ChangedPathBloomFilter filter = filters.get(commit);
+        if (filter != null && !filter.mightContain(path)) {
+            skipped++;
+            return false;
+        }
+        diffed++;
+        return !ChangedPaths.compute(walker, commit, pathFilter).isEmpty();
+    }
+
+    @Override
+    public boolean requiresCommitBody() {
+        return false;
+    }
+
+    @Override
+    public RevFilter clone() {
+        return new ChangedPathRevFilter(filters, path);
+    }
+
+    /**
+     * Returns the number of commits rejected by their bloom filter alone.
+     *
+     * @return the number of skipped tree diffs
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Returns the number of commits that needed a tree diff.
+     *
+     * @return the number of performed tree diffs
+     */
+    public long getDiffed() {
+        return diffed;
+    }
+
+    @Override
+    public String toString() {
+        return "CHANGED_PATH(" + path + ")";
+    }
+}
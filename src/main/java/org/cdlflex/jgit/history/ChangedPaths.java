@@ -0,0 +1,75 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the file paths a commit changed.
+ * <p>
+ * A root commit changes every path it contains. Any other commit changes a path if the path differs from every one of
+ * its parents, which is the rule {@code git log -- path} uses to decide whether to show a commit. Unlike git log, no
+ * history simplification is applied, so side branch commits are reported even if a merge discarded their changes.
+ */
+public final class ChangedPaths {
+
+    private ChangedPaths() {
+    }
+
+    /**
+     * Returns all paths changed by the commit, in tree order.
+     *
+     * @param walk the walk used to parse the commit's parents, its reader is used for the tree diff
+     * @param commit the commit, with its headers parsed
+     * @return the changed paths
+     * @throws IOException when a tree cannot be read
+     */
+    public static List<String> compute(RevWalk walk, RevCommit commit) throws IOException {
+        return compute(walk, commit, TreeFilter.ALL);
+    }
+
+    /**
+     * Returns the paths matching the filter changed by the commit, in tree order.
+     *
+     * @param walk the walk used to parse the commit's parents, its reader is used for the tree diff
+     * @param commit the commit, with its headers parsed
+     * @param pathFilter restricts the paths considered
+     * @return the changed paths matching the filter
+     * @throws IOException when a tree cannot be read
+     */
+    public static List<String> compute(RevWalk walk, RevCommit commit, TreeFilter pathFilter) throws IOException {
+        // TreeWalk.release() would release the walk's reader, so the tree walk is simply discarded after use
+        TreeWalk treeWalk = new TreeWalk(walk.getObjectReader());
+        treeWalk.setRecursive(true);
+        treeWalk.setFilter(pathFilter == TreeFilter.ALL ? TreeFilter.ANY_DIFF
+                : AndTreeFilter.create(pathFilter, TreeFilter.ANY_DIFF));
+        treeWalk.addTree(commit.getTree());
+        for (RevCommit parent : commit.getParents()) {
+            walk.parseHeaders(parent);
+            treeWalk.addTree(parent.getTree());
+        }
+
+        List<String> paths = new ArrayList<>();
+        while (treeWalk.next()) {
+            if (differsFromAllParents(treeWalk)) {
+                paths.add(treeWalk.getPathString());
+            }
+        }
+        return paths;
+    }
+
+    private static boolean differsFromAllParents(TreeWalk treeWalk) {
+        for (int parent = 1; parent < treeWalk.getTreeCount(); parent++) {
+            if (treeWalk.getRawMode(0) == treeWalk.getRawMode(parent) && treeWalk.idEqual(0, parent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
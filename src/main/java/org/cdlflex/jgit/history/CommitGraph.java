@@ -0,0 +1,233 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.NB;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view of a commit-graph side file written by {@link CommitGraphWriter}.
+ * <p>
+ * The file stores, for every commit reachable from the refs at the time it was written, the commit id, its tree id,
+ * the positions of its parents, its generation number and its commit time. Commits are addressed by their position in
+ * the sorted id table, so ancestry queries through {@link CommitGraphWalk} run on plain integers and never inflate a
+ * commit object. Commits created after the graph was written are not contained, callers fall back to a
+ * {@link org.eclipse.jgit.revwalk.RevWalk} for those.
+ * <p>
+ * Layout, all integers big-endian:
+ * <pre>
+ * int magic, int commit count, int extra edge count
+ * int[256] fanout over the first id byte
+ * byte[count][20] sorted commit ids
+ * count records of: byte[20] tree id, int parent 1, int parent 2, int generation, long commit time
+ * int[extra edge count] parents beyond the first of octopus merges
+ * </pre>
+ * A parent entry of {@link #NO_PARENT} marks a missing parent. For commits with more than two parents the second entry
+ * has {@link #EXTRA_EDGES} set and holds the index of the remaining parents in the extra edge list, whose last entry
+ * is marked with {@link #EXTRA_EDGES} as well.
+ */
+public class CommitGraph {
+
+    public static final String FILE_NAME = "commit-graph";
+
+    static final int MAGIC = 0x43474631;
+    static final int NO_PARENT = -1;
+    static final int EXTRA_EDGES = 0x80000000;
+    static final int FANOUT_SIZE = 256;
+    static final int RECORD_SIZE = Constants.OBJECT_ID_LENGTH + 4 + 4 + 4 + 8;
+    static final int HEADER_SIZE = 3 * 4 + FANOUT_SIZE * 4;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int idOffset;
+    private final int dataOffset;
+    private final int extraEdgeOffset;
+
+    private CommitGraph(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a commit graph");
+        }
+        this.count = buffer.getInt(4);
+        this.idOffset = HEADER_SIZE;
+        this.dataOffset = idOffset + count * Constants.OBJECT_ID_LENGTH;
+        this.extraEdgeOffset = dataOffset + count * RECORD_SIZE;
+    }
+
+    /**
+     * Returns whether a commit graph has been written for the repository.
+     *
+     * @param repository the repository
+     * @return true if {@link #open(Repository)} can succeed
+     * @throws IOException when the index directory cannot be accessed
+     */
+    public static boolean exists(Repository repository) throws IOException {
+        return IndexFiles.get(repository, FILE_NAME).isFile();
+    }
+
+    /**
+     * Maps the commit graph of the repository into memory.
+     *
+     * @param repository the repository
+     * @return the commit graph
+     * @throws IOException when the graph has not been written or cannot be read
+     */
+    public static CommitGraph open(Repository repository) throws IOException {
+        return open(IndexFiles.get(repository, FILE_NAME));
+    }
+
+    static CommitGraph open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new CommitGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the number of commits in the graph.
+     *
+     * @return the number of commits
+     */
+    public int getCommitCount() {
+        return count;
+    }
+
+    /**
+     * Looks up the position of a commit.
+     *
+     * @param id the commit id
+     * @return the position of the commit, or -1 if the graph does not contain it
+     */
+    public int findPosition(AnyObjectId id) {
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        id.copyRawTo(raw, 0);
+        int firstByte = raw[0] & 0xff;
+        int low = firstByte == 0 ? 0 : fanout(firstByte - 1);
+        int high = fanout(firstByte) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, raw);
+            if (cmp == 0) {
+                return mid;
+            } else if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the graph contains the commit.
+     *
+     * @param id the commit id
+     * @return true if the commit has a position in the graph
+     */
+    public boolean contains(AnyObjectId id) {
+        return findPosition(id) >= 0;
+    }
+
+    public ObjectId getObjectId(int position) {
+        return readId(idOffset + position * Constants.OBJECT_ID_LENGTH);
+    }
+
+    public ObjectId getTreeId(int position) {
+        return readId(record(position));
+    }
+
+    public int getGeneration(int position) {
+        return buffer.getInt(record(position) + Constants.OBJECT_ID_LENGTH + 8);
+    }
+
+    public long getCommitTime(int position) {
+        return buffer.getLong(record(position) + Constants.OBJECT_ID_LENGTH + 12);
+    }
+
+    /**
+     * Returns the number of parents of the commit at position.
+     *
+     * @param position the commit position
+     * @return the number of parents
+     */
+    public int getParentCount(int position) {
+        int offset = record(position) + Constants.OBJECT_ID_LENGTH;
+        if (buffer.getInt(offset) == NO_PARENT) {
+            return 0;
+        }
+        int second = buffer.getInt(offset + 4);
+        if (second == NO_PARENT) {
+            return 1;
+        }
+        if ((second & EXTRA_EDGES) == 0) {
+            return 2;
+        }
+        int parents = 2;
+        for (int edge = second & ~EXTRA_EDGES; (extraEdge(edge) & EXTRA_EDGES) == 0; edge++) {
+            parents++;
+        }
+        return parents;
+    }
+
+    /**
+     * Returns the position of the nth parent of the commit at position.
+     *
+     * @param position the commit position
+     * @param n the parent index, starting at 0
+     * @return the position of the parent
+     */
+    public int getParent(int position, int n) {
+        int offset = record(position) + Constants.OBJECT_ID_LENGTH;
+        if (n == 0) {
+            return buffer.getInt(offset);
+        }
+        int second = buffer.getInt(offset + 4);
+        if ((second & EXTRA_EDGES) == 0) {
+            return second;
+        }
+        return extraEdge((second & ~EXTRA_EDGES) + n - 1) & ~EXTRA_EDGES;
+    }
+
+    /**
+     * Creates a new walk for ancestry queries. Walks are cheap to reuse but not thread-safe.
+     *
+     * @return a new walk over this graph
+     */
+    public CommitGraphWalk newWalk() {
+        return new CommitGraphWalk(this);
+    }
+
+    private int fanout(int index) {
+        return buffer.getInt(12 + index * 4);
+    }
+
+    private int record(int position) {
+        return dataOffset + position * RECORD_SIZE;
+    }
+
+    private int extraEdge(int index) {
+        return buffer.getInt(extraEdgeOffset + index * 4);
+    }
+
+    private int compare(int position, byte[] raw) {
+        int offset = idOffset + position * Constants.OBJECT_ID_LENGTH;
+        for (int i = 0; i < Constants.OBJECT_ID_LENGTH; i += 4) {
+            int cmp = Integer.compareUnsigned(buffer.getInt(offset + i), NB.decodeInt32(raw, i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private ObjectId readId(int offset) {
+        return ObjectId.fromRaw(new int[] { buffer.getInt(offset), buffer.getInt(offset + 4),
+                buffer.getInt(offset + 8), buffer.getInt(offset + 12), buffer.getInt(offset + 16) });
+    }
+}
@@ -0,0 +1,273 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.util.IntList;
+
+import java.util.Arrays;
+
+/**
+ * Answers ancestry questions on a {@link CommitGraph} without parsing any commit object.
+ * <p>
+ * A walk keeps its per-commit flags and its priority queue between queries, so repeated queries do not allocate once
+ * the buffers have grown to the size of the history. Generation numbers bound every search: a commit can only be an
+ * ancestor of commits with a higher generation. Walks are not thread-safe.
+ */
+public class CommitGraphWalk {
+
+    private static final byte PARENT1 = 1;
+    private static final byte PARENT2 = 2;
+    private static final byte STALE = 4;
+    private static final byte RESULT = 8;
+    private static final byte SEEN = 16;
+
+    private final CommitGraph graph;
+    private final byte[] flags;
+    private final IntList touched = new IntList();
+
+    private int[] queue = new int[64];
+    private int queueSize;
+    private boolean orderByGeneration;
+
+    CommitGraphWalk(CommitGraph graph) {
+        this.graph = graph;
+        this.flags = new byte[graph.getCommitCount()];
+    }
+
+    public CommitGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns whether the commit at ancestor is reachable from the commit at descendant. A commit is considered its
+     * own ancestor, as in {@link org.eclipse.jgit.revwalk.RevWalk#isMergedInto}.
+     *
+     * @param ancestor the position of the potential ancestor
+     * @param descendant the position of the potential descendant
+     * @return true if ancestor is reachable from descendant
+     */
+    public boolean isAncestor(int ancestor, int descendant) {
+        reset();
+        if (ancestor == descendant) {
+            return true;
+        }
+        int minGeneration = graph.getGeneration(ancestor);
+        int[] stack = queue;
+        int size = 0;
+        stack[size++] = descendant;
+        mark(descendant, SEEN);
+        boolean found = false;
+        while (size > 0 && !found) {
+            int commit = stack[--size];
+            for (int i = 0, n = graph.getParentCount(commit); i < n; i++) {
+                int parent = graph.getParent(commit, i);
+                if (parent == ancestor) {
+                    found = true;
+                    break;
+                }
+                if ((flags[parent] & SEEN) == 0 && graph.getGeneration(parent) > minGeneration) {
+                    mark(parent, SEEN);
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = parent;
+                }
+            }
+        }
+        queue = stack;
+        reset();
+        return found;
+    }
+
+    /**
+     * Computes the best common ancestors of two commits, as {@code git merge-base --all} does.
+     *
+     * @param a the position of the first commit
+     * @param b the position of the second commit
+     * @return the positions of the merge bases, empty if the commits share no history
+     */
+    public int[] mergeBases(int a, int b) {
+        reset();
+        if (a == b) {
+            return new int[] { a };
+        }
+        orderByGeneration = true;
+        mark(a, PARENT1);
+        push(a);
+        mark(b, PARENT2);
+        push(b);
+
+        IntList results = new IntList();
+        while (hasNonStale()) {
+            int commit = pop();
+            int state = flags[commit] & (PARENT1 | PARENT2 | STALE);
+            if ((state & (PARENT1 | PARENT2)) == (PARENT1 | PARENT2)) {
+                if ((flags[commit] & RESULT) == 0) {
+                    mark(commit, RESULT);
+                    results.add(commit);
+                }
+                state |= STALE;
+            }
+            for (int i = 0, n = graph.getParentCount(commit); i < n; i++) {
+                int parent = graph.getParent(commit, i);
+                if ((flags[parent] & state) != state) {
+                    mark(parent, (byte) state);
+                    push(parent);
+                }
+            }
+        }
+        reset();
+        return removeRedundant(results);
+    }
+
+    /**
+     * Returns the first merge base of two commits.
+     *
+     * @param a the position of the first commit
+     * @param b the position of the second commit
+     * @return the position of a merge base, or -1 if the commits share no history
+     */
+    public int mergeBase(int a, int b) {
+        int[] bases = mergeBases(a, b);
+        return bases.length > 0 ? bases[0] : -1;
+    }
+
+    /**
+     * Starts a new log walk from the given commits. Commits are then returned by {@link #next()} in commit time order,
+     * newest first, like the default order of {@link org.eclipse.jgit.revwalk.RevWalk}.
+     *
+     * @param starts the positions of the commits to start from
+     */
+    public void markStart(int... starts) {
+        reset();
+        orderByGeneration = false;
+        for (int start : starts) {
+            if ((flags[start] & SEEN) == 0) {
+                mark(start, SEEN);
+                push(start);
+            }
+        }
+    }
+
+    /**
+     * Returns the next commit of the log walk started with {@link #markStart(int...)}.
+     *
+     * @return the position of the next commit, or -1 when the walk is done
+     */
+    public int next() {
+        if (queueSize == 0) {
+            return -1;
+        }
+        int commit = pop();
+        for (int i = 0, n = graph.getParentCount(commit); i < n; i++) {
+            int parent = graph.getParent(commit, i);
+            if ((flags[parent] & SEEN) == 0) {
+                mark(parent, SEEN);
+                push(parent);
+            }
+        }
+        return commit;
+    }
+
+    private int[] removeRedundant(IntList candidates) {
+        if (candidates.size() <= 1) {
+            return candidates.size() == 0 ? new int[0] : new int[] { candidates.get(0) };
+        }
+        IntList bases = new IntList();
+        for (int i = 0; i < candidates.size(); i++) {
+            boolean redundant = false;
+            for (int j = 0; j < candidates.size() && !redundant; j++) {
+                redundant = i != j && isAncestor(candidates.get(i), candidates.get(j));
+            }
+            if (!redundant) {
+                bases.add(candidates.get(i));
+            }
+        }
+        int[] result = new int[bases.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bases.get(i);
+        }
+        return result;
+    }
+
+    private void mark(int commit, byte flag) {
+        if (flags[commit] == 0) {
+            touched.add(commit);
+        }
+        flags[commit] |= flag;
+    }
+
+    private void reset() {
+        for (int i = 0; i < touched.size(); i++) {
+            flags[touched.get(i)] = 0;
+        }
+        touched.clear();
+        queueSize = 0;
+    }
+
+    private boolean hasNonStale() {
+        for (int i = 0; i < queueSize; i++) {
+            if ((flags[queue[i]] & STALE) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether commit a must be taken from the queue before commit b.
+     */
+    private boolean before(int a, int b) {
+        if (orderByGeneration) {
+            int generationA = graph.getGeneration(a);
+            int generationB = graph.getGeneration(b);
+            if (generationA != generationB) {
+                return generationA > generationB;
+            }
+        }
+        long timeA = graph.getCommitTime(a);
+        long timeB = graph.getCommitTime(b);
+        if (timeA != timeB) {
+            return timeA > timeB;
+        }
+        return graph.getGeneration(a) > graph.getGeneration(b);
+    }
+
+    private void push(int commit) {
+        if (queueSize == queue.length) {
+            queue = Arrays.copyOf(queue, queueSize * 2);
+        }
+        int index = queueSize++;
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            if (!before(commit, queue[parentIndex])) {
+                break;
+            }
+            queue[index] = queue[parentIndex];
+            index = parentIndex;
+        }
+        queue[index] = commit;
+    }
+
+    private int pop() {
+        int top = queue[0];
+        int last = queue[--queueSize];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= queueSize) {
+                break;
+            }
+            if (child + 1 < queueSize && before(queue[child + 1], queue[child])) {
+                child++;
+            }
+            if (!before(queue[child], last)) {
+                break;
+            }
+            queue[index] = queue[child];
+            index = child;
+        }
+        if (queueSize > 0) {
+            queue[index] = last;
+        }
+        return top;
+    }
+}
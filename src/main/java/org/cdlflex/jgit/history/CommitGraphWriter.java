@@ -0,0 +1,161 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.IntList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the {@link CommitGraph} side file of a repository.
+ * <p>
+ * The graph covers every commit reachable from any ref and is rewritten as a whole, which takes one walk over the
+ * commit headers. The new file replaces the old one atomically, so readers that already mapped the previous graph keep
+ * a consistent view.
+ */
+public final class CommitGraphWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommitGraphWriter.class);
+
+    private CommitGraphWriter() {
+    }
+
+    /**
+     * Writes the commit graph for all commits reachable from the refs of the repository.
+     *
+     * @param repository the repository
+     * @return the newly written graph
+     * @throws IOException when the repository cannot be read or the graph cannot be written
+     */
+    public static CommitGraph write(Repository repository) throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            for (Ref ref : repository.getRefDatabase().getRefs(RefDatabase.ALL).values()) {
+                if (ref.getObjectId() == null) {
+                    continue;
+                }
+                RevObject object = walk.peel(walk.parseAny(ref.getObjectId()));
+                if (object instanceof RevCommit) {
+                    walk.markStart((RevCommit) object);
+                }
+            }
+            walk.sort(RevSort.TOPO);
+            walk.sort(RevSort.REVERSE, true);
+
+            // parents come first, so each generation number can be derived from already computed ones
+            ObjectIdOwnerMap<Node> nodes = new ObjectIdOwnerMap<>();
+            List<Node> sorted = new ArrayList<>();
+            for (RevCommit commit : walk) {
+                Node node = new Node(commit, commit.getTree(), commit.getCommitTime(), commit.getParents());
+                int generation = 0;
+                for (RevCommit parent : commit.getParents()) {
+                    generation = Math.max(generation, nodes.get(parent).generation);
+                }
+                node.generation = generation + 1;
+                nodes.add(node);
+                sorted.add(node);
+            }
+            Collections.sort(sorted);
+            for (int i = 0; i < sorted.size(); i++) {
+                sorted.get(i).position = i;
+            }
+
+            File file = IndexFiles.get(repository, CommitGraph.FILE_NAME);
+            File temp = new File(file.getParentFile(), CommitGraph.FILE_NAME + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                write(out, sorted, nodes);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Wrote commit graph with {} commits to {}", sorted.size(), file);
+            return CommitGraph.open(file);
+        } finally {
+            walk.release();
+        }
+    }
+
+    private static void write(DataOutputStream out, List<Node> sorted, ObjectIdOwnerMap<Node> nodes)
+            throws IOException {
+        IntList extraEdges = new IntList();
+        int[] fanout = new int[CommitGraph.FANOUT_SIZE];
+        for (Node node : sorted) {
+            fanout[node.getFirstByte()]++;
+        }
+        for (int i = 1; i < fanout.length; i++) {
+            fanout[i] += fanout[i - 1];
+        }
+
+        int extraEdgeCount = 0;
+        for (Node node : sorted) {
+            if (node.parents.length > 2) {
+                extraEdgeCount += node.parents.length - 1;
+            }
+        }
+
+        out.writeInt(CommitGraph.MAGIC);
+        out.writeInt(sorted.size());
+        out.writeInt(extraEdgeCount);
+        for (int entry : fanout) {
+            out.writeInt(entry);
+        }
+        for (Node node : sorted) {
+            node.copyRawTo(out);
+        }
+        for (Node node : sorted) {
+            node.tree.copyRawTo(out);
+            RevCommit[] parents = node.parents;
+            out.writeInt(parents.length > 0 ? nodes.get(parents[0]).position : CommitGraph.NO_PARENT);
+            if (parents.length <= 1) {
+                out.writeInt(CommitGraph.NO_PARENT);
+            } else if (parents.length == 2) {
+                out.writeInt(nodes.get(parents[1]).position);
+            } else {
+                out.writeInt(CommitGraph.EXTRA_EDGES | extraEdges.size());
+                for (int i = 1; i < parents.length; i++) {
+                    int position = nodes.get(parents[i]).position;
+                    extraEdges.add(i == parents.length - 1 ? position | CommitGraph.EXTRA_EDGES : position);
+                }
+            }
+            out.writeInt(node.generation);
+            out.writeLong(node.commitTime);
+        }
+        for (int i = 0; i < extraEdges.size(); i++) {
+            out.writeInt(extraEdges.get(i));
+        }
+    }
+
+    private static class Node extends ObjectIdOwnerMap.Entry {
+
+        final AnyObjectId tree;
+        final long commitTime;
+        final RevCommit[] parents;
+        int generation;
+        int position;
+
+        Node(AnyObjectId id, AnyObjectId tree, long commitTime, RevCommit[] parents) {
+            super(id);
+            this.tree = tree.copy();
+            this.commitTime = commitTime;
+            this.parents = parents;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded least recently used cache of decoded file contents, keyed by blob id and charset.
+ * <p>
+ * Blobs are immutable, so entries never need to be invalidated; the cache only evicts the least recently used entries
+ * once the total weight exceeds the limit. The weight of an entry is the size of the blob in bytes plus a fixed
+ * overhead, larger blobs than the limit are never cached. Off-heap caches keep the raw blob in a direct buffer and
+ * decode it on every hit, trading the decoding for heap space; on-heap caches keep the decoded string.
+ * <p>
+ * A cache is thread-safe and meant to be shared, for example by all {@link FileHistoryReader}s of a repository. It
+ * exposes hit, miss and eviction counters through {@link ContentCacheMBean} to size it.
+ */
+public class ContentCache implements ContentCacheMBean {
+
+    /**
+     * Approximate heap used by an entry besides the content: key, map entry and string or buffer headers.
+     */
+    static final int ENTRY_OVERHEAD = 128;
+
+    private final long maxWeight;
+    private final boolean offHeap;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private long weight;
+
+    /**
+     * Creates an on-heap cache.
+     *
+     * @param maxWeight the maximum total weight in bytes
+     */
+    public ContentCache(long maxWeight) {
+        this(maxWeight, false);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxWeight the maximum total weight in bytes
+     * @param offHeap whether to keep the contents in direct buffers outside of the heap
+     */
+    public ContentCache(long maxWeight, boolean offHeap) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Negative maximum weight " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Returns the decoded content of a blob, loading it through the reader on a miss.
+     *
+     * @param reader the reader to load the blob with
+     * @param blobId the id of the blob
+     * @param charset the charset to decode the content with
+     * @return the content
+     * @throws IOException when the blob cannot be read
+     */
+    public String get(ObjectReader reader, AnyObjectId blobId, Charset charset) throws IOException {
+        Key key = new Key(blobId.copy(), charset);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry.decode(charset);
+        }
+        misses.increment();
+        byte[] data = reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes();
+        String content = new String(data, charset);
+        put(key, offHeap ? new Entry(data) : new Entry(content, data.length));
+        return content;
+    }
+
+    /**
+     * Returns the decoded content of a blob if it is cached. Does not count as hit or miss.
+     *
+     * @param blobId the id of the blob
+     * @param charset the charset the content was decoded with
+     * @return the content, or null if it is not cached
+     */
+    public String getIfPresent(AnyObjectId blobId, Charset charset) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(new Key(blobId.copy(), charset));
+        }
+        return entry != null ? entry.decode(charset) : null;
+    }
+
+    /**
+     * Removes all entries. The counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total > 0 ? (double) h / total : 0;
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    @Override
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            // loaded concurrently by another thread
+            weight -= previous.weight;
+        }
+        weight += entry.weight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Key {
+
+        final ObjectId blobId;
+        final Charset charset;
+
+        Key(ObjectId blobId, Charset charset) {
+            this.blobId = blobId;
+            this.charset = charset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return blobId.equals(other.blobId) && charset.equals(other.charset);
+        }
+
+        @Override
+        public int hashCode() {
+            return blobId.hashCode() * 31 + charset.hashCode();
+        }
+    }
+
+    private static final class Entry {
+
+        final String content;
+        final ByteBuffer data;
+        final long weight;
+
+        Entry(String content, int size) {
+            this.content = content;
+            this.data = null;
+            this.weight = size + ENTRY_OVERHEAD;
+        }
+
+        Entry(byte[] data) {
+            this.content = null;
+            this.data = ByteBuffer.allocateDirect(data.length);
+            this.data.put(data);
+            // through Buffer, ByteBuffer.flip() only exists from Java 9 on
+            ((Buffer) this.data).flip();
+            this.weight = data.length + ENTRY_OVERHEAD;
+        }
+
+        String decode(Charset charset) {
+            return content != null ? content : charset.decode(data.duplicate()).toString();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.cdlflex.jgit.history;
+
+/**
+ * The statistics of a {@link ContentCache}, for registration with an MBean server.
+ */
+public interface ContentCacheMBean {
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    double getHitRate();
+
+    int getSize();
+
+    long getWeight();
+
+    long getMaxWeight();
+
+    boolean isOffHeap();
+}
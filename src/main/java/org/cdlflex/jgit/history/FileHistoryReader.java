@@ -0,0 +1,341 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.errors.LargeObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the revisions of a file while reusing one {@link ObjectReader} for a whole history iteration.
+ * <p>
+ * Opening a new reader for every revision discards its inflater, pack window cursor and delta base cache on each
+ * step. An instance of this class keeps a single reader open until it is closed and shares it between the history
+ * walk and all content lookups. Instances are not thread-safe, use one per thread.
+ */
+public class FileHistoryReader implements AutoCloseable {
+
+    private final Repository repository;
+    private final ObjectReader reader;
+
+    private int streamThreshold;
+    private ChangedPathFilterIndex changedPathFilters;
+    private ContentCache contentCache;
+    private TreeEntryCache treeEntries = new TreeEntryCache();
+
+    /**
+     * Creates a history reader for the given repository, opening the shared object reader.
+     *
+     * @param repository the repository to read from
+     */
+    public FileHistoryReader(Repository repository) {
+        this.repository = repository;
+        this.reader = repository.newObjectReader();
+        this.streamThreshold = new WindowCacheConfig().fromConfig(repository.getConfig()).getStreamFileThreshold();
+    }
+
+    /**
+     * Sets the size in bytes above which file versions are only exposed as streams. Defaults to
+     * {@code core.streamFileThreshold} of the repository.
+     *
+     * @param streamThreshold the maximum size of a version that may be loaded into memory
+     */
+    public void setStreamThreshold(int streamThreshold) {
+        this.streamThreshold = streamThreshold;
+    }
+
+    /**
+     * Makes history walks consult the given changed path bloom filters, skipping the tree diff of every commit that
+     * certainly did not touch the path. Walks then apply the {@link ChangedPaths} rule without history
+     * simplification, which only differs from git log for side branches whose changes were discarded by a merge.
+     *
+     * @param changedPathFilters the filter index to consult, or null to walk with a plain tree filter
+     */
+    public void setChangedPathFilters(ChangedPathFilterIndex changedPathFilters) {
+        this.changedPathFilters = changedPathFilters;
+    }
+
+    /**
+     * Makes {@link #getContent(RevCommit, String)} serve decoded contents from the given cache, which may be shared
+     * with other readers of the repository.
+     *
+     * @param contentCache the cache to use, or null to decode every content on each call
+     */
+    public void setContentCache(ContentCache contentCache) {
+        this.contentCache = contentCache;
+    }
+
+    /**
+     * Replaces the cache of tree entries used to resolve paths, for example with one shared by all readers of the
+     * repository. Each reader starts with a cache of its own.
+     *
+     * @param treeEntries the cache to use
+     */
+    public void setTreeEntryCache(TreeEntryCache treeEntries) {
+        this.treeEntries = treeEntries;
+    }
+
+    /**
+     * Returns all commits reachable from HEAD that changed the file at path, newest first.
+     *
+     * @param path the repository relative path of the file
+     * @return the commits that changed the file
+     * @throws IOException when the repository cannot be read
+     */
+    public List<RevCommit> getCommits(String path) throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        if (head == null) {
+            return new ArrayList<>();
+        }
+        return getCommits(head, path);
+    }
+
+    /**
+     * Returns all commits reachable from start that changed the file at path, newest first. This is the equivalent of
+     * {@code git.log().add(start).addPath(path)}.
+     *
+     * @param start the commit to start walking from
+     * @param path the repository relative path of the file
+     * @return the commits that changed the file
+     * @throws IOException when the repository cannot be read
+     */
+    public List<RevCommit> getCommits(AnyObjectId start, String path) throws IOException {
+        RevWalk walk = newWalk(path);
+        walk.markStart(walk.parseCommit(start));
+
+        List<RevCommit> commits = new ArrayList<>();
+        for (RevCommit commit : walk) {
+            commits.add(commit);
+        }
+        return commits;
+    }
+
+    /**
+     * Returns the UTF-8 decoded content of the file located at path within the specified commit.
+     *
+     * @param commit the commit to read the file from
+     * @param path the repository relative path of the file
+     * @return the file content, or null if the commit does not contain the path
+     * @throws IOException when the repository cannot be read
+     */
+    public String getContent(RevCommit commit, String path) throws IOException {
+        ObjectId blobId = getBlobId(commit, path);
+        if (blobId == null) {
+            return null;
+        }
+        if (contentCache != null) {
+            return contentCache.get(reader, blobId, StandardCharsets.UTF_8);
+        }
+        byte[] data = reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes();
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the content of every version of the file at path reachable from HEAD, newest first. Commits that deleted
+     * the file do not contribute a version. Use {@link #versions(String)} for files with long histories, this method
+     * holds all versions in memory.
+     * <p>
+     * The blob ids of all versions are collected first and their contents are then read in the order they are stored
+     * in the packs, which in a gc'ed repository keeps delta chains together so that their bases stay in the delta base
+     * cache, and reads each pack file sequentially. Versions with equal content are read once.
+     *
+     * @param path the repository relative path of the file
+     * @return the contents of all versions of the file
+     * @throws LargeObjectException when a version exceeds the stream threshold
+     * @throws IOException when the repository cannot be read
+     */
+    public List<String> getAllVersions(String path) throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        if (head == null) {
+            return new ArrayList<>();
+        }
+        RevWalk walk = newWalk(path);
+        walk.markStart(walk.parseCommit(head));
+        List<ObjectId> history = new ArrayList<>();
+        for (RevCommit commit : walk) {
+            ObjectId blobId = treeEntries.lookup(reader, commit.getTree(), path);
+            if (blobId != null) {
+                history.add(blobId);
+            }
+        }
+
+        List<ObjectId> blobIds = new ArrayList<>(new LinkedHashSet<>(history));
+        new PackOrder(repository).sort(blobIds, Function.identity());
+        Map<ObjectId, String> contents = new HashMap<>();
+        AsyncObjectLoaderQueue<ObjectId> queue = reader.open(blobIds, true);
+        try {
+            while (queue.next()) {
+                ObjectLoader loader = queue.open();
+                if (loader.isLarge() || loader.getSize() > streamThreshold) {
+                    LargeObjectException e = new LargeObjectException.ExceedsLimit(streamThreshold, loader.getSize());
+                    e.setObjectId(queue.getObjectId());
+                    throw e;
+                }
+                contents.put(queue.getCurrent(), new String(loader.getCachedBytes(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            queue.release();
+        }
+
+        List<String> versions = new ArrayList<>(history.size());
+        for (ObjectId blobId : history) {
+            versions.add(contents.get(blobId));
+        }
+        return versions;
+    }
+
+    /**
+     * Returns a lazy iterator over the versions of the file at path reachable from HEAD, newest first.
+     *
+     * @param path the repository relative path of the file
+     * @return an iterator that holds no version but the one it returned last
+     * @throws IOException when the repository cannot be read
+     */
+    public Iterator<FileVersion> versions(String path) throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        if (head == null) {
+            return new ArrayList<FileVersion>().iterator();
+        }
+        return versions(head, path);
+    }
+
+    /**
+     * Returns a lazy iterator over the versions of the file at path reachable from start, newest first.
+     *
+     * @param start the commit to start walking from
+     * @param path the repository relative path of the file
+     * @return an iterator that holds no version but the one it returned last
+     * @throws IOException when the repository cannot be read
+     */
+    public Iterator<FileVersion> versions(AnyObjectId start, String path) throws IOException {
+        RevWalk walk = newWalk(path);
+        walk.markStart(walk.parseCommit(start));
+        return new FileVersionIterator(reader, treeEntries, walk, path, streamThreshold);
+    }
+
+    /**
+     * Returns a sequential, lazy stream over the versions of the file at path reachable from HEAD, newest first.
+     *
+     * @param path the repository relative path of the file
+     * @return a stream that holds no version but the one it returned last
+     * @throws IOException when the repository cannot be read
+     */
+    public Stream<FileVersion> stream(String path) throws IOException {
+        Spliterator<FileVersion> spliterator = Spliterators.spliteratorUnknownSize(versions(path),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Returns the files at the given paths within one commit, found by a single tree walk instead of one lookup per
+     * path. A path naming a directory selects all files beneath it; paths the commit does not contain are skipped.
+     * <p>
+     * The versions are returned in the order their blobs are stored in the packs of the repository, so that reading
+     * their contents in turn reads each pack file sequentially. Blobs are opened as the iterator advances.
+     *
+     * @param commit the commit to read the files from
+     * @param paths the repository relative paths of the files
+     * @return an iterator over one version per file
+     * @throws IOException when the repository cannot be read
+     */
+    public Iterator<FileVersion> snapshot(RevCommit commit, Collection<String> paths) throws IOException {
+        if (paths.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        List<ObjectId> blobIds = new ArrayList<>();
+        List<String> blobPaths = new ArrayList<>();
+        // TreeWalk.release() would release the shared reader as well
+        TreeWalk treeWalk = new TreeWalk(reader);
+        treeWalk.addTree(commit.getTree());
+        treeWalk.setRecursive(true);
+        treeWalk.setFilter(PathFilterGroup.createFromStrings(paths));
+        while (treeWalk.next()) {
+            if ((treeWalk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_GITLINK) {
+                blobIds.add(treeWalk.getObjectId(0));
+                blobPaths.add(treeWalk.getPathString());
+            }
+        }
+
+        List<Integer> order = new ArrayList<>(blobIds.size());
+        for (int i = 0; i < blobIds.size(); i++) {
+            order.add(i);
+        }
+        new PackOrder(repository).sort(order, blobIds::get);
+        return order.stream().map(i -> {
+            try {
+                return new FileVersion(commit, blobPaths.get(i), blobIds.get(i),
+                        reader.open(blobIds.get(i), Constants.OBJ_BLOB), streamThreshold);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).iterator();
+    }
+
+    /**
+     * Returns the id of the blob stored at path within the specified commit.
+     *
+     * @param commit the commit to look the path up in
+     * @param path the repository relative path of the file
+     * @return the blob id, or null if the commit does not contain the path
+     * @throws IOException when the repository cannot be read
+     */
+    public ObjectId getBlobId(RevCommit commit, String path) throws IOException {
+        return treeEntries.lookup(reader, commit.getTree(), path);
+    }
+
+    /**
+     * Returns the shared object reader. It stays owned by this instance and must not be released by the caller.
+     *
+     * @return the shared object reader
+     */
+    public ObjectReader getReader() {
+        return reader;
+    }
+
+    /**
+     * Releases the shared object reader.
+     */
+    @Override
+    public void close() {
+        reader.release();
+    }
+
+    private RevWalk newWalk(String path) {
+        // RevWalk.release() would release the shared reader, so walks are simply discarded after use
+        RevWalk walk = new RevWalk(reader);
+        if (changedPathFilters != null) {
+            walk.setRevFilter(new ChangedPathRevFilter(changedPathFilters, path));
+        } else {
+            walk.setTreeFilter(AndTreeFilter.create(PathFilterGroup.createFromStrings(path), TreeFilter.ANY_DIFF));
+        }
+        return walk;
+    }
+}
@@ -0,0 +1,94 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.errors.LargeObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One revision of a file as produced by {@link FileVersionIterator} or {@link FileHistoryReader#snapshot}.
+ * <p>
+ * A version is a view of the opened blob: blobs below the {@code core.streamFileThreshold} of the repository are
+ * inflated when the version is created, larger ones only when {@link #openStream()} is read. A version must not be used
+ * after the iterator that produced it has advanced or its {@link FileHistoryReader} has been closed.
+ */
+public class FileVersion {
+
+    private final RevCommit commit;
+    private final String path;
+    private final ObjectId blobId;
+    private final ObjectLoader loader;
+    private final int streamThreshold;
+
+    FileVersion(RevCommit commit, String path, ObjectId blobId, ObjectLoader loader, int streamThreshold) {
+        this.commit = commit;
+        this.path = path;
+        this.blobId = blobId;
+        this.loader = loader;
+        this.streamThreshold = streamThreshold;
+    }
+
+    public RevCommit getCommit() {
+        return commit;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public ObjectId getBlobId() {
+        return blobId;
+    }
+
+    /**
+     * Returns the size of the file content in bytes without loading it.
+     *
+     * @return the inflated size of the blob
+     */
+    public long getSize() {
+        return loader.getSize();
+    }
+
+    /**
+     * Returns whether the content exceeds the stream threshold and can therefore only be read through
+     * {@link #openStream()}.
+     *
+     * @return true if {@link #getContent()} would throw a {@link LargeObjectException}
+     */
+    public boolean isLarge() {
+        return loader.isLarge() || loader.getSize() > streamThreshold;
+    }
+
+    /**
+     * Opens a stream over the file content. Large blobs are inflated incrementally and never held in memory as a
+     * whole. The caller must close the stream.
+     *
+     * @return a stream over the blob content
+     * @throws IOException when the blob cannot be read
+     */
+    public InputStream openStream() throws IOException {
+        return loader.openStream();
+    }
+
+    /**
+     * Returns the UTF-8 decoded content as a character view backed by the loaded blob.
+     *
+     * @return the file content
+     * @throws LargeObjectException when the content exceeds the stream threshold
+     * @throws IOException when the blob cannot be read
+     */
+    public CharSequence getContent() throws IOException {
+        if (isLarge()) {
+            LargeObjectException e = new LargeObjectException.ExceedsLimit(streamThreshold, getSize());
+            e.setObjectId(blobId);
+            throw e;
+        }
+        byte[] data = loader.getCachedBytes();
+        return StandardCharsets.UTF_8.decode(ByteBuffer.wrap(data));
+    }
+}
@@ -0,0 +1,83 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily walks the history of a single file and yields one {@link FileVersion} per commit that changed it, newest
+ * first.
+ * <p>
+ * Commits are parsed one at a time as the iterator advances. {@link #hasNext()} only finds the blob id of the next
+ * version and {@link #next()} opens the blob, so no further version is opened while the caller holds the current
+ * one. Opening inflates blobs below the {@code core.streamFileThreshold} of the repository, larger blobs are
+ * streamed when they are read. Commits that deleted the file are skipped. Read errors are rethrown as
+ * {@link UncheckedIOException}.
+ */
+public class FileVersionIterator implements Iterator<FileVersion> {
+
+    private final ObjectReader reader;
+    private final TreeEntryCache treeEntries;
+    private final RevWalk walk;
+    private final String path;
+    private final int streamThreshold;
+
+    private RevCommit nextCommit;
+    private ObjectId nextBlobId;
+
+    FileVersionIterator(ObjectReader reader, TreeEntryCache treeEntries, RevWalk walk, String path,
+            int streamThreshold) {
+        this.reader = reader;
+        this.treeEntries = treeEntries;
+        this.walk = walk;
+        this.path = path;
+        this.streamThreshold = streamThreshold;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextBlobId == null) {
+            advance();
+        }
+        return nextBlobId != null;
+    }
+
+    @Override
+    public FileVersion next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return new FileVersion(nextCommit, path, nextBlobId, reader.open(nextBlobId, Constants.OBJ_BLOB),
+                    streamThreshold);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            nextCommit = null;
+            nextBlobId = null;
+        }
+    }
+
+    private void advance() {
+        try {
+            RevCommit commit;
+            while ((commit = walk.next()) != null) {
+                ObjectId blobId = treeEntries.lookup(reader, commit.getTree(), path);
+                if (blobId != null) {
+                    nextCommit = commit;
+                    nextBlobId = blobId;
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Locates the side files that the history indexes keep next to a repository.
+ * <p>
+ * Side files live in an {@code indexes} directory inside the git directory so that they are neither picked up by the
+ * working tree nor confused with files that git itself reads, such as {@code objects/info/commit-graph}.
+ */
+public final class IndexFiles {
+
+    static final String DIRECTORY = "indexes";
+
+    private IndexFiles() {
+    }
+
+    /**
+     * Returns the side file with the given name, creating the index directory if necessary.
+     *
+     * @param repository the repository owning the index
+     * @param name the file name of the index
+     * @return the location of the side file
+     * @throws IOException when the index directory cannot be created
+     * @throws IllegalArgumentException when the repository is not stored on the local file system
+     */
+    public static File get(Repository repository, String name) throws IOException {
+        if (repository.getDirectory() == null) {
+            throw new IllegalArgumentException("Repository " + repository + " has no local git directory");
+        }
+        File directory = new File(repository.getDirectory(), DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create index directory " + directory);
+        }
+        return new File(directory, name);
+    }
+}
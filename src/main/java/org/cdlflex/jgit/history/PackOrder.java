@@ -0,0 +1,82 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackFile;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Sorts objects into the order in which they are stored in the packs of a repository on disk, so that reading them
+ * one after another moves forward through each pack file instead of seeking back and forth.
+ * <p>
+ * Objects are grouped by pack and sorted by offset within it. Objects that are not packed, and all objects of
+ * repositories that are not kept in an {@link ObjectDirectory}, follow in their original order.
+ */
+final class PackOrder {
+
+    private final List<PackFile> packs;
+
+    PackOrder(Repository repository) {
+        if (repository.getObjectDatabase() instanceof ObjectDirectory) {
+            Collection<PackFile> all = ((ObjectDirectory) repository.getObjectDatabase()).getPacks();
+            this.packs = new ArrayList<>(all);
+        } else {
+            this.packs = Collections.emptyList();
+        }
+    }
+
+    /**
+     * Sorts the list in place.
+     *
+     * @param objects the objects to sort
+     * @param id returns the id of an object
+     * @param <T> the type of the objects
+     * @throws IOException when a pack index cannot be read
+     */
+    <T> void sort(List<T> objects, Function<? super T, ? extends AnyObjectId> id) throws IOException {
+        if (packs.isEmpty() || objects.size() < 2) {
+            return;
+        }
+        int count = objects.size();
+        int[] pack = new int[count];
+        long[] offset = new long[count];
+        for (int i = 0; i < count; i++) {
+            locate(id.apply(objects.get(i)), i, pack, offset);
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> pack[a] != pack[b] ? Integer.compare(pack[a], pack[b])
+                : offset[a] != offset[b] ? Long.compare(offset[a], offset[b]) : Integer.compare(a, b));
+
+        List<T> sorted = new ArrayList<>(count);
+        for (Integer i : order) {
+            sorted.add(objects.get(i));
+        }
+        for (int i = 0; i < count; i++) {
+            objects.set(i, sorted.get(i));
+        }
+    }
+
+    private void locate(AnyObjectId objectId, int i, int[] pack, long[] offset) throws IOException {
+        for (int p = 0; p < packs.size(); p++) {
+            long found = packs.get(p).getIndex().findOffset(objectId);
+            if (found >= 0) {
+                pack[i] = p;
+                offset[i] = found;
+                return;
+            }
+        }
+        pack[i] = packs.size();
+        offset[i] = 0;
+    }
+}
@@ -0,0 +1,308 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.IntList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent, incrementally maintained index mapping each file path to the commits that changed it.
+ * <p>
+ * The index is an append-only side file holding one record per commit: its id, the positions of its parents and the
+ * paths it changed as defined by {@link ChangedPaths}. Records are appended parents first, so the set of indexed
+ * commits is always closed under ancestry. The whole index is kept in memory as posting lists per path, which turns a
+ * per-file history query into a lookup plus a reachability check on the in-memory parent graph instead of a walk that
+ * diffs every tree. Commits that are not indexed yet are covered by a fallback walk.
+ * <p>
+ * A record torn by a crash is truncated the next time the index is opened.
+ */
+public class PathHistoryIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PathHistoryIndex.class);
+
+    public static final String FILE_NAME = "path-history";
+
+    private static final int MAGIC = 0x50484931;
+
+    private final Repository repository;
+    private final File file;
+
+    private final ObjectIdOwnerMap<IndexedCommit> commitsById = new ObjectIdOwnerMap<>();
+    private final List<IndexedCommit> commits = new ArrayList<>();
+    private final Map<String, IntList> postings = new HashMap<>();
+
+    private PathHistoryIndex(Repository repository, File file) {
+        this.repository = repository;
+        this.file = file;
+    }
+
+    /**
+     * Opens the index of the given repository, loading all records written so far.
+     *
+     * @param repository the repository to index
+     * @return the index, empty if none has been written yet
+     * @throws IOException when the index cannot be read
+     */
+    public static PathHistoryIndex open(Repository repository) throws IOException {
+        PathHistoryIndex index = new PathHistoryIndex(repository, IndexFiles.get(repository, FILE_NAME));
+        index.load();
+        return index;
+    }
+
+    /**
+     * Returns whether the commit has been indexed.
+     *
+     * @param commit the commit id
+     * @return true if the index holds a record for the commit
+     */
+    public synchronized boolean contains(AnyObjectId commit) {
+        return commitsById.contains(commit);
+    }
+
+    /**
+     * Returns the number of indexed commits.
+     *
+     * @return the number of indexed commits
+     */
+    public synchronized int size() {
+        return commits.size();
+    }
+
+    /**
+     * Indexes all commits reachable from HEAD that are not indexed yet.
+     *
+     * @return the number of newly indexed commits
+     * @throws IOException when the repository or the index cannot be accessed
+     */
+    public int update() throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        return head != null ? update(head) : 0;
+    }
+
+    /**
+     * Indexes all commits reachable from tip that are not indexed yet and appends them to the side file.
+     *
+     * @param tip the commit to index up to
+     * @return the number of newly indexed commits
+     * @throws IOException when the repository or the index cannot be accessed
+     */
+    public synchronized int update(AnyObjectId tip) throws IOException {
+        ObjectReader reader = repository.newObjectReader();
+        try {
+            RevWalk walk = new RevWalk(reader);
+            if (!markUnindexed(walk, tip, new IntList())) {
+                return 0;
+            }
+            walk.sort(RevSort.TOPO);
+            walk.sort(RevSort.REVERSE, true);
+
+            boolean newFile = !file.exists() || file.length() == 0;
+            int added = 0;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file, true)))) {
+                if (newFile) {
+                    out.writeInt(MAGIC);
+                }
+                for (RevCommit commit : walk) {
+                    int[] parents = new int[commit.getParentCount()];
+                    for (int i = 0; i < parents.length; i++) {
+                        parents[i] = commitsById.get(commit.getParent(i)).position;
+                    }
+                    List<String> paths = ChangedPaths.compute(walk, commit);
+                    writeRecord(out, commit, parents, paths);
+                    add(commit, parents, paths);
+                    added++;
+                }
+            }
+            LOGGER.debug("Indexed {} commits up to {}", added, tip.name());
+            return added;
+        } finally {
+            reader.release();
+        }
+    }
+
+    /**
+     * Returns the commits reachable from HEAD that changed the file at path, newest first.
+     *
+     * @param path the repository relative path of the file
+     * @return the ids of the commits that changed the file
+     * @throws IOException when the repository cannot be read
+     */
+    public List<ObjectId> getCommits(String path) throws IOException {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        return head != null ? getCommits(head, path) : new ArrayList<>();
+    }
+
+    /**
+     * Returns the commits reachable from start that changed the file at path in topological order, newest first.
+     * Commits that are not indexed yet are found by walking from start down to the indexed part of the history.
+     *
+     * @param start the commit to start from
+     * @param path the repository relative path of the file
+     * @return the ids of the commits that changed the file
+     * @throws IOException when the repository cannot be read
+     */
+    public synchronized List<ObjectId> getCommits(AnyObjectId start, String path) throws IOException {
+        List<ObjectId> result = new ArrayList<>();
+        IntList boundary = new IntList();
+
+        ObjectReader reader = repository.newObjectReader();
+        try {
+            RevWalk walk = new RevWalk(reader);
+            if (markUnindexed(walk, start, boundary)) {
+                walk.sort(RevSort.TOPO);
+                TreeFilter pathFilter = PathFilterGroup.createFromStrings(path);
+                for (RevCommit commit : walk) {
+                    if (!ChangedPaths.compute(walk, commit, pathFilter).isEmpty()) {
+                        result.add(commit.copy());
+                    }
+                }
+            }
+        } finally {
+            reader.release();
+        }
+
+        IntList positions = postings.get(path);
+        if (positions != null && boundary.size() > 0) {
+            BitSet reachable = reachableFrom(boundary);
+            for (int i = positions.size() - 1; i >= 0; i--) {
+                if (reachable.get(positions.get(i))) {
+                    result.add(commits.get(positions.get(i)).copy());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prepares the walk to produce the commits reachable from start that are not indexed yet, collecting the
+     * positions of the indexed commits where the walk stops.
+     *
+     * @return false if there are no unindexed commits to walk
+     */
+    private boolean markUnindexed(RevWalk walk, AnyObjectId start, IntList boundary) throws IOException {
+        return UnindexedCommits.mark(walk, start, commitsById::contains,
+                commit -> boundary.add(commitsById.get(commit).position));
+    }
+
+    private BitSet reachableFrom(IntList starts) {
+        BitSet reachable = new BitSet(commits.size());
+        int[] pending = new int[Math.max(starts.size(), 16)];
+        int size = 0;
+        for (int i = 0; i < starts.size(); i++) {
+            pending[size++] = starts.get(i);
+        }
+        while (size > 0) {
+            int position = pending[--size];
+            if (reachable.get(position)) {
+                continue;
+            }
+            reachable.set(position);
+            for (int parent : commits.get(position).parents) {
+                if (!reachable.get(parent)) {
+                    if (size == pending.length) {
+                        pending = Arrays.copyOf(pending, size * 2);
+                    }
+                    pending[size++] = parent;
+                }
+            }
+        }
+        return reachable;
+    }
+
+    private void load() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a path history index: " + file);
+        }
+
+        long validLength = data.length - in.available();
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        try {
+            while (in.available() > 0) {
+                in.readFully(rawId);
+                int[] parents = new int[in.readUnsignedByte()];
+                for (int i = 0; i < parents.length; i++) {
+                    parents[i] = in.readInt();
+                }
+                List<String> paths = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    paths.add(in.readUTF());
+                }
+                add(ObjectId.fromRaw(rawId), parents, paths);
+                validLength = data.length - in.available();
+            }
+        } catch (EOFException e) {
+            LOGGER.warn("Truncating torn record at offset {} of {}", validLength, file);
+            try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+                truncate.setLength(validLength);
+            }
+        }
+        LOGGER.debug("Loaded {} indexed commits from {}", commits.size(), file);
+    }
+
+    private void add(AnyObjectId id, int[] parents, List<String> paths) {
+        IndexedCommit commit = new IndexedCommit(id, commits.size(), parents);
+        commits.add(commit);
+        commitsById.add(commit);
+        for (String path : paths) {
+            postings.computeIfAbsent(path, p -> new IntList()).add(commit.position);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, AnyObjectId id, int[] parents, List<String> paths)
+            throws IOException {
+        id.copyRawTo(out);
+        out.writeByte(parents.length);
+        for (int parent : parents) {
+            out.writeInt(parent);
+        }
+        out.writeInt(paths.size());
+        for (String path : paths) {
+            out.writeUTF(path);
+        }
+    }
+
+    private static class IndexedCommit extends ObjectIdOwnerMap.Entry {
+
+        final int position;
+        final int[] parents;
+
+        IndexedCommit(AnyObjectId id, int position, int[] parents) {
+            super(id);
+            this.position = position;
+            this.parents = parents;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves paths within trees like {@link org.eclipse.jgit.treewalk.TreeWalk#forPath}, caching the entry found for
+ * every (tree id, name) pair on the way.
+ * <p>
+ * Trees are immutable, so a cached entry never becomes stale. Adjacent commits share all subtrees that did not change
+ * between them, so resolving a path in the next commit only parses the trees on the path that changed, typically the
+ * root tree and few others, and answers the rest from the cache. Names that are missing from a tree are cached too.
+ * The cache keeps the most recently used entries up to a maximum count and is thread-safe.
+ */
+public class TreeEntryCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 16384;
+
+    private static final Entry MISSING = new Entry(ObjectId.zeroId(), 0);
+
+    private final Map<Key, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TreeEntryCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries the maximum number of (tree, name) entries kept
+     */
+    public TreeEntryCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of entries " + maxEntries);
+        }
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the id of the object at path within the tree.
+     *
+     * @param reader the reader to parse trees with
+     * @param tree the root tree
+     * @param path the repository relative path, components separated by {@code /}
+     * @return the id of the blob, tree or gitlink at path, or null if the tree does not contain the path
+     * @throws IOException when a tree cannot be read
+     */
+    public ObjectId lookup(ObjectReader reader, AnyObjectId tree, String path) throws IOException {
+        ObjectId current = tree.copy();
+        int start = 0;
+        while (true) {
+            int end = path.indexOf('/', start);
+            Entry entry = get(reader, current, end < 0 ? path.substring(start) : path.substring(start, end));
+            if (entry == MISSING) {
+                return null;
+            }
+            if (end < 0) {
+                return entry.id;
+            }
+            if (entry.mode != FileMode.TYPE_TREE) {
+                return null;
+            }
+            current = entry.id;
+            start = end + 1;
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    private Entry get(ObjectReader reader, ObjectId tree, String name) throws IOException {
+        Key key = new Key(tree, name);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        entry = scan(reader, tree, name);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    private static Entry scan(ObjectReader reader, ObjectId tree, String name) throws IOException {
+        byte[] rawName = Constants.encode(name);
+        CanonicalTreeParser parser = new CanonicalTreeParser();
+        parser.reset(reader, tree);
+        while (!parser.eof()) {
+            if (matches(parser, rawName)) {
+                return new Entry(parser.getEntryObjectId(), parser.getEntryRawMode() & FileMode.TYPE_MASK);
+            }
+            parser.next(1);
+        }
+        return MISSING;
+    }
+
+    private static boolean matches(CanonicalTreeParser parser, byte[] rawName) {
+        if (parser.getEntryPathLength() != rawName.length) {
+            return false;
+        }
+        byte[] buffer = parser.getEntryPathBuffer();
+        for (int i = 0; i < rawName.length; i++) {
+            if (buffer[i] != rawName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Key {
+
+        final ObjectId tree;
+        final String name;
+
+        Key(ObjectId tree, String name) {
+            this.tree = tree;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return tree.equals(other.tree) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return tree.hashCode() * 31 + name.hashCode();
+        }
+    }
+
+    private static final class Entry {
+
+        final ObjectId id;
+        final int mode;
+
+        Entry(ObjectId id, int mode) {
+            this.id = id;
+            this.mode = mode;
+        }
+    }
+}
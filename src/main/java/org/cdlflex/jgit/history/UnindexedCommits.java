@@ -0,0 +1,63 @@
+package org.cdlflex.jgit.history;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Prepares walks over the part of a history that an ancestry-closed index does not cover yet.
+ */
+final class UnindexedCommits {
+
+    private UnindexedCommits() {
+    }
+
+    /**
+     * Marks the walk to produce the commits reachable from start that are not indexed. Indexed commits found on the
+     * way are marked uninteresting and passed to the boundary consumer, their ancestors are not visited.
+     *
+     * @param walk a walk that has not been started yet
+     * @param start the commit to start from
+     * @param indexed tells whether a commit is covered by the index
+     * @param boundary receives the indexed commits where the walk stops
+     * @return false if start itself is indexed and there is nothing to walk
+     * @throws IOException when a commit cannot be parsed
+     */
+    static boolean mark(RevWalk walk, AnyObjectId start, Predicate<RevCommit> indexed, Consumer<RevCommit> boundary)
+            throws IOException {
+        RevCommit startCommit = walk.parseCommit(start);
+        if (indexed.test(startCommit)) {
+            boundary.accept(startCommit);
+            return false;
+        }
+
+        Set<RevCommit> seen = new HashSet<>();
+        Deque<RevCommit> pending = new ArrayDeque<>();
+        pending.add(startCommit);
+        while (!pending.isEmpty()) {
+            RevCommit commit = pending.poll();
+            if (!seen.add(commit)) {
+                continue;
+            }
+            if (indexed.test(commit)) {
+                boundary.accept(commit);
+                walk.markUninteresting(commit);
+            } else {
+                walk.parseHeaders(commit);
+                for (RevCommit parent : commit.getParents()) {
+                    pending.add(parent);
+                }
+            }
+        }
+        walk.markStart(startCommit);
+        return true;
+    }
+}
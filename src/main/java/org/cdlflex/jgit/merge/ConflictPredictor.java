@@ -0,0 +1,179 @@
+package org.cdlflex.jgit.merge;
+
+import org.eclipse.jgit.api.MergeResult.MergeStatus;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeAlgorithm;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.NameConflictTreeWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Predicts the status of merging two commits without performing the merge and without writing any object.
+ * <p>
+ * The base, ours and theirs trees are walked side by side, descending only into subtrees that both sides changed.
+ * Paths changed on one side only never conflict and are skipped without reading them; only files both sides changed
+ * to different contents are merged line by line, the same way the resolve and recursive strategies do, and the
+ * prediction stops at the first conflict. The cost therefore depends on how much both sides changed, not on the size
+ * of the trees or the history.
+ * <p>
+ * Histories with several merge bases, where the recursive strategy first merges the bases, fall back to a full merge
+ * through an {@link InCoreMerger}, which writes the merged trees. An instance can be shared by threads.
+ */
+public class ConflictPredictor {
+
+    private static final int TREE_BASE = 0;
+    private static final int TREE_OURS = 1;
+    private static final int TREE_THEIRS = 2;
+
+    private final Repository repository;
+    private final MergeAlgorithm mergeAlgorithm;
+
+    private MergeBaseCache mergeBaseCache;
+
+    public ConflictPredictor(Repository repository) {
+        this.repository = repository;
+        this.mergeAlgorithm = new MergeAlgorithm(DiffAlgorithm.getAlgorithm(repository.getConfig().getEnum(
+                ConfigConstants.CONFIG_DIFF_SECTION, null, ConfigConstants.CONFIG_KEY_ALGORITHM,
+                DiffAlgorithm.SupportedAlgorithm.HISTOGRAM)));
+    }
+
+    /**
+     * Makes predictions take the merge base from the given cache instead of walking both histories.
+     *
+     * @param mergeBaseCache the cache to consult, or null to compute every merge base
+     * @return this predictor
+     */
+    public ConflictPredictor setMergeBaseCache(MergeBaseCache mergeBaseCache) {
+        this.mergeBaseCache = mergeBaseCache;
+        return this;
+    }
+
+    /**
+     * Predicts the outcome of merging theirs into ours.
+     *
+     * @param ours the commit merged into
+     * @param theirs the commit to merge
+     * @return the predicted status with the merge base and the first conflicting path
+     * @throws IOException when objects cannot be read
+     */
+    public MergePrediction predict(AnyObjectId ours, AnyObjectId theirs) throws IOException {
+        ObjectReader reader = repository.newObjectReader();
+        RevWalk walk = new RevWalk(reader);
+        try {
+            RevCommit oursCommit = walk.parseCommit(ours);
+            RevCommit theirsCommit = walk.parseCommit(theirs);
+            List<RevCommit> bases = new ArrayList<>();
+            if (mergeBaseCache != null) {
+                for (ObjectId base : mergeBaseCache.getMergeBases(oursCommit, theirsCommit)) {
+                    bases.add(walk.parseCommit(base));
+                }
+            } else {
+                walk.setRevFilter(RevFilter.MERGE_BASE);
+                walk.markStart(oursCommit);
+                walk.markStart(theirsCommit);
+                for (RevCommit base : walk) {
+                    bases.add(base);
+                }
+            }
+
+            if (bases.size() > 1) {
+                MergeOutcome outcome = new InCoreMerger(repository).setMergeBaseCache(mergeBaseCache)
+                        .mergeTrees(oursCommit, theirsCommit);
+                return outcome.isMerged() ? new MergePrediction(MergeStatus.MERGED, outcome.getBaseId(), null)
+                        : new MergePrediction(MergeStatus.CONFLICTING, outcome.getBaseId(),
+                                outcome.getConflicts().get(0).getPath());
+            }
+            RevCommit base = bases.isEmpty() ? null : bases.get(0);
+            if (theirsCommit.equals(base)) {
+                return new MergePrediction(MergeStatus.ALREADY_UP_TO_DATE, base, null);
+            }
+            if (oursCommit.equals(base)) {
+                return new MergePrediction(MergeStatus.FAST_FORWARD, base, null);
+            }
+            String conflict = findConflict(reader, base, oursCommit, theirsCommit);
+            return new MergePrediction(conflict != null ? MergeStatus.CONFLICTING : MergeStatus.MERGED, base,
+                    conflict);
+        } finally {
+            walk.release();
+        }
+    }
+
+    private String findConflict(ObjectReader reader, RevCommit base, RevCommit ours, RevCommit theirs)
+            throws IOException {
+        // aligns a file and a directory of the same name, as the merge strategies do
+        TreeWalk treeWalk = new NameConflictTreeWalk(reader);
+        if (base != null) {
+            treeWalk.addTree(base.getTree());
+        } else {
+            treeWalk.addTree(new EmptyTreeIterator());
+        }
+        treeWalk.addTree(ours.getTree());
+        treeWalk.addTree(theirs.getTree());
+        while (treeWalk.next()) {
+            if (unchanged(treeWalk, TREE_OURS, TREE_THEIRS) || unchanged(treeWalk, TREE_BASE, TREE_OURS)
+                    || unchanged(treeWalk, TREE_BASE, TREE_THEIRS)) {
+                continue;
+            }
+            int oursMode = treeWalk.getRawMode(TREE_OURS);
+            int theirsMode = treeWalk.getRawMode(TREE_THEIRS);
+            if (isTreeOrMissing(oursMode) && isTreeOrMissing(theirsMode)) {
+                treeWalk.enterSubtree();
+            } else if (!isFile(oursMode) || !isFile(theirsMode)) {
+                // modify/delete, file/directory or a submodule moved to different commits
+                return treeWalk.getPathString();
+            } else if (conflicts(reader, treeWalk)) {
+                return treeWalk.getPathString();
+            }
+        }
+        return null;
+    }
+
+    private boolean conflicts(ObjectReader reader, TreeWalk treeWalk) throws IOException {
+        int baseMode = treeWalk.getRawMode(TREE_BASE);
+        int oursMode = treeWalk.getRawMode(TREE_OURS);
+        int theirsMode = treeWalk.getRawMode(TREE_THEIRS);
+        if (oursMode != theirsMode && oursMode != baseMode && theirsMode != baseMode) {
+            return true;
+        }
+        if (treeWalk.idEqual(TREE_OURS, TREE_THEIRS)) {
+            // only the modes differ and they merge
+            return false;
+        }
+        RawText baseText = isFile(baseMode) ? text(reader, treeWalk, TREE_BASE) : new RawText(new byte[0]);
+        return mergeAlgorithm.merge(RawTextComparator.DEFAULT, baseText, text(reader, treeWalk, TREE_OURS),
+                text(reader, treeWalk, TREE_THEIRS)).containsConflicts();
+    }
+
+    private static RawText text(ObjectReader reader, TreeWalk treeWalk, int tree) throws IOException {
+        return new RawText(reader.open(treeWalk.getObjectId(tree), Constants.OBJ_BLOB).getCachedBytes());
+    }
+
+    private static boolean unchanged(TreeWalk treeWalk, int a, int b) {
+        return treeWalk.getRawMode(a) == treeWalk.getRawMode(b) && treeWalk.idEqual(a, b);
+    }
+
+    private static boolean isTreeOrMissing(int mode) {
+        return mode == 0 || (mode & FileMode.TYPE_MASK) == FileMode.TYPE_TREE;
+    }
+
+    private static boolean isFile(int mode) {
+        int type = mode & FileMode.TYPE_MASK;
+        return type == FileMode.TYPE_FILE || type == FileMode.TYPE_SYMLINK;
+    }
+}
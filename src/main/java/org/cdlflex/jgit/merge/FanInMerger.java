@@ -0,0 +1,364 @@
+package org.cdlflex.jgit.merge;
+
+import org.cdlflex.jgit.commit.TreeUpdater;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Merges many branches into one integration commit at once and writes a single octopus merge commit, leaving out the
+ * branches that conflict instead of failing as a whole.
+ * <p>
+ * Every branch is first merged with the integration commit on its own by an {@link InCoreMerger}. These pairwise
+ * merges are independent and run on a fork-join pool, so they take about as long as the slowest of them when there
+ * are enough cores. The paths each clean merge changed relative to the integration commit are then combined in branch
+ * order on the calling thread: a branch whose changes overlap those of a branch accepted before it, that is a path
+ * changed differently or a file where the other needs a directory, is left out with {@link MergeConflict.Type#OVERLAP}
+ * conflicts. The accepted changes are applied to the integration tree with a {@link TreeUpdater}, so the cost of
+ * combining only depends on the number of changed paths. No ref is updated.
+ * <p>
+ * Once configured, an instance can be shared by threads.
+ */
+public class FanInMerger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FanInMerger.class);
+
+    private final Repository repository;
+    private final InCoreMerger pairwise;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private String message;
+    private PersonIdent author;
+    private PersonIdent committer;
+
+    public FanInMerger(Repository repository) {
+        this.repository = repository;
+        this.pairwise = new InCoreMerger(repository);
+    }
+
+    /**
+     * Sets the number of threads merging branches, 1 merges every branch on the calling thread.
+     *
+     * @param parallelism the number of threads, defaults to the number of available processors
+     * @return this merger
+     */
+    public FanInMerger setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Makes the pairwise merges take their merge bases from the given cache.
+     *
+     * @param mergeBaseCache the cache to consult, or null to let the merge strategy compute the merge bases
+     * @return this merger
+     */
+    public FanInMerger setMergeBaseCache(MergeBaseCache mergeBaseCache) {
+        pairwise.setMergeBaseCache(mergeBaseCache);
+        return this;
+    }
+
+    /**
+     * Sets the message of merge commits.
+     *
+     * @param message the message, by default {@code Merge commits '<branch>', ...}
+     * @return this merger
+     */
+    public FanInMerger setMessage(String message) {
+        this.message = message;
+        return this;
+    }
+
+    public FanInMerger setAuthor(PersonIdent author) {
+        this.author = author;
+        return this;
+    }
+
+    public FanInMerger setCommitter(PersonIdent committer) {
+        this.committer = committer;
+        return this;
+    }
+
+    /**
+     * Merges all branches that merge cleanly into the integration commit and writes one merge commit with the
+     * integration commit as first parent and the merged branches in the given order. Branches given twice are merged
+     * once.
+     *
+     * @param integration the commit merged into
+     * @param branches the commits to merge
+     * @return the merge commit and the conflicts of the branches that were left out
+     * @throws IOException when objects cannot be read or written
+     */
+    public FanInOutcome merge(AnyObjectId integration, List<? extends AnyObjectId> branches) throws IOException {
+        Set<ObjectId> distinct = new LinkedHashSet<>();
+        for (AnyObjectId branch : branches) {
+            distinct.add(branch.copy());
+        }
+        List<ObjectId> heads = new ArrayList<>(distinct);
+        RevTree integrationTree = parseTree(integration);
+
+        BranchMerge[] results = new BranchMerge[heads.size()];
+        if (parallelism == 1 || heads.size() == 1) {
+            mergeBranches(integration, integrationTree, heads, results, 0, heads.size());
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new MergeTask(integration, integrationTree, heads, results, 0, heads.size()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        List<ObjectId> merged = new ArrayList<>();
+        List<ObjectId> upToDate = new ArrayList<>();
+        Map<ObjectId, List<MergeConflict>> conflicts = new LinkedHashMap<>();
+        TreeMap<String, Change> accepted = new TreeMap<>();
+        for (int i = 0; i < results.length; i++) {
+            BranchMerge result = results[i];
+            if (!result.outcome.isMerged()) {
+                conflicts.put(heads.get(i), result.outcome.getConflicts());
+            } else if (heads.get(i).equals(result.outcome.getBaseId())) {
+                upToDate.add(heads.get(i));
+            } else {
+                List<MergeConflict> overlaps = overlaps(accepted, result.changes);
+                if (overlaps.isEmpty()) {
+                    for (Change change : result.changes) {
+                        accepted.put(change.path, change);
+                    }
+                    merged.add(heads.get(i));
+                } else {
+                    conflicts.put(heads.get(i), overlaps);
+                }
+            }
+        }
+
+        if (merged.isEmpty()) {
+            LOGGER.debug("Merged none of {} branches into {}", heads.size(), integration.name());
+            return new FanInOutcome(integrationTree, null, merged, upToDate, conflicts);
+        }
+        ObjectInserter inserter = repository.newObjectInserter();
+        ObjectReader reader = inserter.newReader();
+        RevWalk walk = new RevWalk(reader);
+        try {
+            ObjectId treeId = combine(accepted.values()).apply(reader, inserter, integrationTree);
+            ObjectId commitId = inserter.insert(newCommit(treeId, integration, merged));
+            inserter.flush();
+            LOGGER.debug("Merged {} of {} branches into {} with {} changed paths", merged.size(), heads.size(),
+                    integration.name(), accepted.size());
+            return new FanInOutcome(treeId, walk.parseCommit(commitId), merged, upToDate, conflicts);
+        } finally {
+            walk.release();
+            inserter.release();
+        }
+    }
+
+    private RevTree parseTree(AnyObjectId commit) throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            return walk.parseCommit(commit).getTree();
+        } finally {
+            walk.release();
+        }
+    }
+
+    private void mergeBranches(AnyObjectId integration, RevTree integrationTree, List<ObjectId> heads,
+            BranchMerge[] results, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            MergeOutcome outcome = pairwise.mergeTrees(integration, heads.get(i));
+            List<Change> changes = outcome.isMerged() ? changes(integrationTree, outcome.getTreeId())
+                    : Collections.<Change>emptyList();
+            results[i] = new BranchMerge(outcome, changes);
+        }
+    }
+
+    /**
+     * Lists the files, symbolic links and gitlinks that differ between the integration tree and a merged tree.
+     */
+    private List<Change> changes(RevTree integrationTree, ObjectId mergedTree) throws IOException {
+        List<Change> changes = new ArrayList<>();
+        ObjectReader reader = repository.newObjectReader();
+        try {
+            TreeWalk treeWalk = new TreeWalk(reader);
+            treeWalk.addTree(integrationTree);
+            treeWalk.addTree(mergedTree);
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            while (treeWalk.next()) {
+                changes.add(new Change(treeWalk.getPathString(), treeWalk.getRawMode(1), treeWalk.getObjectId(1)));
+            }
+        } finally {
+            reader.release();
+        }
+        return changes;
+    }
+
+    /**
+     * Checks the changes of a branch against those accepted so far. Equal changes of the same path do not overlap, and
+     * neither does deleting a file and deleting the directory below it. Paths below a directory sort between the
+     * directory name followed by {@code '/'} and followed by {@code '0'}, the next character.
+     */
+    private static List<MergeConflict> overlaps(TreeMap<String, Change> accepted, List<Change> changes) {
+        List<MergeConflict> overlaps = new ArrayList<>();
+        for (Change change : changes) {
+            Change other = accepted.get(change.path);
+            boolean overlapping = other != null && !other.sameAs(change);
+            for (int slash = change.path.indexOf('/'); !overlapping && slash >= 0;
+                    slash = change.path.indexOf('/', slash + 1)) {
+                Change parent = accepted.get(change.path.substring(0, slash));
+                overlapping = parent != null && (parent.mode != 0 || change.mode != 0);
+            }
+            if (!overlapping) {
+                for (Change child : accepted.subMap(change.path + '/', change.path + '0').values()) {
+                    if (child.mode != 0 || change.mode != 0) {
+                        overlapping = true;
+                        break;
+                    }
+                }
+            }
+            if (overlapping) {
+                overlaps.add(new MergeConflict(change.path, MergeConflict.Type.OVERLAP,
+                        new ArrayList<MergeConflict.Region>()));
+            }
+        }
+        return overlaps;
+    }
+
+    /**
+     * Records deletions before additions, so that replacing a directory by a file of the same name does not remove
+     * the file again when the files below the directory are deleted.
+     */
+    private static TreeUpdater combine(Iterable<Change> changes) {
+        TreeUpdater updater = new TreeUpdater();
+        for (Change change : changes) {
+            if (change.mode == 0) {
+                updater.remove(change.path);
+            }
+        }
+        for (Change change : changes) {
+            if (change.mode != 0) {
+                updater.add(change.path, FileMode.fromBits(change.mode), change.id);
+            }
+        }
+        return updater;
+    }
+
+    private CommitBuilder newCommit(ObjectId treeId, AnyObjectId integration, List<ObjectId> merged) {
+        List<ObjectId> parents = new ArrayList<>(merged.size() + 1);
+        parents.add(integration.copy());
+        parents.addAll(merged);
+        CommitBuilder builder = new CommitBuilder();
+        builder.setTreeId(treeId);
+        builder.setParentIds(parents);
+        PersonIdent commitAuthor = author != null ? author : new PersonIdent(repository);
+        builder.setAuthor(commitAuthor);
+        builder.setCommitter(committer != null ? committer : commitAuthor);
+        builder.setMessage(message != null ? message : defaultMessage(merged));
+        return builder;
+    }
+
+    private static String defaultMessage(List<ObjectId> merged) {
+        StringBuilder builder = new StringBuilder(merged.size() == 1 ? "Merge commit " : "Merge commits ");
+        for (int i = 0; i < merged.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('\'').append(merged.get(i).name()).append('\'');
+        }
+        return builder.toString();
+    }
+
+    private static class Change {
+
+        final String path;
+        final int mode;
+        final ObjectId id;
+
+        Change(String path, int mode, ObjectId id) {
+            this.path = path;
+            this.mode = mode;
+            this.id = id;
+        }
+
+        boolean sameAs(Change other) {
+            return mode == other.mode && (mode == 0 || id.equals(other.id));
+        }
+    }
+
+    private static class BranchMerge {
+
+        final MergeOutcome outcome;
+        final List<Change> changes;
+
+        BranchMerge(MergeOutcome outcome, List<Change> changes) {
+            this.outcome = outcome;
+            this.changes = changes;
+        }
+    }
+
+    private class MergeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient AnyObjectId integration;
+        private final transient RevTree integrationTree;
+        private final transient List<ObjectId> heads;
+        private final transient BranchMerge[] results;
+        private final int from;
+        private final int to;
+
+        MergeTask(AnyObjectId integration, RevTree integrationTree, List<ObjectId> heads, BranchMerge[] results,
+                int from, int to) {
+            this.integration = integration;
+            this.integrationTree = integrationTree;
+            this.heads = heads;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MergeTask(integration, integrationTree, heads, results, from, middle),
+                        new MergeTask(integration, integrationTree, heads, results, middle, to));
+                return;
+            }
+            try {
+                mergeBranches(integration, integrationTree, heads, results, from, to);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.cdlflex.jgit.merge;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a {@link FanInMerger}: the octopus merge of every branch that could be merged, and the conflicts of
+ * every branch that could not.
+ */
+public class FanInOutcome {
+
+    private final ObjectId treeId;
+    private final RevCommit commit;
+    private final List<ObjectId> merged;
+    private final List<ObjectId> upToDate;
+    private final Map<ObjectId, List<MergeConflict>> conflicts;
+
+    FanInOutcome(ObjectId treeId, RevCommit commit, List<ObjectId> merged, List<ObjectId> upToDate,
+            Map<ObjectId, List<MergeConflict>> conflicts) {
+        this.treeId = treeId;
+        this.commit = commit;
+        this.merged = Collections.unmodifiableList(merged);
+        this.upToDate = Collections.unmodifiableList(upToDate);
+        this.conflicts = Collections.unmodifiableMap(conflicts);
+    }
+
+    /**
+     * Returns whether every branch was merged or already contained in the integration commit.
+     *
+     * @return true if no branch conflicted
+     */
+    public boolean isMerged() {
+        return conflicts.isEmpty();
+    }
+
+    /**
+     * Returns the combined tree.
+     *
+     * @return the tree of the merge commit, or the tree of the integration commit if no branch was merged
+     */
+    public ObjectId getTreeId() {
+        return treeId;
+    }
+
+    /**
+     * Returns the merge commit, whose parents are the integration commit followed by the merged branches.
+     *
+     * @return the commit, or null if no branch was merged
+     */
+    public RevCommit getCommit() {
+        return commit;
+    }
+
+    /**
+     * Returns the branches that are parents of the merge commit.
+     *
+     * @return the merged branches in the order they were given
+     */
+    public List<ObjectId> getMerged() {
+        return merged;
+    }
+
+    /**
+     * Returns the branches that were skipped because the integration commit already contains them.
+     *
+     * @return the skipped branches in the order they were given
+     */
+    public List<ObjectId> getUpToDate() {
+        return upToDate;
+    }
+
+    /**
+     * Returns the conflicts of every branch that was left out of the merge.
+     *
+     * @return the conflicts sorted by path for each conflicting branch, in the order the branches were given
+     */
+    public Map<ObjectId, List<MergeConflict>> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Returns the conflicts of a single branch.
+     *
+     * @param branch one of the merged branches
+     * @return the conflicts sorted by path, empty if the branch was merged or up to date
+     */
+    public List<MergeConflict> getConflicts(AnyObjectId branch) {
+        List<MergeConflict> branchConflicts = conflicts.get(branch.copy());
+        return branchConflicts != null ? branchConflicts : Collections.<MergeConflict>emptyList();
+    }
+}
@@ -0,0 +1,241 @@
+package org.cdlflex.jgit.merge;
+
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeChunk;
+import org.eclipse.jgit.merge.MergeResult;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.Merger;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.merge.ThreeWayMerger;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Merges two commits entirely in memory, without a working tree, an index or a checkout, so it works on bare
+ * repositories and never touches the file system outside the object database.
+ * <p>
+ * The merged tree and the merge commit are written through a single {@link ObjectInserter} that is flushed once. When
+ * the commits cannot be merged, nothing but the recursive strategy's virtual merge bases is written and the outcome
+ * lists every conflicting path with its conflicting line ranges. No ref is updated.
+ * <p>
+ * Once configured, an instance can be shared by threads; every merge uses its own merger, inserter and reader.
+ */
+public class InCoreMerger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InCoreMerger.class);
+
+    private final Repository repository;
+
+    private MergeStrategy strategy = MergeStrategy.RECURSIVE;
+    private String message;
+    private PersonIdent author;
+    private PersonIdent committer;
+    private MergeBaseCache mergeBaseCache;
+
+    public InCoreMerger(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Sets the merge strategy, for example {@link MergeStrategy#OURS}.
+     *
+     * @param strategy the strategy, {@link MergeStrategy#RECURSIVE} by default
+     * @return this merger
+     */
+    public InCoreMerger setStrategy(MergeStrategy strategy) {
+        this.strategy = strategy;
+        return this;
+    }
+
+    /**
+     * Sets the message of merge commits.
+     *
+     * @param message the message, by default {@code Merge commit '<theirs>'}
+     * @return this merger
+     */
+    public InCoreMerger setMessage(String message) {
+        this.message = message;
+        return this;
+    }
+
+    public InCoreMerger setAuthor(PersonIdent author) {
+        this.author = author;
+        return this;
+    }
+
+    public InCoreMerger setCommitter(PersonIdent committer) {
+        this.committer = committer;
+        return this;
+    }
+
+    /**
+     * Makes merges take the merge base from the given cache instead of walking both histories. Commits with several
+     * merge bases are still merged by the strategy itself, the recursive strategy merges the bases first.
+     *
+     * @param mergeBaseCache the cache to consult, or null to let the strategy compute the merge base
+     * @return this merger
+     */
+    public InCoreMerger setMergeBaseCache(MergeBaseCache mergeBaseCache) {
+        this.mergeBaseCache = mergeBaseCache;
+        return this;
+    }
+
+    /**
+     * Merges theirs into ours and writes a merge commit with ours as first parent.
+     *
+     * @param ours the commit merged into
+     * @param theirs the commit to merge
+     * @return the merged tree and commit, or the conflicts
+     * @throws IOException when objects cannot be read or written
+     */
+    public MergeOutcome merge(AnyObjectId ours, AnyObjectId theirs) throws IOException {
+        return merge(ours, theirs, true);
+    }
+
+    /**
+     * Merges theirs into ours and only writes the merged tree, for callers that only want to know whether two commits
+     * merge cleanly or write the commit themselves.
+     *
+     * @param ours the commit merged into
+     * @param theirs the commit to merge
+     * @return the merged tree, or the conflicts
+     * @throws IOException when objects cannot be read or written
+     */
+    public MergeOutcome mergeTrees(AnyObjectId ours, AnyObjectId theirs) throws IOException {
+        return merge(ours, theirs, false);
+    }
+
+    private MergeOutcome merge(AnyObjectId ours, AnyObjectId theirs, boolean commit) throws IOException {
+        ObjectInserter inserter = repository.newObjectInserter();
+        ObjectReader reader = inserter.newReader();
+        RevWalk walk = new RevWalk(reader);
+        try {
+            RevCommit oursCommit = walk.parseCommit(ours);
+            RevCommit theirsCommit = walk.parseCommit(theirs);
+            Merger merger = strategy.newMerger(repository, true);
+            merger.setObjectInserter(inserter);
+            ObjectId cachedBase = null;
+            if (mergeBaseCache != null && merger instanceof ThreeWayMerger) {
+                List<ObjectId> bases = mergeBaseCache.getMergeBases(oursCommit, theirsCommit);
+                if (bases.size() == 1) {
+                    cachedBase = bases.get(0);
+                    ((ThreeWayMerger) merger).setBase(cachedBase);
+                }
+            }
+            boolean merged = merger.merge(false, oursCommit, theirsCommit);
+            ObjectId baseId = cachedBase != null ? cachedBase : merger.getBaseCommitId();
+
+            if (!merged) {
+                inserter.flush();
+                List<MergeConflict> conflicts = merger instanceof ResolveMerger
+                        ? conflicts((ResolveMerger) merger, reader, walk, baseId, oursCommit, theirsCommit)
+                        : new ArrayList<>();
+                LOGGER.debug("Merging {} into {} failed with {} conflicts", theirsCommit.name(), oursCommit.name(),
+                        conflicts.size());
+                return new MergeOutcome(baseId, null, null, conflicts);
+            }
+
+            ObjectId treeId = merger.getResultTreeId();
+            RevCommit mergeCommit = null;
+            if (commit) {
+                ObjectId commitId = inserter.insert(newCommit(treeId, oursCommit, theirsCommit));
+                inserter.flush();
+                mergeCommit = walk.parseCommit(commitId);
+            } else {
+                inserter.flush();
+            }
+            LOGGER.debug("Merged {} into {}", theirsCommit.name(), oursCommit.name());
+            return new MergeOutcome(baseId, treeId, mergeCommit, new ArrayList<MergeConflict>());
+        } finally {
+            walk.release();
+            inserter.release();
+        }
+    }
+
+    private CommitBuilder newCommit(ObjectId treeId, RevCommit ours, RevCommit theirs) {
+        CommitBuilder builder = new CommitBuilder();
+        builder.setTreeId(treeId);
+        builder.setParentIds(ours, theirs);
+        PersonIdent commitAuthor = author != null ? author : new PersonIdent(repository);
+        builder.setAuthor(commitAuthor);
+        builder.setCommitter(committer != null ? committer : commitAuthor);
+        builder.setMessage(message != null ? message : "Merge commit '" + theirs.name() + "'");
+        return builder;
+    }
+
+    private static List<MergeConflict> conflicts(ResolveMerger merger, ObjectReader reader, RevWalk walk,
+            ObjectId baseId, RevCommit ours, RevCommit theirs) throws IOException {
+        RevTree baseTree = baseId != null ? walk.parseCommit(baseId).getTree() : null;
+        List<String> paths = new ArrayList<>(merger.getUnmergedPaths());
+        Collections.sort(paths);
+        List<MergeConflict> conflicts = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            int baseMode = baseTree != null ? mode(reader, baseTree, path) : 0;
+            int oursMode = mode(reader, ours.getTree(), path);
+            int theirsMode = mode(reader, theirs.getTree(), path);
+            MergeConflict.Type type;
+            if (oursMode == 0 || theirsMode == 0) {
+                type = MergeConflict.Type.MODIFY_DELETE;
+            } else if (!isFile(oursMode) || !isFile(theirsMode)) {
+                type = MergeConflict.Type.TYPE_CHANGE;
+            } else if (baseMode == 0) {
+                type = MergeConflict.Type.ADD_ADD;
+            } else {
+                type = MergeConflict.Type.CONTENT;
+            }
+            List<MergeConflict.Region> regions = type == MergeConflict.Type.CONTENT
+                    || type == MergeConflict.Type.ADD_ADD ? regions(merger.getMergeResults().get(path))
+                    : new ArrayList<MergeConflict.Region>();
+            conflicts.add(new MergeConflict(path, type, regions));
+        }
+        return conflicts;
+    }
+
+    /**
+     * Pairs the ranges of ours and theirs that the merge algorithm reports one after another for each conflict.
+     */
+    private static List<MergeConflict.Region> regions(MergeResult<? extends Sequence> result) {
+        List<MergeConflict.Region> regions = new ArrayList<>();
+        if (result == null) {
+            return regions;
+        }
+        MergeChunk ours = null;
+        for (MergeChunk chunk : result) {
+            if (chunk.getConflictState() == MergeChunk.ConflictState.FIRST_CONFLICTING_RANGE) {
+                ours = chunk;
+            } else if (chunk.getConflictState() == MergeChunk.ConflictState.NEXT_CONFLICTING_RANGE && ours != null) {
+                regions.add(new MergeConflict.Region(ours.getBegin(), ours.getEnd(), chunk.getBegin(),
+                        chunk.getEnd()));
+                ours = null;
+            }
+        }
+        return regions;
+    }
+
+    private static int mode(ObjectReader reader, RevTree tree, String path) throws IOException {
+        TreeWalk treeWalk = TreeWalk.forPath(reader, path, tree);
+        return treeWalk != null ? treeWalk.getRawMode(0) : 0;
+    }
+
+    private static boolean isFile(int mode) {
+        int type = mode & FileMode.TYPE_MASK;
+        return type == FileMode.TYPE_FILE || type == FileMode.TYPE_SYMLINK;
+    }
+}
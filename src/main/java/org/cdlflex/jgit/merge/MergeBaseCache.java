@@ -0,0 +1,320 @@
+package org.cdlflex.jgit.merge;
+
+import org.cdlflex.jgit.history.CommitGraph;
+import org.cdlflex.jgit.history.CommitGraphWalk;
+import org.cdlflex.jgit.history.IndexFiles;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the merge bases of commit pairs, so that merging the same branches again, or checking whether one commit
+ * is an ancestor of another, does not walk both histories again.
+ * <p>
+ * Commits never change, so a computed merge base stays valid forever. Every merge base is also an ancestor of both
+ * commits of its pair; these ancestor relations answer {@link #isAncestor} and the merge bases of a commit and one of
+ * its known ancestors without any walk. Merge bases that are not cached are computed on the {@link CommitGraph} if one
+ * is set and contains both commits, and with a {@link RevWalk} otherwise.
+ * <p>
+ * A cache opened with {@link #open(Repository)} appends every computed pair to a side file, like the history indexes,
+ * so it survives restarts. The cache is thread-safe; computations run outside of its lock.
+ */
+public class MergeBaseCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MergeBaseCache.class);
+
+    public static final String FILE_NAME = "merge-bases";
+
+    private static final int MAGIC = 0x4d424331;
+
+    private final Repository repository;
+    private final File file;
+
+    private final Map<Pair, ObjectId[]> bases = new HashMap<>();
+    private final Map<ObjectId, Set<ObjectId>> ancestors = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private volatile CommitGraph commitGraph;
+
+    private MergeBaseCache(Repository repository, File file) {
+        this.repository = repository;
+        this.file = file;
+    }
+
+    /**
+     * Opens the persistent cache of the repository, loading all merge bases written so far.
+     *
+     * @param repository the repository
+     * @return the cache, empty if none has been written yet
+     * @throws IOException when the cache cannot be read
+     */
+    public static MergeBaseCache open(Repository repository) throws IOException {
+        MergeBaseCache cache = new MergeBaseCache(repository, IndexFiles.get(repository, FILE_NAME));
+        cache.load();
+        return cache;
+    }
+
+    /**
+     * Creates a cache that is only kept in memory, for example for repositories without a local git directory.
+     *
+     * @param repository the repository
+     * @return an empty cache
+     */
+    public static MergeBaseCache inMemory(Repository repository) {
+        return new MergeBaseCache(repository, null);
+    }
+
+    /**
+     * Makes the cache compute missing merge bases on the given commit graph, which bounds each walk by generation
+     * numbers and never parses a commit. Pairs with a commit the graph does not contain are still computed with a
+     * {@link RevWalk}.
+     *
+     * @param commitGraph the commit graph of the repository, or null to always walk with a {@link RevWalk}
+     */
+    public void setCommitGraph(CommitGraph commitGraph) {
+        this.commitGraph = commitGraph;
+    }
+
+    /**
+     * Returns the best common ancestors of two commits, as {@code git merge-base --all} does.
+     *
+     * @param a the first commit
+     * @param b the second commit
+     * @return the merge bases, empty if the commits share no history
+     * @throws IOException when the commits cannot be read or the cache cannot be written
+     */
+    public List<ObjectId> getMergeBases(AnyObjectId a, AnyObjectId b) throws IOException {
+        Pair pair = new Pair(a, b);
+        ObjectId[] cached = lookup(pair);
+        if (cached != null) {
+            hits.increment();
+            return Collections.unmodifiableList(Arrays.asList(cached));
+        }
+        misses.increment();
+        ObjectId[] computed = compute(pair.first, pair.second);
+        store(pair, computed);
+        return Collections.unmodifiableList(Arrays.asList(computed));
+    }
+
+    /**
+     * Returns the first merge base of two commits.
+     *
+     * @param a the first commit
+     * @param b the second commit
+     * @return a merge base, or null if the commits share no history
+     * @throws IOException when the commits cannot be read or the cache cannot be written
+     */
+    public ObjectId getMergeBase(AnyObjectId a, AnyObjectId b) throws IOException {
+        List<ObjectId> mergeBases = getMergeBases(a, b);
+        return mergeBases.isEmpty() ? null : mergeBases.get(0);
+    }
+
+    /**
+     * Returns whether ancestor is reachable from descendant. A commit is considered its own ancestor, as in
+     * {@link RevWalk#isMergedInto}. The answer is cached as the merge base of both commits.
+     *
+     * @param ancestor the potential ancestor
+     * @param descendant the potential descendant
+     * @return true if ancestor is reachable from descendant
+     * @throws IOException when the commits cannot be read or the cache cannot be written
+     */
+    public boolean isAncestor(AnyObjectId ancestor, AnyObjectId descendant) throws IOException {
+        List<ObjectId> mergeBases = getMergeBases(ancestor, descendant);
+        return mergeBases.size() == 1 && mergeBases.get(0).equals(ancestor);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of cached commit pairs.
+     *
+     * @return the number of pairs
+     */
+    public synchronized int size() {
+        return bases.size();
+    }
+
+    private synchronized ObjectId[] lookup(Pair pair) {
+        ObjectId[] cached = bases.get(pair);
+        if (cached != null) {
+            return cached;
+        }
+        if (pair.first.equals(pair.second) || isKnownAncestor(pair.first, pair.second)) {
+            return new ObjectId[] { pair.first };
+        }
+        if (isKnownAncestor(pair.second, pair.first)) {
+            return new ObjectId[] { pair.second };
+        }
+        return null;
+    }
+
+    private boolean isKnownAncestor(ObjectId ancestor, ObjectId descendant) {
+        Set<ObjectId> known = ancestors.get(descendant);
+        return known != null && known.contains(ancestor);
+    }
+
+    private ObjectId[] compute(ObjectId a, ObjectId b) throws IOException {
+        CommitGraph graph = commitGraph;
+        if (graph != null) {
+            int positionA = graph.findPosition(a);
+            int positionB = graph.findPosition(b);
+            if (positionA >= 0 && positionB >= 0) {
+                CommitGraphWalk walk = graph.newWalk();
+                int[] positions = walk.mergeBases(positionA, positionB);
+                ObjectId[] result = new ObjectId[positions.length];
+                for (int i = 0; i < positions.length; i++) {
+                    result[i] = graph.getObjectId(positions[i]);
+                }
+                return result;
+            }
+        }
+
+        RevWalk walk = new RevWalk(repository);
+        try {
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(walk.parseCommit(a));
+            walk.markStart(walk.parseCommit(b));
+            List<ObjectId> result = new ArrayList<>();
+            for (RevCommit base : walk) {
+                result.add(base.copy());
+            }
+            return result.toArray(new ObjectId[result.size()]);
+        } finally {
+            walk.release();
+        }
+    }
+
+    private synchronized void store(Pair pair, ObjectId[] mergeBases) throws IOException {
+        if (bases.containsKey(pair)) {
+            return;
+        }
+        if (file != null) {
+            boolean newFile = !file.exists() || file.length() == 0;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file, true)))) {
+                if (newFile) {
+                    out.writeInt(MAGIC);
+                }
+                pair.first.copyRawTo(out);
+                pair.second.copyRawTo(out);
+                out.writeInt(mergeBases.length);
+                for (ObjectId base : mergeBases) {
+                    base.copyRawTo(out);
+                }
+            }
+        }
+        add(pair, mergeBases);
+        LOGGER.debug("Cached {} merge bases of {} and {}", mergeBases.length, pair.first.name(), pair.second.name());
+    }
+
+    private void add(Pair pair, ObjectId[] mergeBases) {
+        bases.put(pair, mergeBases);
+        for (ObjectId base : mergeBases) {
+            addAncestor(base, pair.first);
+            addAncestor(base, pair.second);
+        }
+    }
+
+    private void addAncestor(ObjectId ancestor, ObjectId descendant) {
+        if (!ancestor.equals(descendant)) {
+            ancestors.computeIfAbsent(descendant, d -> new HashSet<>()).add(ancestor);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a merge base cache: " + file);
+        }
+
+        long validLength = data.length - in.available();
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        try {
+            while (in.available() > 0) {
+                in.readFully(rawId);
+                ObjectId first = ObjectId.fromRaw(rawId);
+                in.readFully(rawId);
+                ObjectId second = ObjectId.fromRaw(rawId);
+                ObjectId[] mergeBases = new ObjectId[in.readInt()];
+                for (int i = 0; i < mergeBases.length; i++) {
+                    in.readFully(rawId);
+                    mergeBases[i] = ObjectId.fromRaw(rawId);
+                }
+                add(new Pair(first, second), mergeBases);
+                validLength = data.length - in.available();
+            }
+        } catch (EOFException e) {
+            LOGGER.warn("Truncating torn record at offset {} of {}", validLength, file);
+            try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+                truncate.setLength(validLength);
+            }
+        }
+        LOGGER.debug("Loaded merge bases of {} commit pairs from {}", bases.size(), file);
+    }
+
+    /**
+     * An unordered pair of commits, the smaller id first.
+     */
+    private static final class Pair {
+
+        final ObjectId first;
+        final ObjectId second;
+
+        Pair(AnyObjectId a, AnyObjectId b) {
+            boolean ordered = a.compareTo(b) <= 0;
+            this.first = (ordered ? a : b).copy();
+            this.second = (ordered ? b : a).copy();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Pair)) {
+                return false;
+            }
+            Pair other = (Pair) o;
+            return first.equals(other.first) && second.equals(other.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return first.hashCode() * 31 + second.hashCode();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.cdlflex.jgit.merge;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A path that an {@link InCoreMerger} or a {@link FanInMerger} could not merge, with the conflicting line ranges of
+ * content conflicts.
+ */
+public class MergeConflict {
+
+    /**
+     * How the two sides changed the path.
+     */
+    public enum Type {
+        /** Both sides changed the content of a file present in the base. */
+        CONTENT,
+        /** Both sides added a file with different content. */
+        ADD_ADD,
+        /** One side changed the file, the other deleted it. */
+        MODIFY_DELETE,
+        /** One side has a file at the path, the other a directory or a submodule. */
+        TYPE_CHANGE,
+        /** The branch merges cleanly on its own, but another branch of a fan-in merge changed the path differently. */
+        OVERLAP
+    }
+
+    private final String path;
+    private final Type type;
+    private final List<Region> regions;
+
+    MergeConflict(String path, Type type, List<Region> regions) {
+        this.path = path;
+        this.type = type;
+        this.regions = Collections.unmodifiableList(regions);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the conflicting line ranges. Only content and add/add conflicts of text files have regions.
+     *
+     * @return the regions in file order, possibly empty
+     */
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + path + " " + regions;
+    }
+
+    /**
+     * A range of lines that both sides changed differently. Lines are counted from 0, ends are exclusive.
+     */
+    public static class Region {
+
+        private final int oursBegin;
+        private final int oursEnd;
+        private final int theirsBegin;
+        private final int theirsEnd;
+
+        Region(int oursBegin, int oursEnd, int theirsBegin, int theirsEnd) {
+            this.oursBegin = oursBegin;
+            this.oursEnd = oursEnd;
+            this.theirsBegin = theirsBegin;
+            this.theirsEnd = theirsEnd;
+        }
+
+        public int getOursBegin() {
+            return oursBegin;
+        }
+
+        public int getOursEnd() {
+            return oursEnd;
+        }
+
+        public int getTheirsBegin() {
+            return theirsBegin;
+        }
+
+        public int getTheirsEnd() {
+            return theirsEnd;
+        }
+
+        @Override
+        public String toString() {
+            return "ours " + oursBegin + "-" + oursEnd + ", theirs " + theirsBegin + "-" + theirsEnd;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.cdlflex.jgit.merge;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of an {@link InCoreMerger}: the merged tree and commit, or the conflicts that prevented the merge.
+ */
+public class MergeOutcome {
+
+    private final ObjectId baseId;
+    private final ObjectId treeId;
+    private final RevCommit commit;
+    private final List<MergeConflict> conflicts;
+
+    MergeOutcome(ObjectId baseId, ObjectId treeId, RevCommit commit, List<MergeConflict> conflicts) {
+        this.baseId = baseId;
+        this.treeId = treeId;
+        this.commit = commit;
+        this.conflicts = Collections.unmodifiableList(conflicts);
+    }
+
+    /**
+     * Returns whether the merge succeeded.
+     *
+     * @return true if there is a merged tree
+     */
+    public boolean isMerged() {
+        return treeId != null;
+    }
+
+    /**
+     * Returns the merge base used, which the recursive strategy may have created by merging several bases.
+     *
+     * @return the base commit, or null if the commits have no common ancestor or the strategy needs none
+     */
+    public ObjectId getBaseId() {
+        return baseId;
+    }
+
+    /**
+     * Returns the merged tree.
+     *
+     * @return the tree, or null if the merge failed
+     */
+    public ObjectId getTreeId() {
+        return treeId;
+    }
+
+    /**
+     * Returns the merge commit.
+     *
+     * @return the commit, or null if the merge failed or only the tree was requested
+     */
+    public RevCommit getCommit() {
+        return commit;
+    }
+
+    /**
+     * Returns the paths that could not be merged.
+     *
+     * @return the conflicts sorted by path, empty if the merge succeeded
+     */
+    public List<MergeConflict> getConflicts() {
+        return conflicts;
+    }
+}
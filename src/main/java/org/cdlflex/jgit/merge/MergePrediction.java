@@ -0,0 +1,57 @@
+package org.cdlflex.jgit.merge;
+
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * The outcome a {@link ConflictPredictor} expects for a merge.
+ */
+public class MergePrediction {
+
+    private final MergeResult.MergeStatus status;
+    private final ObjectId baseId;
+    private final String conflictPath;
+
+    MergePrediction(MergeResult.MergeStatus status, ObjectId baseId, String conflictPath) {
+        this.status = status;
+        this.baseId = baseId;
+        this.conflictPath = conflictPath;
+    }
+
+    /**
+     * Returns the status {@code git.merge()} would report.
+     *
+     * @return {@link MergeResult.MergeStatus#ALREADY_UP_TO_DATE}, {@link MergeResult.MergeStatus#FAST_FORWARD},
+     *         {@link MergeResult.MergeStatus#MERGED} or {@link MergeResult.MergeStatus#CONFLICTING}
+     */
+    public MergeResult.MergeStatus getStatus() {
+        return status;
+    }
+
+    public boolean isConflicting() {
+        return status == MergeResult.MergeStatus.CONFLICTING;
+    }
+
+    /**
+     * Returns the merge base.
+     *
+     * @return the base commit, or null if the commits have no common ancestor
+     */
+    public ObjectId getBaseId() {
+        return baseId;
+    }
+
+    /**
+     * Returns the first conflicting path found. The prediction stops there, other paths may conflict as well.
+     *
+     * @return the path, or null if the merge is not conflicting
+     */
+    public String getConflictPath() {
+        return conflictPath;
+    }
+
+    @Override
+    public String toString() {
+        return conflictPath != null ? status + " " + conflictPath : status.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package org.cdlflex.jgit.metrics;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+
+/**
+ * Records the flight recorder events of an {@link InstrumentedRepository}.
+ * <p>
+ * The instrumented readers and the repository only reach the event classes through this class, and only when
+ * {@link InstrumentedRepository#FLIGHT_RECORDER} is set, so the I/O counters keep working on runtimes without
+ * {@code jdk.jfr}, which Java 8 only has from 8u262 on.
+ */
+final class FlightRecorderEvents {
+
+    /**
+     * Only asked whether inflate events are enabled, which JFR keeps up to date for every instance.
+     */
+    private static final ObjectInflateEvent INFLATE_EVENTS = new ObjectInflateEvent();
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * Opens the object and records an {@link ObjectOpenEvent} for it. While {@link ObjectInflateEvent}s are enabled,
+     * the returned loader records them.
+     */
+    static ObjectLoader open(ObjectReader reader, AnyObjectId objectId, int typeHint, PackLocator packs)
+            throws IOException {
+        ObjectOpenEvent event = new ObjectOpenEvent();
+        event.begin();
+        ObjectLoader loader = reader.open(objectId, typeHint);
+        event.end();
+        if (event.shouldCommit()) {
+            event.objectId = objectId.name();
+            event.objectType = Constants.typeString(loader.getType());
+            event.size = loader.getSize();
+            packs.locate(objectId, event);
+            event.commit();
+        }
+        return INFLATE_EVENTS.isEnabled() ? new InstrumentedObjectLoader(loader, objectId) : loader;
+    }
+
+    /**
+     * Runs the update and records a {@link RefUpdateEvent} for it.
+     */
+    static RefUpdate.Result update(RefUpdate update, RevWalk walk) throws IOException {
+        return RefUpdateEvent.update(update, walk);
+    }
+}
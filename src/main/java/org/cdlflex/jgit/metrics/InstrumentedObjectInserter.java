@@ -0,0 +1,61 @@
+package org.cdlflex.jgit.metrics;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.transport.PackParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Adds every inserted object and its size to the {@link IoCounters} of the calling thread.
+ */
+class InstrumentedObjectInserter extends ObjectInserter {
+
+    private final ObjectInserter delegate;
+    private final PackLocator packs;
+
+    InstrumentedObjectInserter(ObjectInserter delegate, PackLocator packs) {
+        this.delegate = delegate;
+        this.packs = packs;
+    }
+
+    @Override
+    public ObjectId insert(int type, byte[] data, int off, int len) throws IOException {
+        count(len);
+        return delegate.insert(type, data, off, len);
+    }
+
+    @Override
+    public ObjectId insert(int type, long length, InputStream in) throws IOException {
+        count(length);
+        return delegate.insert(type, length, in);
+    }
+
+    @Override
+    public PackParser newPackParser(InputStream in) throws IOException {
+        return delegate.newPackParser(in);
+    }
+
+    @Override
+    public ObjectReader newReader() {
+        return new InstrumentedObjectReader(delegate.newReader(), packs);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public void release() {
+        delegate.release();
+    }
+
+    private static void count(long length) {
+        IoCounters counters = IoCounters.current();
+        counters.objectsInserted++;
+        counters.bytesWritten += length;
+    }
+}
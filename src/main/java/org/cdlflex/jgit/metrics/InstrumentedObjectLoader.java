@@ -0,0 +1,101 @@
+package org.cdlflex.jgit.metrics;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectStream;
+
+import java.io.IOException;
+
+/**
+ * Records an {@link ObjectInflateEvent} for every read of the content of the wrapped loader.
+ */
+class InstrumentedObjectLoader extends ObjectLoader {
+
+    private final ObjectLoader delegate;
+    private final String objectId;
+
+    InstrumentedObjectLoader(ObjectLoader delegate, AnyObjectId objectId) {
+        this.delegate = delegate;
+        this.objectId = objectId.name();
+    }
+
+    @Override
+    public int getType() {
+        return delegate.getType();
+    }
+
+    @Override
+    public long getSize() {
+        return delegate.getSize();
+    }
+
+    @Override
+    public boolean isLarge() {
+        return delegate.isLarge();
+    }
+
+    @Override
+    public byte[] getCachedBytes() {
+        ObjectInflateEvent event = new ObjectInflateEvent();
+        event.begin();
+        byte[] bytes = delegate.getCachedBytes();
+        commit(event, bytes.length, false);
+        return bytes;
+    }
+
+    @Override
+    public byte[] getCachedBytes(int limit) throws IOException {
+        ObjectInflateEvent event = new ObjectInflateEvent();
+        event.begin();
+        byte[] bytes = delegate.getCachedBytes(limit);
+        commit(event, bytes.length, false);
+        return bytes;
+    }
+
+    @Override
+    public ObjectStream openStream() throws IOException {
+        ObjectInflateEvent event = new ObjectInflateEvent();
+        event.begin();
+        ObjectStream stream = delegate.openStream();
+        return new ObjectStream.Filter(stream.getType(), stream.getSize(), stream) {
+
+            private long bytes;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytes++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int off, int len) throws IOException {
+                int n = super.read(buffer, off, len);
+                if (n > 0) {
+                    bytes += n;
+                }
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                InstrumentedObjectLoader.this.commit(event, bytes, true);
+            }
+        };
+    }
+
+    private void commit(ObjectInflateEvent event, long bytes, boolean streamed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.objectId = objectId;
+            event.objectType = Constants.typeString(delegate.getType());
+            event.bytes = bytes;
+            event.streamed = streamed;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.cdlflex.jgit.metrics;
+
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BitmapIndex;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Adds the size of every opened object to the {@link IoCounters} of the calling thread and, where the flight recorder
+ * is available, records the events of {@link FlightRecorderEvents#open} for it.
+ */
+class InstrumentedObjectReader extends ObjectReader {
+
+    private final ObjectReader delegate;
+    private final PackLocator packs;
+
+    InstrumentedObjectReader(ObjectReader delegate, PackLocator packs) {
+        this.delegate = delegate;
+        this.packs = packs;
+    }
+
+    @Override
+    public ObjectReader newReader() {
+        return new InstrumentedObjectReader(delegate.newReader(), packs);
+    }
+
+    @Override
+    public Collection<ObjectId> resolve(AbbreviatedObjectId id) throws IOException {
+        return delegate.resolve(id);
+    }
+
+    @Override
+    public boolean has(AnyObjectId objectId, int typeHint) throws IOException {
+        return delegate.has(objectId, typeHint);
+    }
+
+    @Override
+    public ObjectLoader open(AnyObjectId objectId, int typeHint) throws IOException {
+        ObjectLoader loader = InstrumentedRepository.FLIGHT_RECORDER
+                ? FlightRecorderEvents.open(delegate, objectId, typeHint, packs) : delegate.open(objectId, typeHint);
+        IoCounters.current().bytesRead += loader.getSize();
+        return loader;
+    }
+
+    @Override
+    public long getObjectSize(AnyObjectId objectId, int typeHint) throws IOException {
+        return delegate.getObjectSize(objectId, typeHint);
+    }
+
+    @Override
+    public Set<ObjectId> getShallowCommits() throws IOException {
+        return delegate.getShallowCommits();
+    }
+
+    @Override
+    public void walkAdviceBeginCommits(RevWalk walk, Collection<RevCommit> roots) throws IOException {
+        delegate.walkAdviceBeginCommits(walk, roots);
+    }
+
+    @Override
+    public void walkAdviceBeginTrees(ObjectWalk walk, RevCommit min, RevCommit max) throws IOException {
+        delegate.walkAdviceBeginTrees(walk, min, max);
+    }
+
+    @Override
+    public void walkAdviceEnd() {
+        delegate.walkAdviceEnd();
+    }
+
+    @Override
+    public void setAvoidUnreachableObjects(boolean avoid) {
+        delegate.setAvoidUnreachableObjects(avoid);
+    }
+
+    @Override
+    public BitmapIndex getBitmapIndex() throws IOException {
+        return delegate.getBitmapIndex();
+    }
+
+    @Override
+    public void release() {
+        delegate.release();
+    }
+}
@@ -0,0 +1,64 @@
+package org.cdlflex.jgit.metrics;
+
+import org.cdlflex.jgit.commit.RefUpdater;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.BaseRepositoryBuilder;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+
+/**
+ * A file repository whose object readers and inserters count the objects and bytes they move, so that
+ * {@link MetricsRegistry#record} can attribute them to operations, and record flight recorder events for opening and
+ * inflating objects and for the ref updates of the commit writers. The events need Java 8u262 or later, on older
+ * runtimes only the counting is done.
+ * <p>
+ * Open it like any file repository, for example
+ * {@code new InstrumentedRepository(new FileRepositoryBuilder().setWorkTree(dir).setup())}. Counting costs a thread
+ * local lookup per object; code that goes to the object database directly instead of through the repository, such as
+ * the {@code BulkImporter}, is not counted.
+ */
+public class InstrumentedRepository extends FileRepository implements RefUpdater {
+
+    /**
+     * Whether the flight recorder API is present, {@link FlightRecorderEvents} must not be used otherwise.
+     */
+    static final boolean FLIGHT_RECORDER = isFlightRecorderAvailable();
+
+    private final PackLocator packs;
+
+    public InstrumentedRepository(BaseRepositoryBuilder<?, ?> options) throws IOException {
+        super(options);
+        this.packs = new PackLocator(getObjectDatabase());
+    }
+
+    @Override
+    public ObjectReader newObjectReader() {
+        return new InstrumentedObjectReader(super.newObjectReader(), packs);
+    }
+
+    @Override
+    public ObjectInserter newObjectInserter() {
+        return new InstrumentedObjectInserter(super.newObjectInserter(), packs);
+    }
+
+    @Override
+    public RefUpdate.Result update(RefUpdate update, RevWalk walk) throws IOException {
+        if (FLIGHT_RECORDER) {
+            return FlightRecorderEvents.update(update, walk);
+        }
+        return walk != null ? update.update(walk) : update.update();
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, InstrumentedRepository.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
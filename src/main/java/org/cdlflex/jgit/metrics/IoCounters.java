@@ -0,0 +1,21 @@
+package org.cdlflex.jgit.metrics;
+
+/**
+ * Running totals of the object I/O of the current thread, kept by the counting readers and inserters of an
+ * {@link InstrumentedRepository} and attributed to operations by {@link MetricsRegistry#record}.
+ */
+final class IoCounters {
+
+    private static final ThreadLocal<IoCounters> CURRENT = ThreadLocal.withInitial(IoCounters::new);
+
+    long bytesRead;
+    long bytesWritten;
+    long objectsInserted;
+
+    private IoCounters() {
+    }
+
+    static IoCounters current() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,94 @@
+package org.cdlflex.jgit.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes the operations of a {@link MetricsRegistry} as MBeans named
+ * {@code org.cdlflex.jgit:type=Operation,scope=<scope>,name=<operation>}.
+ * <p>
+ * The MBeans are registered in the platform MBean server by default, which opens no port: they can be read in-process
+ * or by attaching JConsole or VisualVM to the local JVM. Operations recorded later are registered as they appear.
+ */
+public class JmxExporter implements MetricsRegistry.Listener, AutoCloseable {
+
+    public static final String DOMAIN = "org.cdlflex.jgit";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxExporter.class);
+
+    private final MetricsRegistry registry;
+    private final String scope;
+    private final MBeanServer server;
+    private final Set<ObjectName> registered = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Exports to the platform MBean server.
+     *
+     * @param registry the registry to export
+     * @param scope distinguishes registries in one JVM, for example the name of the repository
+     */
+    public JmxExporter(MetricsRegistry registry, String scope) {
+        this(registry, scope, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Exports to the given MBean server and registers all operations known so far.
+     *
+     * @param registry the registry to export
+     * @param scope distinguishes registries in one JVM, for example the name of the repository
+     * @param server the MBean server
+     */
+    public JmxExporter(MetricsRegistry registry, String scope, MBeanServer server) {
+        this.registry = registry;
+        this.scope = scope;
+        this.server = server;
+        registry.addListener(this);
+    }
+
+    /**
+     * Returns the name the MBean of an operation is registered under.
+     *
+     * @param operation the name of the operation
+     * @return the object name
+     * @throws MalformedObjectNameException never, names are quoted
+     */
+    public ObjectName getObjectName(String operation) throws MalformedObjectNameException {
+        return new ObjectName(DOMAIN + ":type=Operation,scope=" + ObjectName.quote(scope) + ",name="
+                + ObjectName.quote(operation));
+    }
+
+    @Override
+    public void operationAdded(OperationMetrics metrics) {
+        try {
+            ObjectName name = getObjectName(metrics.getName());
+            server.registerMBean(metrics, name);
+            registered.add(name);
+        } catch (JMException e) {
+            LOGGER.warn("Could not register metrics of {}", metrics.getName(), e);
+        }
+    }
+
+    /**
+     * Stops exporting and unregisters all MBeans.
+     */
+    @Override
+    public void close() {
+        registry.removeListener(this);
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                LOGGER.warn("Could not unregister {}", name, e);
+            }
+        }
+        registered.clear();
+    }
+}
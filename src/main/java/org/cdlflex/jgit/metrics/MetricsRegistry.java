@@ -0,0 +1,135 @@
+package org.cdlflex.jgit.metrics;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records latency, object I/O and allocations of named operations, such as the porcelain commands an application
+ * runs.
+ * <p>
+ * Wrap each operation in {@link #record(String, Operation)}; the first call with a name creates its
+ * {@link OperationMetrics}. Exporters plug in as {@link Listener}s and are told about every operation, the
+ * {@link JmxExporter} publishes them as MBeans. Nested operations are recorded each on their own, the outer operation
+ * includes the work of the inner ones.
+ */
+public class MetricsRegistry {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Runs an operation and records its metrics, also when it fails.
+     *
+     * @param name the name of the operation
+     * @param operation the work to measure, on the calling thread
+     * @param <T> the result type
+     * @return the result of the operation
+     * @throws IOException when the operation does
+     * @throws GitAPIException when the operation does
+     */
+    public <T> T record(String name, Operation<T> operation) throws IOException, GitAPIException {
+        OperationMetrics metrics = getOperation(name);
+        IoCounters counters = IoCounters.current();
+        long read = counters.bytesRead;
+        long written = counters.bytesWritten;
+        long inserted = counters.objectsInserted;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = operation.call();
+            failed = false;
+            return result;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            metrics.record(nanos, failed, counters.bytesRead - read, counters.bytesWritten - written,
+                    counters.objectsInserted - inserted, allocatedBytes() - allocated);
+        }
+    }
+
+    /**
+     * Returns the metrics of an operation, creating them if needed.
+     *
+     * @param name the name of the operation
+     * @return the metrics
+     */
+    public OperationMetrics getOperation(String name) {
+        OperationMetrics metrics = operations.get(name);
+        if (metrics == null) {
+            OperationMetrics created = new OperationMetrics(name);
+            metrics = operations.putIfAbsent(name, created);
+            if (metrics == null) {
+                metrics = created;
+                for (Listener listener : listeners) {
+                    listener.operationAdded(created);
+                }
+            }
+        }
+        return metrics;
+    }
+
+    public Collection<OperationMetrics> getOperations() {
+        return Collections.unmodifiableCollection(operations.values());
+    }
+
+    /**
+     * Adds a listener and tells it about all operations known so far.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        for (OperationMetrics metrics : operations.values()) {
+            listener.operationAdded(metrics);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Work whose metrics are recorded.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface Operation<T> {
+
+        T call() throws IOException, GitAPIException;
+    }
+
+    /**
+     * Gets notified of new operations, to export their metrics.
+     */
+    public interface Listener {
+
+        /**
+         * Called once for every operation, on the thread that records it first.
+         *
+         * @param metrics the metrics of the new operation
+         */
+        void operationAdded(OperationMetrics metrics);
+    }
+}
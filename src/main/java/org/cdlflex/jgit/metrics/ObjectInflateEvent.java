@@ -0,0 +1,36 @@
+package org.cdlflex.jgit.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for reading the content of an opened object: {@code getBytes}, {@code getCachedBytes} or
+ * reading an object stream up to its close. Large objects are only inflated here, small ones already were by
+ * {@link ObjectOpenEvent}.
+ */
+@Name("org.cdlflex.jgit.ObjectInflate")
+@Label("Object Inflate")
+@Category({ "JGit", "Object Database" })
+@Description("Reading the content of an opened object")
+@Threshold("1 ms")
+class ObjectInflateEvent extends Event {
+
+    @Label("Object Id")
+    String objectId;
+
+    @Label("Object Type")
+    String objectType;
+
+    @Label("Bytes")
+    @Description("Inflated bytes handed to the caller")
+    @DataAmount
+    long bytes;
+
+    @Label("Streamed")
+    boolean streamed;
+}
@@ -0,0 +1,51 @@
+package org.cdlflex.jgit.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for opening an object through an {@link InstrumentedRepository}.
+ * <p>
+ * Its duration includes reading the object from its pack and, for objects below the streaming threshold, resolving
+ * the delta chain and inflating it. Pack windows that had to be loaded show up as {@code jdk.FileRead} events on the
+ * pack file within this event. The pack fields are only looked up for events that are committed.
+ */
+@Name("org.cdlflex.jgit.ObjectOpen")
+@Label("Object Open")
+@Category({ "JGit", "Object Database" })
+@Description("Opening an object, including delta resolution and inflation of small objects")
+@Threshold("1 ms")
+class ObjectOpenEvent extends Event {
+
+    @Label("Object Id")
+    String objectId;
+
+    @Label("Object Type")
+    String objectType;
+
+    @Label("Size")
+    @Description("Inflated size of the object")
+    @DataAmount
+    long size;
+
+    @Label("Pack")
+    @Description("Name of the pack holding the object, null for a loose object")
+    String pack;
+
+    @Label("Pack Offset")
+    long packOffset;
+
+    @Label("Compressed Size")
+    @Description("Bytes the object takes in the pack, header and delta base reference included")
+    @DataAmount
+    long compressedSize;
+
+    @Label("Delta Depth")
+    @Description("Number of deltas applied to reach the object, 0 if it is stored whole")
+    int deltaDepth;
+}
@@ -0,0 +1,109 @@
+package org.cdlflex.jgit.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of one named operation: a latency histogram and totals of the work all its executions did.
+ * <p>
+ * Bytes read and written are the uncompressed sizes of the objects opened and inserted through an
+ * {@link InstrumentedRepository}, they stay 0 for other repositories. Allocated bytes are measured per thread where the
+ * JVM supports it.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder objectsInserted = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos, boolean failed, long read, long written, long inserted, long allocated) {
+        latency.record(nanos);
+        if (failed) {
+            failures.increment();
+        }
+        bytesRead.add(read);
+        bytesWritten.add(written);
+        objectsInserted.add(inserted);
+        allocatedBytes.add(allocated);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latency.getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getObjectsInserted() {
+        return objectsInserted.sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d calls, mean %.3f ms, p99 %.3f ms, %d bytes read, %d bytes written, "
+                + "%d objects inserted, %d bytes allocated", name, getCount(), getMeanMillis(), getP99Millis(),
+                getBytesRead(), getBytesWritten(), getObjectsInserted(), getAllocatedBytes());
+    }
+}
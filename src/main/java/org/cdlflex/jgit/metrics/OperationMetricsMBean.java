@@ -0,0 +1,31 @@
+package org.cdlflex.jgit.metrics;
+
+/**
+ * The attributes of an {@link OperationMetrics} as exported by the {@link JmxExporter}.
+ */
+public interface OperationMetricsMBean {
+
+    String getName();
+
+    long getCount();
+
+    long getFailures();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getObjectsInserted();
+
+    long getAllocatedBytes();
+}
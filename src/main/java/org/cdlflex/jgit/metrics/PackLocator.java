@@ -0,0 +1,112 @@
+package org.cdlflex.jgit.metrics;
+
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackFile;
+import org.eclipse.jgit.internal.storage.file.PackIndex;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds where an object is stored for an {@link ObjectOpenEvent}: its pack, offset, compressed size and delta depth.
+ * <p>
+ * The pack index gives the offset; the compressed size is the distance to the next object, from an offset table built
+ * once per pack; the delta depth comes from following the object headers in the pack file. This reads the pack a
+ * second time, so it is only done for events that are committed.
+ */
+class PackLocator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackLocator.class);
+
+    private static final int OBJ_OFS_DELTA = 6;
+    private static final int OBJ_REF_DELTA = 7;
+    private static final int MAX_HEADER = 32;
+    private static final int MAX_DEPTH = 10000;
+    private static final int TRAILER = Constants.OBJECT_ID_LENGTH;
+
+    private final ObjectDirectory objects;
+    private final Map<File, long[]> offsets = new ConcurrentHashMap<>();
+
+    PackLocator(ObjectDirectory objects) {
+        this.objects = objects;
+    }
+
+    void locate(AnyObjectId objectId, ObjectOpenEvent event) {
+        try {
+            for (PackFile pack : objects.getPacks()) {
+                PackIndex index = pack.getIndex();
+                long offset = index.findOffset(objectId);
+                if (offset < 0) {
+                    continue;
+                }
+                File file = pack.getPackFile();
+                event.pack = pack.getPackName();
+                event.packOffset = offset;
+                event.compressedSize = nextOffset(file, index, offset) - offset;
+                event.deltaDepth = deltaDepth(file, index, offset);
+                return;
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not locate {}", objectId.name(), e);
+        }
+    }
+
+    private long nextOffset(File file, PackIndex index, long offset) {
+        long[] sorted = offsets.computeIfAbsent(file, f -> {
+            long[] all = new long[(int) index.getObjectCount()];
+            int i = 0;
+            for (PackIndex.MutableEntry entry : index) {
+                all[i++] = entry.getOffset();
+            }
+            Arrays.sort(all);
+            return all;
+        });
+        int position = Arrays.binarySearch(sorted, offset);
+        return position >= 0 && position + 1 < sorted.length ? sorted[position + 1] : file.length() - TRAILER;
+    }
+
+    private static int deltaDepth(File file, PackIndex index, long offset) throws IOException {
+        byte[] header = new byte[MAX_HEADER];
+        int depth = 0;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            while (depth < MAX_DEPTH) {
+                in.seek(offset);
+                in.read(header);
+                int p = 0;
+                int c = header[p++] & 0xff;
+                int type = (c >> 4) & 7;
+                while ((c & 0x80) != 0) {
+                    c = header[p++] & 0xff;
+                }
+                if (type == OBJ_OFS_DELTA) {
+                    c = header[p++] & 0xff;
+                    long distance = c & 0x7f;
+                    while ((c & 0x80) != 0) {
+                        c = header[p++] & 0xff;
+                        distance = ((distance + 1) << 7) + (c & 0x7f);
+                    }
+                    offset -= distance;
+                } else if (type == OBJ_REF_DELTA) {
+                    offset = index.findOffset(ObjectId.fromRaw(header, p));
+                    if (offset < 0) {
+                        // base in another pack, counted as one more step
+                        return depth + 1;
+                    }
+                } else {
+                    return depth;
+                }
+                depth++;
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,66 @@
+package org.cdlflex.jgit.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+
+/**
+ * Flight recorder event for a ref update, from taking the lock to writing the reflog.
+ * <p>
+ * JGit does not wait for ref locks, a held lock fails the update with {@code LOCK_FAILURE}; callers that retry show
+ * up as a series of events. Only updates run through {@link #update(RefUpdate, RevWalk)} are recorded, which are the
+ * ones of the commit writers of this project on an {@link InstrumentedRepository}.
+ */
+@Name("org.cdlflex.jgit.RefUpdate")
+@Label("Ref Update")
+@Category({ "JGit", "Refs" })
+@Description("Updating a ref, including lock and reflog")
+public class RefUpdateEvent extends Event {
+
+    @Label("Ref")
+    String refName;
+
+    @Label("Old Id")
+    String oldId;
+
+    @Label("New Id")
+    String newId;
+
+    @Label("Result")
+    String result;
+
+    @Label("Lock Failure")
+    boolean lockFailure;
+
+    /**
+     * Runs the update and records it.
+     *
+     * @param update the prepared update
+     * @param walk the walk to check fast-forwards with, null to let the update open its own
+     * @return the result of the update
+     * @throws IOException when the update does
+     */
+    public static RefUpdate.Result update(RefUpdate update, RevWalk walk) throws IOException {
+        RefUpdateEvent event = new RefUpdateEvent();
+        event.begin();
+        RefUpdate.Result result = walk != null ? update.update(walk) : update.update();
+        event.end();
+        if (event.shouldCommit()) {
+            event.refName = update.getName();
+            ObjectId oldId = update.getOldObjectId();
+            event.oldId = oldId != null ? oldId.name() : null;
+            event.newId = update.getNewObjectId() != null ? update.getNewObjectId().name() : null;
+            event.result = result.name();
+            event.lockFailure = result == RefUpdate.Result.LOCK_FAILURE;
+            event.commit();
+        }
+        return result;
+    }
+}
@@ -1,8 +1,12 @@
 package org.cdlflex.jgit;
 
+import org.cdlflex.jgit.history.PathHistoryIndex;
+import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.rules.TemporaryFolder;
@@ -13,15 +17,51 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
+/**
+ * Base class of the tests, giving each test its own repository.
+ * <p>
+ * Tests may run in parallel, in one JVM and across forks: all state is kept per test instance, the user and system
+ * git configuration is hidden by an {@link IsolatedSystemReader}, and the repository is closed after each test so that
+ * no pack of a deleted repository stays open in JGit's shared {@code WindowCache}.
+ */
 public abstract class AbstractJGitTest {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractJGitTest.class);
 
+    static {
+        IsolatedSystemReader.install();
+    }
+
     @Rule
-    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    public TemporaryFolder temporaryFolder;
+
+    protected final RepositoryBackend backend;
 
     protected File repositoryFolder;
     protected Repository repository;
+    protected Git git;
+
+    /**
+     * Optional index that {@link #commitAllChanges(String)} keeps up to date, null unless a test opens one.
+     */
+    protected PathHistoryIndex pathHistoryIndex;
+
+    /**
+     * Uses the backend selected with the {@value RepositoryBackend#PROPERTY} system property.
+     */
+    protected AbstractJGitTest() {
+        this(RepositoryBackend.fromSystemProperty());
+    }
+
+    /**
+     * Uses the given backend, for tests that depend on one or run on all of them.
+     *
+     * @param backend where the repository is kept
+     */
+    protected AbstractJGitTest(RepositoryBackend backend) {
+        this.backend = backend;
+        this.temporaryFolder = new TemporaryFolder(backend.getTemporaryRoot());
+    }
 
     /**
      * Initializes a git repository correctly.
@@ -31,9 +71,33 @@ public abstract class AbstractJGitTest {
      */
     @Before
     public void init() throws IOException, GitAPIException {
-        repositoryFolder = temporaryFolder.newFolder(".git");
-        repository = new FileRepositoryBuilder().setGitDir(repositoryFolder).build();
-        repository.create();
+        RepositoryTemplate template = getTemplate();
+        repositoryFolder = new File(temporaryFolder.getRoot(), ".git");
+        repository = template != null ? template.newRepository(backend, temporaryFolder.getRoot())
+                : backend.create(temporaryFolder.getRoot());
+        git = new Git(repository);
+    }
+
+    /**
+     * Closes the repository, releasing its packs before the temporary folder is deleted.
+     */
+    @After
+    public void close() {
+        if (git != null) {
+            git.close();
+        }
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    /**
+     * Returns the history every test of the class starts from.
+     *
+     * @return the template, null to start from an empty repository
+     */
+    protected RepositoryTemplate getTemplate() {
+        return null;
     }
 
     protected File createTestFile(String name) throws IOException {
@@ -53,4 +117,31 @@ public abstract class AbstractJGitTest {
             writer.write(content);
         }
     }
+
+    protected Ref checkout(String name) throws GitAPIException {
+        Ref ref = git.checkout().setName(name).call();
+        LOGGER.info("Checking out {}", ref.getName());
+        return ref;
+    }
+
+    protected Ref createBranch(String name) throws GitAPIException {
+        Ref branchRef = git.branchCreate().setName(name).call();
+        LOGGER.info("Creating branch {}", branchRef.getName());
+        return branchRef;
+    }
+
+    protected File createFile(String name, String content) throws IOException, GitAPIException {
+        File exampleFile = createTestFile(name);
+        writeToFile(exampleFile, content.getBytes());
+        return exampleFile;
+    }
+
+    protected RevCommit commitAllChanges(String message) throws IOException, GitAPIException {
+        git.add().addFilepattern(".").call();
+        RevCommit commit = git.commit().setMessage(message).call();
+        if (pathHistoryIndex != null) {
+            pathHistoryIndex.update(commit);
+        }
+        return commit;
+    }
 }
@@ -0,0 +1,420 @@
+package org.cdlflex.jgit;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase;
+import org.eclipse.jgit.internal.storage.dfs.DfsOutputStream;
+import org.eclipse.jgit.internal.storage.dfs.DfsPackDescription;
+import org.eclipse.jgit.internal.storage.dfs.DfsReaderOptions;
+import org.eclipse.jgit.internal.storage.dfs.DfsRefDatabase;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepository;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.internal.storage.dfs.ReadableChannel;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RepositoryState;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.RefList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link InMemoryRepository} with a working tree, so the porcelain commands can be used on it.
+ * <p>
+ * Objects, refs and the config live in memory; nothing is fsynced. JGit reads the working tree and the index through
+ * {@link File}, so those two stay in a directory, which the fixture places on a memory backed file system where one is
+ * available. The merge, cherry-pick and revert state that file repositories keep next to the index ({@code MERGE_HEAD},
+ * {@code MERGE_MSG}, {@code ORIG_HEAD}, ...) is kept in fields.
+ * <p>
+ * The ref database of {@link InMemoryRepository} compares a symbolic ref by the id its target had when it was linked,
+ * which is none for the initial {@code HEAD}, so switching or detaching {@code HEAD} always fails; this repository
+ * uses its own that compares symbolic refs by their target name.
+ * <p>
+ * Packs are never modified once written, so {@link #copy(File)} shares them with the copy instead of copying them.
+ */
+public class InMemoryWorktreeRepository extends InMemoryRepository {
+
+    private final File workTree;
+    private final File indexFile;
+    private final WorktreeRefDatabase refDatabase;
+    private final WorktreeObjDatabase objectDatabase;
+
+    private List<ObjectId> mergeHeads;
+    private String mergeCommitMessage;
+    private String squashCommitMessage;
+    private ObjectId origHead;
+    private ObjectId cherryPickHead;
+    private ObjectId revertHead;
+
+    /**
+     * Creates an empty repository.
+     *
+     * @param workTree the working tree, the index is kept in its {@code .git} folder
+     */
+    public InMemoryWorktreeRepository(File workTree) {
+        super(new DfsRepositoryDescription(workTree.getName()));
+        this.workTree = workTree;
+        this.indexFile = new File(new File(workTree, ".git"), "index");
+        this.refDatabase = new WorktreeRefDatabase(this);
+        this.objectDatabase = new WorktreeObjDatabase(this);
+    }
+
+    /**
+     * Creates a repository with the objects and refs of this one. The copy shares the packs of this repository and
+     * starts with an empty index; its own changes are not visible here and vice versa.
+     *
+     * @param copyWorkTree the working tree of the copy
+     * @return the copy
+     * @throws IOException when the index folder cannot be created
+     */
+    public InMemoryWorktreeRepository copy(File copyWorkTree) throws IOException {
+        InMemoryWorktreeRepository copy = new InMemoryWorktreeRepository(copyWorkTree);
+        copy.objectDatabase.packs = new ArrayList<>(objectDatabase.listPacks());
+        copy.refDatabase.refs.putAll(refDatabase.refs);
+        copy.createIndexFolder();
+        return copy;
+    }
+
+    @Override
+    public DfsRefDatabase getRefDatabase() {
+        return refDatabase;
+    }
+
+    @Override
+    public DfsObjDatabase getObjectDatabase() {
+        return objectDatabase;
+    }
+
+    @Override
+    public void create(boolean bare) throws IOException {
+        super.create(bare);
+        createIndexFolder();
+    }
+
+    @Override
+    public boolean isBare() {
+        return false;
+    }
+
+    @Override
+    public File getWorkTree() {
+        return workTree;
+    }
+
+    @Override
+    public FS getFS() {
+        return FS.DETECTED;
+    }
+
+    @Override
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    @Override
+    public RepositoryState getRepositoryState() {
+        try {
+            if (mergeHeads != null) {
+                return DirCache.read(this).hasUnmergedPaths() ? RepositoryState.MERGING
+                        : RepositoryState.MERGING_RESOLVED;
+            } else if (cherryPickHead != null) {
+                return DirCache.read(this).hasUnmergedPaths() ? RepositoryState.CHERRY_PICKING
+                        : RepositoryState.CHERRY_PICKING_RESOLVED;
+            } else if (revertHead != null) {
+                return DirCache.read(this).hasUnmergedPaths() ? RepositoryState.REVERTING
+                        : RepositoryState.REVERTING_RESOLVED;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the index of " + this, e);
+        }
+        return RepositoryState.SAFE;
+    }
+
+    @Override
+    public List<ObjectId> readMergeHeads() {
+        return mergeHeads != null ? new ArrayList<>(mergeHeads) : null;
+    }
+
+    @Override
+    public void writeMergeHeads(List<? extends ObjectId> heads) {
+        mergeHeads = heads != null ? new ArrayList<>(heads) : null;
+    }
+
+    @Override
+    public String readMergeCommitMsg() {
+        return mergeCommitMessage;
+    }
+
+    @Override
+    public void writeMergeCommitMsg(String message) {
+        mergeCommitMessage = message;
+    }
+
+    @Override
+    public String readSquashCommitMsg() {
+        return squashCommitMessage;
+    }
+
+    @Override
+    public void writeSquashCommitMsg(String message) {
+        squashCommitMessage = message;
+    }
+
+    @Override
+    public ObjectId readOrigHead() {
+        return origHead;
+    }
+
+    @Override
+    public void writeOrigHead(ObjectId head) {
+        origHead = head;
+    }
+
+    @Override
+    public ObjectId readCherryPickHead() {
+        return cherryPickHead;
+    }
+
+    @Override
+    public void writeCherryPickHead(ObjectId head) {
+        cherryPickHead = head;
+    }
+
+    @Override
+    public ObjectId readRevertHead() {
+        return revertHead;
+    }
+
+    @Override
+    public void writeRevertHead(ObjectId head) {
+        revertHead = head;
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryWorktreeRepository[" + workTree + "]";
+    }
+
+    private void createIndexFolder() throws IOException {
+        if (!indexFile.getParentFile().isDirectory() && !indexFile.getParentFile().mkdirs()) {
+            throw new IOException("Could not create " + indexFile.getParentFile());
+        }
+    }
+
+    private static class WorktreeRefDatabase extends DfsRefDatabase {
+
+        private final ConcurrentMap<String, Ref> refs = new ConcurrentHashMap<>();
+
+        WorktreeRefDatabase(DfsRepository repository) {
+            super(repository);
+        }
+
+        @Override
+        protected RefCache scanAllRefs() {
+            RefList.Builder<Ref> ids = new RefList.Builder<>();
+            RefList.Builder<Ref> symbolic = new RefList.Builder<>();
+            for (Ref ref : refs.values()) {
+                if (ref.isSymbolic()) {
+                    symbolic.add(ref);
+                }
+                ids.add(ref);
+            }
+            ids.sort();
+            symbolic.sort();
+            return new RefCache(ids.toRefList(), symbolic.toRefList());
+        }
+
+        @Override
+        protected boolean compareAndPut(Ref oldRef, Ref newRef) {
+            // a detaching update expects the resolved id of the symbolic ref in a NEW ref
+            if (oldRef == null || oldRef.getStorage() == Ref.Storage.NEW && oldRef.getObjectId() == null) {
+                return refs.putIfAbsent(newRef.getName(), newRef) == null;
+            }
+            Ref current = refs.get(newRef.getName());
+            return current != null && sameValue(current, oldRef) && refs.replace(newRef.getName(), current, newRef);
+        }
+
+        @Override
+        protected boolean compareAndRemove(Ref oldRef) {
+            Ref current = refs.get(oldRef.getName());
+            return current != null && sameValue(current, oldRef) && refs.remove(oldRef.getName(), current);
+        }
+
+        /**
+         * Compares the stored ref with the one the update expects. Symbolic refs are expected by target name, a
+         * detaching update expects the id the symbolic ref currently resolves to.
+         */
+        private boolean sameValue(Ref current, Ref expected) {
+            if (expected.isSymbolic()) {
+                return current.isSymbolic() && current.getTarget().getName().equals(expected.getTarget().getName());
+            }
+            return Objects.equals(resolve(current), expected.getObjectId());
+        }
+
+        private ObjectId resolve(Ref ref) {
+            for (int depth = 0; ref != null && ref.isSymbolic() && depth < 5; depth++) {
+                ref = refs.get(ref.getTarget().getName());
+            }
+            return ref != null && !ref.isSymbolic() ? ref.getObjectId() : null;
+        }
+    }
+
+    private static class WorktreeObjDatabase extends DfsObjDatabase {
+
+        private static final AtomicInteger PACK_ID = new AtomicInteger();
+
+        private List<DfsPackDescription> packs = new ArrayList<>();
+
+        WorktreeObjDatabase(DfsRepository repository) {
+            super(repository, new DfsReaderOptions());
+        }
+
+        @Override
+        protected synchronized List<DfsPackDescription> listPacks() {
+            return packs;
+        }
+
+        @Override
+        protected DfsPackDescription newPack(PackSource source) {
+            return new MemoryPack("pack-" + PACK_ID.incrementAndGet() + "-" + source.name(),
+                    getRepository().getDescription()).setPackSource(source);
+        }
+
+        @Override
+        protected synchronized void commitPackImpl(Collection<DfsPackDescription> added,
+                Collection<DfsPackDescription> replaced) {
+            List<DfsPackDescription> updated = new ArrayList<>(added);
+            updated.addAll(packs);
+            if (replaced != null) {
+                updated.removeAll(replaced);
+            }
+            packs = updated;
+        }
+
+        @Override
+        protected void rollbackPack(Collection<DfsPackDescription> descriptions) {
+            // nothing to clean up, uncommitted packs are only referenced by the inserter
+        }
+
+        @Override
+        protected ReadableChannel openFile(DfsPackDescription description, PackExt ext) throws FileNotFoundException {
+            byte[] data = ((MemoryPack) description).files.get(ext);
+            if (data == null) {
+                throw new FileNotFoundException(description.getFileName(ext));
+            }
+            return new ByteArrayReadableChannel(data);
+        }
+
+        @Override
+        protected DfsOutputStream writeFile(DfsPackDescription description, PackExt ext) {
+            return new MemoryOutputStream(((MemoryPack) description).files, ext);
+        }
+    }
+
+    private static class MemoryPack extends DfsPackDescription {
+
+        final Map<PackExt, byte[]> files = new ConcurrentHashMap<>();
+
+        MemoryPack(String name, DfsRepositoryDescription repository) {
+            super(repository, name);
+        }
+    }
+
+    private static class MemoryOutputStream extends DfsOutputStream {
+
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final Map<PackExt, byte[]> files;
+        private final PackExt ext;
+
+        MemoryOutputStream(Map<PackExt, byte[]> files, PackExt ext) {
+            this.files = files;
+            this.ext = ext;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            data.write(buffer, offset, length);
+        }
+
+        @Override
+        public int read(long position, ByteBuffer buffer) {
+            byte[] written = data.toByteArray();
+            int n = (int) Math.min(buffer.remaining(), written.length - position);
+            if (n <= 0) {
+                return -1;
+            }
+            buffer.put(written, (int) position, n);
+            return n;
+        }
+
+        @Override
+        public void close() {
+            files.put(ext, data.toByteArray());
+        }
+    }
+
+    private static class ByteArrayReadableChannel implements ReadableChannel {
+
+        private final byte[] data;
+        private int position;
+        private boolean open = true;
+
+        ByteArrayReadableChannel(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read(ByteBuffer buffer) {
+            int n = Math.min(buffer.remaining(), data.length - position);
+            if (n <= 0) {
+                return -1;
+            }
+            buffer.put(data, position, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public void position(long newPosition) {
+            position = (int) newPosition;
+        }
+
+        @Override
+        public long size() {
+            return data.length;
+        }
+
+        @Override
+        public int blockSize() {
+            return 0;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.cdlflex.jgit;
+
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.SystemReader;
+
+/**
+ * Hides the user and system git configuration from the tests.
+ * <p>
+ * JGit reads {@code ~/.gitconfig} and {@code /etc/gitconfig} through the JVM wide {@link SystemReader}, and writes them
+ * back when a command changes a global setting. With this reader every repository sees empty, unsaved global
+ * configurations, so results do not depend on the machine and tests running in parallel cannot affect each other
+ * through them. Everything else is delegated to the reader that was installed before.
+ */
+public class IsolatedSystemReader extends SystemReader {
+
+    private final SystemReader delegate;
+
+    private IsolatedSystemReader(SystemReader delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Installs the reader unless it already is.
+     */
+    public static synchronized void install() {
+        if (!(SystemReader.getInstance() instanceof IsolatedSystemReader)) {
+            SystemReader.setInstance(new IsolatedSystemReader(SystemReader.getInstance()));
+        }
+    }
+
+    @Override
+    public FileBasedConfig openUserConfig(Config parent, FS fs) {
+        return new EmptyConfig(parent, fs);
+    }
+
+    @Override
+    public FileBasedConfig openSystemConfig(Config parent, FS fs) {
+        return new EmptyConfig(parent, fs);
+    }
+
+    @Override
+    public String getHostname() {
+        return delegate.getHostname();
+    }
+
+    @Override
+    public String getenv(String variable) {
+        return delegate.getenv(variable);
+    }
+
+    @Override
+    public String getProperty(String key) {
+        return delegate.getProperty(key);
+    }
+
+    @Override
+    public long getCurrentTime() {
+        return delegate.getCurrentTime();
+    }
+
+    @Override
+    public int getTimezone(long when) {
+        return delegate.getTimezone(when);
+    }
+
+    private static class EmptyConfig extends FileBasedConfig {
+
+        EmptyConfig(Config parent, FS fs) {
+            super(parent, null, fs);
+        }
+
+        @Override
+        public void load() {
+            // nothing to load
+        }
+
+        @Override
+        public void save() {
+            // never written
+        }
+
+        @Override
+        public boolean isOutdated() {
+            return false;
+        }
+    }
+}
@@ -1,23 +1,20 @@
 package org.cdlflex.jgit;
 
+import org.cdlflex.jgit.history.FileHistoryReader;
 import org.eclipse.jgit.api.CheckoutCommand;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.dircache.DirCacheEntry;
-import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.merge.MergeStrategy;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevTree;
-import org.eclipse.jgit.treewalk.TreeWalk;
-import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -32,8 +29,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
- * Test class showing JGit API usage examples.
+ * Test class showing JGit API usage examples. Every example runs on each {@link RepositoryBackend}.
  */
+@RunWith(Parameterized.class)
 public class JGitExampleTest extends AbstractJGitTest {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JGitExampleTest.class);
@@ -43,19 +41,27 @@ public class JGitExampleTest extends AbstractJGitTest {
     private static final String FILE_CONTENT = "1" + System.lineSeparator() + "b" + System.lineSeparator() + "3";
     private static final String OTHER_CONTENT = "1" + System.lineSeparator() + "a(main)";
 
-    private Git git;
+    // removing the initial commit causes tests to fail, it is important!
+    private static final RepositoryTemplate INITIAL_COMMIT = new RepositoryTemplate("initial-commit",
+            git -> git.commit().setMessage(COMMIT_MSG).call());
+
+    public JGitExampleTest(RepositoryBackend backend) {
+        super(backend);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> backends() {
+        return RepositoryBackend.parameters();
+    }
 
     /**
-     * Initializes a new Git object.
+     * Starts every example from a repository with an initial empty commit on master.
      *
-     * @throws IOException     file related error
-     * @throws GitAPIException JGit related error
+     * @return the template with the initial commit
      */
-    @Before public void setUp() throws IOException, GitAPIException {
-        git = new Git(repository);
-        git.getRepository().getBranch();
-        // removing this causes tests to fail, initial commit is important!
-        git.commit().setMessage(COMMIT_MSG).call();
+    @Override
+    protected RepositoryTemplate getTemplate() {
+        return INITIAL_COMMIT;
     }
 
     /**
@@ -197,8 +203,11 @@ public class JGitExampleTest extends AbstractJGitTest {
 
         List<String> contents = new ArrayList<>();
 
-        while (commIterator.hasNext()) {
-            contents.add(getFileRevisionContent(commIterator.next(), FILENAME));
+        //share one object reader across all revisions instead of opening one per commit
+        try (FileHistoryReader historyReader = new FileHistoryReader(repository)) {
+            while (commIterator.hasNext()) {
+                contents.add(historyReader.getContent(commIterator.next(), FILENAME));
+            }
         }
 
         assertEquals("test3", contents.get(0));
@@ -206,24 +215,6 @@ public class JGitExampleTest extends AbstractJGitTest {
         assertEquals("test", contents.get(2));
     }
 
-    /**
-     * Returns the content of the file located at path within the specified commit.
-     */
-    private String getFileRevisionContent(RevCommit commit, String path) throws IOException {
-        ObjectReader reader = repository.newObjectReader();
-
-        try {
-            RevTree tree = commit.getTree();
-            //move to the specified path within the commit
-            TreeWalk treeWalk = TreeWalk.forPath(reader, path, tree);
-
-            byte[] data = reader.open(treeWalk.getObjectId(0)).getBytes();
-            return new String(data, "UTF-8");
-        } finally {
-            reader.release();
-        }
-    }
-
     /**
      * Make two conflicting commits and assert that the result of the merge call is conflicting.
      *
@@ -290,30 +281,7 @@ public class JGitExampleTest extends AbstractJGitTest {
     }
 
     private String getFileContent(String fileName) throws IOException {
-        return Files.lines(temporaryFolder.getRoot().toPath().resolve(Paths.get(fileName)))
+        return Files.lines(repository.getWorkTree().toPath().resolve(Paths.get(fileName)))
                 .collect(Collectors.joining(System.lineSeparator()));
     }
-
-    private Ref checkout(String name) throws GitAPIException {
-        Ref ref = git.checkout().setName(name).call();
-        LOGGER.info("Checking out {}", ref.getName());
-        return ref;
-    }
-
-    private Ref createBranch(String name) throws GitAPIException {
-        Ref branchRef = git.branchCreate().setName(name).call();
-        LOGGER.info("Creating branch {}", branchRef.getName());
-        return branchRef;
-    }
-
-    private File createFile(String name, String content) throws IOException, GitAPIException {
-        File exampleFile = createTestFile(name);
-        writeToFile(exampleFile, content.getBytes());
-        return exampleFile;
-    }
-
-    private RevCommit commitAllChanges(String message) throws GitAPIException {
-        git.add().addFilepattern(".").call();
-        return git.commit().setMessage(message).call();
-    }
 }
@@ -0,0 +1,180 @@
+package org.cdlflex.jgit;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Where {@link AbstractJGitTest} keeps the repository of a test.
+ * <p>
+ * Tests that work on either backend can pick the backend with the {@code jgit.test.backend} system property
+ * ({@code disk} or {@code memory}), or run on both with a parameterized runner as {@code JGitExampleTest} does.
+ */
+public enum RepositoryBackend {
+
+    /**
+     * A file repository in a temporary folder, as created by {@code git init}.
+     */
+    DISK {
+        @Override
+        public Repository create(File workTree) throws IOException {
+            Repository repository = new FileRepositoryBuilder().setGitDir(new File(workTree, ".git")).build();
+            repository.create();
+            return repository;
+        }
+
+        /**
+         * Packs all objects and refs, so copies only need to link the pack and copy {@code packed-refs}.
+         */
+        @Override
+        public void prepareTemplate(Repository template) throws IOException {
+            GC gc = new GC((FileRepository) template);
+            gc.setExpireAgeMillis(0);
+            try {
+                gc.gc();
+            } catch (ParseException e) {
+                throw new IOException(e);
+            }
+        }
+
+        /**
+         * Hard links the packs of the template, falling back to copies where the file system cannot link, and copies
+         * {@code packed-refs} and {@code HEAD}.
+         */
+        @Override
+        public Repository copy(Repository template, File workTree) throws IOException {
+            Repository repository = create(workTree);
+            Path source = template.getDirectory().toPath();
+            Path target = repository.getDirectory().toPath();
+            Path packs = source.resolve("objects").resolve("pack");
+            if (Files.isDirectory(packs)) {
+                Path targetPacks = Files.createDirectories(target.resolve("objects").resolve("pack"));
+                try (Stream<Path> files = Files.list(packs)) {
+                    for (Path pack : (Iterable<Path>) files::iterator) {
+                        link(pack, targetPacks.resolve(pack.getFileName()));
+                    }
+                }
+            }
+            for (String file : new String[] { Constants.PACKED_REFS, Constants.HEAD }) {
+                if (Files.exists(source.resolve(file))) {
+                    Files.copy(source.resolve(file), target.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return repository;
+        }
+
+        @Override
+        public File getTemporaryRoot() {
+            return null;
+        }
+
+        private void link(Path existing, Path link) throws IOException {
+            try {
+                Files.createLink(link, existing);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(existing, link);
+            }
+        }
+    },
+
+    /**
+     * Objects and refs in memory, working tree and index on a memory backed file system if there is one.
+     */
+    MEMORY {
+        @Override
+        public Repository create(File workTree) throws IOException {
+            Repository repository = new InMemoryWorktreeRepository(workTree);
+            repository.create();
+            return repository;
+        }
+
+        @Override
+        public void prepareTemplate(Repository template) {
+            // in-memory packs are already immutable and shared by copies
+        }
+
+        @Override
+        public Repository copy(Repository template, File workTree) throws IOException {
+            return ((InMemoryWorktreeRepository) template).copy(workTree);
+        }
+
+        @Override
+        public File getTemporaryRoot() {
+            File shm = new File("/dev/shm");
+            return shm.isDirectory() && shm.canWrite() ? shm : null;
+        }
+    };
+
+    public static final String PROPERTY = "jgit.test.backend";
+
+    /**
+     * Creates an empty, non-bare repository.
+     *
+     * @param workTree the existing working tree directory
+     * @return the repository
+     * @throws IOException when the repository cannot be created
+     */
+    public abstract Repository create(File workTree) throws IOException;
+
+    /**
+     * Prepares a fully built repository for being copied with {@link #copy(Repository, File)}.
+     *
+     * @param template a repository created by this backend
+     * @throws IOException when the repository cannot be prepared
+     */
+    public abstract void prepareTemplate(Repository template) throws IOException;
+
+    /**
+     * Creates a repository with the objects and refs of a template, in time independent of the size of its history.
+     * The working tree and the index of the copy are empty.
+     *
+     * @param template a repository prepared with {@link #prepareTemplate(Repository)}
+     * @param workTree the existing working tree directory of the copy
+     * @return the copy
+     * @throws IOException when the copy cannot be created
+     */
+    public abstract Repository copy(Repository template, File workTree) throws IOException;
+
+    /**
+     * Returns the directory temporary working trees should be created in.
+     *
+     * @return the directory, or null for the default temporary directory
+     */
+    public abstract File getTemporaryRoot();
+
+    /**
+     * Returns the backend selected with the {@value #PROPERTY} system property.
+     *
+     * @return the selected backend, {@link #DISK} if none is set
+     */
+    public static RepositoryBackend fromSystemProperty() {
+        return valueOf(System.getProperty(PROPERTY, DISK.name()).toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the parameters of a parameterized test whose only constructor argument is the backend.
+     *
+     * @return one parameter array per backend
+     */
+    public static List<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (RepositoryBackend backend : values()) {
+            parameters.add(new Object[] { backend });
+        }
+        return parameters;
+    }
+}
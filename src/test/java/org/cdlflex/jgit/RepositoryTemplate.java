@@ -0,0 +1,106 @@
+package org.cdlflex.jgit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A named history that is built once per backend and JVM, and then copied for every test that starts from it.
+ * <p>
+ * Copies share the packs of the template (hard links on disk, the same pack buffers in memory) and get a copy of its
+ * refs, so creating one takes the same time whatever the size of the history; only the files of the checked out
+ * commit are written to the working tree. Declare templates as constants and return them from
+ * {@link AbstractJGitTest#getTemplate()}.
+ */
+public class RepositoryTemplate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryTemplate.class);
+
+    private final String name;
+    private final Builder builder;
+    private final Map<RepositoryBackend, Repository> templates = new EnumMap<>(RepositoryBackend.class);
+
+    /**
+     * Creates a template. Nothing is built before the first copy is requested.
+     *
+     * @param name the name of the history, used in log messages and folder names
+     * @param builder builds the history on an empty repository
+     */
+    public RepositoryTemplate(String name, Builder builder) {
+        this.name = name;
+        this.builder = builder;
+    }
+
+    /**
+     * Creates a repository with the history of this template and checks out its {@code HEAD}.
+     *
+     * @param backend where the repository is kept
+     * @param workTree the existing, empty working tree directory
+     * @return the new repository
+     * @throws IOException when the template or the copy cannot be created
+     * @throws GitAPIException when the template cannot be built or {@code HEAD} cannot be checked out
+     */
+    public Repository newRepository(RepositoryBackend backend, File workTree) throws IOException, GitAPIException {
+        Repository repository = backend.copy(getTemplate(backend), workTree);
+        if (repository.resolve(Constants.HEAD) != null) {
+            new Git(repository).reset().setMode(ResetCommand.ResetType.HARD).call();
+        }
+        return repository;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private synchronized Repository getTemplate(RepositoryBackend backend) throws IOException, GitAPIException {
+        Repository template = templates.get(backend);
+        if (template == null) {
+            long start = System.nanoTime();
+            File workTree = backend.getTemporaryRoot() != null
+                    ? Files.createTempDirectory(backend.getTemporaryRoot().toPath(), "template-" + name).toFile()
+                    : Files.createTempDirectory("template-" + name).toFile();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(workTree)));
+            template = backend.create(workTree);
+            builder.build(new Git(template));
+            backend.prepareTemplate(template);
+            templates.put(backend, template);
+            LOGGER.info("Built template {} on {} in {} ms", name, backend, (System.nanoTime() - start) / 1000000);
+        }
+        return template;
+    }
+
+    private static void delete(File directory) {
+        try {
+            FileUtils.delete(directory, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete template {}", directory, e);
+        }
+    }
+
+    /**
+     * Builds the history of a template.
+     */
+    @FunctionalInterface
+    public interface Builder {
+
+        /**
+         * Creates the commits, branches and tags of the template.
+         *
+         * @param git porcelain access to the empty template repository, which has a working tree
+         * @throws IOException when files cannot be written
+         * @throws GitAPIException when a git command fails
+         */
+        void build(Git git) throws IOException, GitAPIException;
+    }
+}
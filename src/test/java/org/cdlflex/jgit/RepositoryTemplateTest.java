@@ -0,0 +1,97 @@
+package org.cdlflex.jgit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that repositories copied from a {@link RepositoryTemplate} start with its history and are independent of each
+ * other, on each {@link RepositoryBackend}.
+ */
+@RunWith(Parameterized.class)
+public class RepositoryTemplateTest extends AbstractJGitTest {
+
+    private static final RepositoryTemplate TWO_BRANCHES = new RepositoryTemplate("two-branches", git -> {
+        File workTree = git.getRepository().getWorkTree();
+        for (int i = 0; i < 3; i++) {
+            try (FileOutputStream out = new FileOutputStream(new File(workTree, "test.txt"))) {
+                out.write(("master " + i).getBytes());
+            }
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("master " + i).call();
+        }
+        git.branchCreate().setName("feature").setStartPoint("HEAD~1").call();
+    });
+
+    public RepositoryTemplateTest(RepositoryBackend backend) {
+        super(backend);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> backends() {
+        return RepositoryBackend.parameters();
+    }
+
+    @Override
+    protected RepositoryTemplate getTemplate() {
+        return TWO_BRANCHES;
+    }
+
+    /**
+     * Asserts that the copy has the history, refs and checked out files of the template.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void newRepository_shouldHaveTemplateHistory() throws IOException, GitAPIException {
+        assertEquals("master", repository.getBranch());
+        assertEquals(repository.resolve("master~1"), repository.resolve("feature"));
+        int count = 0;
+        for (RevCommit commit : git.log().call()) {
+            assertEquals("master " + (2 - count++), commit.getFullMessage());
+        }
+        assertEquals(3, count);
+        assertEquals("master 2", new String(Files.readAllBytes(new File(repository.getWorkTree(), "test.txt")
+                .toPath())));
+        assertTrue(git.status().call().isClean());
+    }
+
+    /**
+     * Commits and deletes a branch in the copy and asserts that a second copy still has the template history.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void newRepository_changesInCopy_shouldNotAffectOtherCopies() throws IOException, GitAPIException {
+        createFile("test.txt", "changed");
+        RevCommit changed = commitAllChanges("changed");
+        git.branchDelete().setBranchNames("feature").setForce(true).call();
+        assertNull(repository.resolve("feature"));
+
+        Repository other = TWO_BRANCHES.newRepository(backend, temporaryFolder.newFolder("other"));
+        try {
+            assertEquals(changed.getParent(0), other.resolve("master"));
+            assertEquals(other.resolve("master~1"), other.resolve("feature"));
+            assertFalse(other.hasObject(changed));
+            assertEquals("master 2", new Git(other).log().setMaxCount(1).call().iterator().next()
+                    .getFullMessage());
+        } finally {
+            other.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.cdlflex.jgit.commit;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.RepositoryBackend;
+import org.cdlflex.jgit.history.FileHistoryReader;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackFile;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkImporterTest extends AbstractJGitTest {
+
+    /**
+     * Runs on disk, the test inspects the pack directory.
+     */
+    public BulkImporterTest() {
+        super(RepositoryBackend.DISK);
+    }
+
+    /**
+     * Imports a history with a branch, a rename and a merge and asserts that it is readable afterwards while no loose
+     * object was written.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void import_branchRenameMerge_shouldOnlyWritePacks() throws IOException, GitAPIException {
+        ObjectId base;
+        ObjectId feature;
+        ObjectId merge;
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            base = importer.newCommit("master").setMessage("base")
+                    .add("src/App.java", "v1".getBytes())
+                    .add("docs/readme.txt", "docs".getBytes())
+                    .write();
+            importer.resetBranch("feature", base);
+            feature = importer.newCommit("feature").setMessage("rename")
+                    .rename("src/App.java", "src/main/App.java")
+                    .write();
+            importer.newCommit("master").setMessage("docs").remove("docs").add("notes.txt", "notes".getBytes())
+                    .write();
+            merge = importer.newCommit("master").setMessage("merge").addMergeParent(feature)
+                    .rename("src/App.java", "src/main/App.java")
+                    .write();
+            assertEquals(4, importer.getCommitCount());
+        }
+
+        assertEquals(merge, repository.resolve("master"));
+        assertEquals(feature, repository.resolve("feature"));
+        assertNoLooseObjects();
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            RevWalk walk = new RevWalk(reader.getReader());
+            RevCommit mergeCommit = walk.parseCommit(merge);
+            assertEquals(2, mergeCommit.getParentCount());
+            assertEquals(feature, mergeCommit.getParent(1));
+            assertEquals("v1", reader.getContent(mergeCommit, "src/main/App.java"));
+            assertEquals("notes", reader.getContent(mergeCommit, "notes.txt"));
+            assertNull(reader.getBlobId(mergeCommit, "docs/readme.txt"));
+            assertNull(reader.getBlobId(mergeCommit, "src/App.java"));
+            assertEquals(base, walk.parseCommit(mergeCommit.getParent(0)).getParent(0));
+        }
+    }
+
+    /**
+     * Continues a history created through the porcelain API and asserts that the imported commits share its trees.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void import_onExistingBranch_shouldContinueHistory() throws IOException, GitAPIException {
+        createTestDirectory("lib");
+        createFile("lib/a.txt", "a");
+        createFile("b.txt", "b");
+        RevCommit initial = commitAllChanges("initial");
+
+        ObjectId imported;
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            assertEquals(initial, importer.getBranchTip("master"));
+            imported = importer.newCommit("master").setMessage("imported").add("b.txt", "b2".getBytes()).write();
+        }
+
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            RevCommit commit = new RevWalk(reader.getReader()).parseCommit(imported);
+            assertEquals(initial, commit.getParent(0));
+            assertEquals("a", reader.getContent(commit, "lib/a.txt"));
+            assertEquals("b2", reader.getContent(commit, "b.txt"));
+            assertEquals(2, reader.getCommits("b.txt").size());
+        }
+        assertTrue(new File(repositoryFolder, "objects/pack").list().length >= 2);
+    }
+
+    /**
+     * Fails a commit on an unborn branch and imports the same content twice, and asserts that the failed commit left
+     * no change behind and that objects already in the repository are not packed again.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void import_failedCommitAndExistingObjects_shouldNotLeaveOrRepeatChanges() throws IOException,
+            GitAPIException {
+        ObjectId first;
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            try {
+                importer.newCommit("master").add("failed.txt", "failed".getBytes()).rename("missing.txt", "x.txt")
+                        .write();
+                fail("rename of a missing path must fail");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            first = importer.newCommit("master").setMessage("first").add("a.txt", "a".getBytes()).write();
+        }
+        String[] packs = new File(repositoryFolder, "objects/pack").list();
+
+        ObjectId second;
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            second = importer.newCommit("master").setMessage("second").add("a.txt", "a".getBytes())
+                    .add("b.txt", "b".getBytes()).write();
+        }
+
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            RevCommit firstCommit = new RevWalk(reader.getReader()).parseCommit(first);
+            assertNull(reader.getBlobId(firstCommit, "failed.txt"));
+            assertEquals("a", reader.getContent(firstCommit, "a.txt"));
+        }
+        PackFile newPack = null;
+        for (PackFile pack : ((ObjectDirectory) repository.getObjectDatabase()).getPacks()) {
+            if (!Arrays.asList(packs).contains(pack.getPackFile().getName())) {
+                newPack = pack;
+            }
+        }
+        assertNotNull(newPack);
+        assertTrue(newPack.hasObject(second));
+        assertFalse(newPack.hasObject(blobId("a")));
+    }
+
+    private static ObjectId blobId(String content) {
+        return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, content.getBytes());
+    }
+
+    private void assertNoLooseObjects() {
+        for (String name : new File(repositoryFolder, "objects").list()) {
+            assertFalse("loose object directory " + name, name.matches("[0-9a-f]{2}"));
+        }
+    }
+}
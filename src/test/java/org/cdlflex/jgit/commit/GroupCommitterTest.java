@@ -0,0 +1,111 @@
+package org.cdlflex.jgit.commit;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.history.FileHistoryReader;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GroupCommitterTest extends AbstractJGitTest {
+
+    private static final int WRITERS = 16;
+    private static final int COMMITS_PER_WRITER = 10;
+
+    /**
+     * Commits from many threads at once and asserts that every caller gets its own commit and that the branch ends up
+     * with a linear history containing all of them.
+     *
+     * @throws Exception when a commit fails
+     */
+    @Test public void commit_concurrentWriters_shouldProduceLinearChain() throws Exception {
+        RevCommit initial = new InCoreCommitBuilder(repository).setBranch("master").add("init.txt", "init".getBytes())
+                .commit();
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<List<RevCommit>>> writers = new ArrayList<>();
+        try (GroupCommitter committer = new GroupCommitter(repository, "master")) {
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(executor.submit(() -> {
+                    List<RevCommit> commits = new ArrayList<>();
+                    for (int i = 0; i < COMMITS_PER_WRITER; i++) {
+                        commits.add(committer.commit(new InCoreCommitBuilder(repository)
+                                .setMessage("writer " + writer + " commit " + i)
+                                .add("writer" + writer + ".txt", ("content " + i).getBytes())));
+                    }
+                    return commits;
+                }));
+            }
+            Set<RevCommit> returned = new HashSet<>();
+            for (int w = 0; w < WRITERS; w++) {
+                List<RevCommit> commits = writers.get(w).get(30, TimeUnit.SECONDS);
+                for (int i = 0; i < COMMITS_PER_WRITER; i++) {
+                    assertEquals("writer " + w + " commit " + i, commits.get(i).getFullMessage());
+                }
+                returned.addAll(commits);
+            }
+            assertEquals(WRITERS * COMMITS_PER_WRITER, returned.size());
+        } finally {
+            executor.shutdown();
+        }
+
+        List<RevCommit> log = new ArrayList<>();
+        git.log().call().forEach(log::add);
+        assertEquals(WRITERS * COMMITS_PER_WRITER + 1, log.size());
+        assertEquals(initial, log.get(log.size() - 1));
+        for (RevCommit commit : log) {
+            assertTrue(commit.getParentCount() <= 1);
+        }
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            for (int w = 0; w < WRITERS; w++) {
+                assertEquals("content " + (COMMITS_PER_WRITER - 1), reader.getContent(log.get(0), "writer" + w
+                        + ".txt"));
+            }
+        }
+    }
+
+    /**
+     * Submits an invalid change set in the same batch as valid ones and asserts that only it fails.
+     *
+     * @throws IOException          file related error
+     * @throws GitAPIException      JGit related error
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test public void submit_invalidChanges_shouldOnlyFailThatCommit() throws IOException, GitAPIException,
+        InterruptedException {
+        try (GroupCommitter committer = new GroupCommitter(repository, "master", 10, 200, TimeUnit.MILLISECONDS)) {
+            CompletableFuture<RevCommit> first = committer.submit(new InCoreCommitBuilder(repository)
+                    .setMessage("first").add("a.txt", "a".getBytes()));
+            CompletableFuture<RevCommit> invalid = committer.submit(new InCoreCommitBuilder(repository)
+                    .setMessage("invalid").add("/absolute.txt", "x".getBytes()));
+            CompletableFuture<RevCommit> second = committer.submit(new InCoreCommitBuilder(repository)
+                    .setMessage("second").add("b.txt", "b".getBytes()));
+
+            RevCommit secondCommit = second.join();
+            assertEquals(first.join(), secondCommit.getParent(0));
+            assertEquals(secondCommit, repository.resolve("master"));
+            try {
+                invalid.get();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+                return;
+            }
+            throw new AssertionError("invalid path was committed");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.cdlflex.jgit.commit;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistoryGeneratorTest extends AbstractJGitTest {
+
+    private static HistoryGenerator newGenerator(long seed) {
+        return new HistoryGenerator().setSeed(seed).setCommits(300).setFiles(50).setBranches(3)
+                .setChangesPerCommit(2).setRenameRate(0.1).setMergeRate(0.2)
+                .setFileSizes(HistoryGenerator.SizeDistribution.logNormal(500, 1, 4000)).setCheckpointInterval(100);
+    }
+
+    /**
+     * Generates histories in two repositories and asserts that equal seeds give equal commit ids.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void generate_sameSeed_shouldCreateSameHistory() throws IOException, GitAPIException {
+        ObjectId tip = newGenerator(7).generate(repository);
+
+        Repository same = backend.create(temporaryFolder.newFolder("same"));
+        Repository other = backend.create(temporaryFolder.newFolder("other"));
+        try {
+            assertEquals(tip, newGenerator(7).generate(same));
+            assertEquals(repository.resolve("topic-1"), same.resolve("topic-1"));
+            assertNotEquals(tip, newGenerator(8).generate(other));
+        } finally {
+            same.close();
+            other.close();
+        }
+    }
+
+    /**
+     * Generates a history with branches, merges and renames and asserts its shape.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void generate_shouldCreateConfiguredHistory() throws IOException, GitAPIException {
+        ObjectId tip = newGenerator(42).generate(repository);
+
+        assertEquals(tip, repository.resolve("master"));
+        RevWalk walk = new RevWalk(repository);
+        try {
+            for (Ref ref : repository.getRefDatabase().getRefs("refs/heads/").values()) {
+                walk.markStart(walk.parseCommit(ref.getObjectId()));
+            }
+            int commits = 0;
+            int merges = 0;
+            for (RevCommit commit : walk) {
+                commits++;
+                if (commit.getParentCount() > 1) {
+                    merges++;
+                }
+            }
+            assertEquals(300, commits);
+            assertTrue(merges > 0);
+
+            int files = 0;
+            int renamed = 0;
+            TreeWalk tree = new TreeWalk(repository);
+            tree.addTree(walk.parseCommit(tip).getTree());
+            tree.setRecursive(true);
+            while (tree.next()) {
+                files++;
+                if (tree.getNameString().startsWith("r")) {
+                    renamed++;
+                }
+            }
+            assertEquals(50, files);
+            assertTrue(renamed > 0);
+        } finally {
+            walk.release();
+        }
+        assertEquals(4, repository.getRefDatabase().getRefs("refs/heads/").size());
+    }
+}
@@ -0,0 +1,199 @@
+package org.cdlflex.jgit.commit;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.history.FileHistoryReader;
+import org.eclipse.jgit.api.errors.ConcurrentRefUpdateException;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class InCoreCommitBuilderTest extends AbstractJGitTest {
+
+    /**
+     * Commits the same files through the porcelain API and the in-core builder and asserts that both produce the same
+     * tree, while the builder leaves the working tree alone.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void commit_sameFilesAsPorcelain_shouldProduceSameTree() throws IOException, GitAPIException {
+        createTestDirectory("dir");
+        createTestDirectory("dir.d");
+        createFile("dir/a.txt", "a");
+        createFile("dir.d/b.txt", "b");
+        createFile("dir-c.txt", "c");
+        RevCommit porcelain = commitAllChanges("porcelain");
+
+        RevCommit inCore = new InCoreCommitBuilder(repository).setBranch("in-core").setMessage("in-core")
+                .add("dir-c.txt", "c".getBytes())
+                .add("dir.d/b.txt", new ByteArrayInputStream("b".getBytes()), 1)
+                .add("dir/a.txt", "a".getBytes())
+                .commit();
+
+        assertEquals(porcelain.getTree(), inCore.getTree());
+        assertEquals(0, inCore.getParentCount());
+        assertEquals(inCore, repository.resolve("in-core"));
+        assertEquals("in-core", inCore.getFullMessage());
+    }
+
+    /**
+     * Changes and removes files below a parent commit and asserts that unchanged subtrees are reused and empty
+     * directories are dropped.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void commit_onParent_shouldOnlyRewriteChangedTrees() throws IOException, GitAPIException {
+        RevCommit first = new InCoreCommitBuilder(repository).setBranch("master").setMessage("first")
+                .add("src/main/App.java", "v1".getBytes())
+                .add("src/test/AppTest.java", "test".getBytes())
+                .add("docs/readme.txt", "docs".getBytes())
+                .commit();
+
+        RevCommit second = new InCoreCommitBuilder(repository).setBranch("master").setMessage("second")
+                .add("src/main/App.java", "v2".getBytes())
+                .remove("docs/readme.txt")
+                .commit();
+
+        assertEquals(first, second.getParent(0));
+        assertEquals(second, repository.resolve("master"));
+        assertEquals(treeOf(first, "src/test"), treeOf(second, "src/test"));
+        assertNull(treeOf(second, "docs"));
+        assertFalse(new File(repository.getWorkTree(), "src").exists());
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            assertEquals("v1", reader.getContent(first, "src/main/App.java"));
+            assertEquals("v2", reader.getContent(second, "src/main/App.java"));
+        }
+    }
+
+    /**
+     * Removes a directory and adds a file below the same path in one commit and asserts that only the new file is
+     * left in the directory.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void commit_removeThenAddBelow_shouldReplaceDirectory() throws IOException, GitAPIException {
+        RevCommit first = new InCoreCommitBuilder(repository).setBranch("master")
+                .add("dir/a.txt", "a".getBytes()).add("dir/sub/b.txt", "b".getBytes()).commit();
+
+        RevCommit second = new InCoreCommitBuilder(repository).setBranch("master").setParent(first)
+                .remove("dir").add("dir/x.txt", "x".getBytes()).commit();
+
+        assertNull(treeOf(second, "dir/a.txt"));
+        assertNull(treeOf(second, "dir/sub"));
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            assertEquals("x", reader.getContent(second, "dir/x.txt"));
+        }
+    }
+
+    /**
+     * Removes a path below an existing file and asserts that the file is kept.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void commit_removeBelowFile_shouldKeepFile() throws IOException, GitAPIException {
+        RevCommit first = new InCoreCommitBuilder(repository).setBranch("master").add("a", "a".getBytes())
+                .commit();
+
+        RevCommit second = new InCoreCommitBuilder(repository).setBranch("master").setParent(first).remove("a/b")
+                .add("c.txt", "c".getBytes()).add("c.txt/d", "d".getBytes()).remove("c.txt/d/e").commit();
+
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            assertEquals("a", reader.getContent(second, "a"));
+            assertEquals("d", reader.getContent(second, "c.txt/d"));
+        }
+    }
+
+    /**
+     * Overwrites an executable file, a symbolic link and a regular file and asserts that their modes are kept.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void commit_overwriteSpecialFiles_shouldKeepModes() throws IOException, GitAPIException {
+        RevCommit first;
+        ObjectInserter inserter = repository.newObjectInserter();
+        ObjectReader reader = inserter.newReader();
+        try {
+            ObjectId blob = inserter.insert(Constants.OBJ_BLOB, "old".getBytes());
+            CommitBuilder builder = new CommitBuilder();
+            builder.setTreeId(new TreeUpdater().add("run.sh", FileMode.EXECUTABLE_FILE, blob)
+                    .add("link", FileMode.SYMLINK, blob).add("plain.txt", FileMode.REGULAR_FILE, blob)
+                    .add("removed.sh", FileMode.EXECUTABLE_FILE, blob).apply(reader, inserter, null));
+            builder.setAuthor(new PersonIdent(repository));
+            builder.setCommitter(new PersonIdent(repository));
+            first = new RevWalk(reader).parseCommit(inserter.insert(builder));
+            inserter.flush();
+        } finally {
+            reader.release();
+            inserter.release();
+        }
+
+        RevCommit second = new InCoreCommitBuilder(repository).setParent(first).add("run.sh", "new".getBytes())
+                .add("link", "target".getBytes()).add("plain.txt", "new".getBytes()).remove("removed.sh")
+                .add("removed.sh", "new".getBytes()).commit();
+
+        assertEquals(FileMode.EXECUTABLE_FILE, modeOf(second, "run.sh"));
+        assertEquals(FileMode.SYMLINK, modeOf(second, "link"));
+        assertEquals(FileMode.REGULAR_FILE, modeOf(second, "plain.txt"));
+        assertEquals(FileMode.REGULAR_FILE, modeOf(second, "removed.sh"));
+        try (FileHistoryReader historyReader = new FileHistoryReader(repository)) {
+            assertEquals("new", historyReader.getContent(second, "run.sh"));
+        }
+    }
+
+    /**
+     * Builds a commit on a parent that is no longer the branch tip and asserts that the branch is not moved.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test(expected = ConcurrentRefUpdateException.class)
+    public void commit_staleParent_shouldFailRefUpdate() throws IOException, GitAPIException {
+        RevCommit first = new InCoreCommitBuilder(repository).setBranch("master").add("a.txt", "a".getBytes())
+                .commit();
+        new InCoreCommitBuilder(repository).setBranch("master").add("a.txt", "b".getBytes()).commit();
+
+        new InCoreCommitBuilder(repository).setBranch("master").setParent(first).add("a.txt", "c".getBytes())
+                .commit();
+    }
+
+    private FileMode modeOf(RevCommit commit, String path) throws IOException {
+        TreeWalk walk = TreeWalk.forPath(repository, path, commit.getTree());
+        try {
+            return walk.getFileMode(0);
+        } finally {
+            walk.release();
+        }
+    }
+
+    private ObjectId treeOf(RevCommit commit, String path) throws IOException {
+        TreeWalk walk = TreeWalk.forPath(repository, path, commit.getTree());
+        try {
+            return walk != null ? walk.getObjectId(0) : null;
+        } finally {
+            if (walk != null) {
+                walk.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.cdlflex.jgit.commit;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.RepositoryBackend;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests staging only the paths a worktree watcher reported dirty.
+ */
+public class IncrementalAddTest extends AbstractJGitTest {
+
+    /**
+     * Runs on disk, the watcher and ignore rules need the git directory.
+     */
+    public IncrementalAddTest() {
+        super(RepositoryBackend.DISK);
+    }
+
+    /**
+     * Modifies, deletes and creates files, stages only the dirty paths and asserts that the index matches the one a
+     * full {@code git add .} and {@code git add -u .} produce.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void add_dirtyPaths_shouldMatchFullScan() throws IOException, GitAPIException {
+        createTestDirectory("src");
+        createFile(".gitignore", "*.log\nbuild/\n");
+        createFile("a.txt", "a");
+        createFile("b.txt", "b");
+        createFile("src/c.txt", "c");
+        commitAllChanges("initial");
+
+        createFile("a.txt", "changed");
+        new File(repository.getWorkTree(), "b.txt").delete();
+        createTestDirectory("src/new");
+        createFile("src/new/d.txt", "d");
+        createFile("src/new/d.log", "ignored");
+        createTestDirectory("build");
+        createFile("build/out.txt", "ignored");
+
+        DirCache incremental = new IncrementalAdd(repository).add(Arrays.asList("a.txt", "b.txt", "src/new",
+                "build"));
+        Map<String, String> incrementalEntries = entries(incremental);
+
+        git.add().addFilepattern(".").call();
+        DirCache full = git.add().addFilepattern(".").setUpdate(true).call();
+
+        assertEquals(entries(full), incrementalEntries);
+        assertEquals(4, incrementalEntries.size());
+    }
+
+    /**
+     * Replaces a file by a directory and a directory by a file and asserts that the old entries are removed, while a
+     * nested repository is not staged.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void add_typeChanges_shouldReplaceEntries() throws IOException, GitAPIException {
+        createTestDirectory("dir");
+        createFile("file", "f");
+        createFile("dir/a.txt", "a");
+        createFile("dir/b.txt", "b");
+        commitAllChanges("initial");
+
+        new File(repository.getWorkTree(), "file").delete();
+        createTestDirectory("file");
+        createFile("file/x.txt", "x");
+        FileUtils.delete(new File(repository.getWorkTree(), "dir"), FileUtils.RECURSIVE);
+        createFile("dir", "now a file");
+        createTestDirectory("nested/.git");
+        createFile("nested/.git/HEAD", "ref: refs/heads/master\n");
+
+        Map<String, String> entries = entries(new IncrementalAdd(repository).add(Arrays.asList("file", "dir",
+                "nested")));
+
+        assertEquals(Arrays.asList("dir", "file/x.txt"), new ArrayList<>(entries.keySet()));
+        assertEquals(new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, "now a file".getBytes()).name(),
+                entries.get("dir").split(" ")[1]);
+    }
+
+    /**
+     * Stages paths reported by a watcher that lost events and asserts that the fallback scan stages deletions too.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void add_overflowedWatcher_shouldStageDeletions() throws IOException, GitAPIException {
+        createFile("a.txt", "a");
+        createFile("b.txt", "b");
+        commitAllChanges("initial");
+
+        createFile("a.txt", "changed");
+        new File(repository.getWorkTree(), "b.txt").delete();
+        DirCache dirCache = new IncrementalAdd(repository).add(new WorktreeWatcher.DirtyPaths(
+                Collections.<String>emptySet(), false));
+
+        assertEquals(1, dirCache.getEntryCount());
+        assertEquals(new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, "changed".getBytes()),
+                dirCache.getEntry("a.txt").getObjectId());
+    }
+
+    /**
+     * Changes the working tree while a watcher is running and asserts that the paths it reports are staged.
+     *
+     * @throws IOException          file related error
+     * @throws GitAPIException      JGit related error
+     * @throws InterruptedException if interrupted while waiting for events
+     */
+    @Test public void add_watchedChanges_shouldStageThem() throws IOException, GitAPIException, InterruptedException {
+        createFile("a.txt", "a");
+        commitAllChanges("initial");
+
+        try (WorktreeWatcher watcher = new WorktreeWatcher(repository)) {
+            createFile("a.txt", "changed");
+            createTestDirectory("dir");
+            createFile("dir/b.txt", "b");
+
+            Set<String> dirty = new HashSet<>();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!dirty.containsAll(Arrays.asList("a.txt", "dir")) && System.currentTimeMillis() < deadline) {
+                WorktreeWatcher.DirtyPaths paths = watcher.takeDirtyPaths();
+                assertTrue(paths.isComplete());
+                dirty.addAll(paths.getPaths());
+                Thread.sleep(20);
+            }
+            DirCache dirCache = new IncrementalAdd(repository).add(dirty);
+
+            assertEquals(2, dirCache.getEntryCount());
+            assertEquals(new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, "changed".getBytes()),
+                    dirCache.getEntry("a.txt").getObjectId());
+            assertEquals(new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, "b".getBytes()),
+                    dirCache.getEntry("dir/b.txt").getObjectId());
+        }
+    }
+
+    private Map<String, String> entries(DirCache dirCache) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < dirCache.getEntryCount(); i++) {
+            DirCacheEntry entry = dirCache.getEntry(i);
+            entries.put(entry.getPathString(), entry.getFileMode() + " " + entry.getObjectId().name());
+        }
+        return entries;
+    }
+}
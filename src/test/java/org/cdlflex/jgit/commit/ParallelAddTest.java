@@ -0,0 +1,69 @@
+package org.cdlflex.jgit.commit;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests staging the working tree with files hashed on several threads.
+ */
+public class ParallelAddTest extends AbstractJGitTest {
+
+    private static final int FILES = 500;
+
+    /**
+     * Stages a few hundred new and modified files, some of them ignored, with the parallel and the serial path and
+     * asserts that both write the same index file as {@link org.eclipse.jgit.api.AddCommand}.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void add_workTree_shouldWriteSameIndexAsAddCommand() throws IOException, GitAPIException {
+        createFile(".gitignore", "*.log\n");
+        createFile("tracked.txt", "tracked");
+        createFile("deleted.txt", "deleted");
+        commitAllChanges("initial");
+
+        createFile("tracked.txt", "changed");
+        new File(repository.getWorkTree(), "deleted.txt").delete();
+        for (int i = 0; i < FILES; i++) {
+            createTestDirectory("dir" + i % 10);
+            createFile("dir" + i % 10 + "/file" + i + ".txt", "content " + i);
+        }
+        createFile("dir0/ignored.log", "ignored");
+        // keep the files out of the racy-git window, so no entry gets smudged differently between runs
+        long past = System.currentTimeMillis() - 60000;
+        try (Stream<Path> paths = Files.walk(repository.getWorkTree().toPath())) {
+            paths.filter(path -> !path.startsWith(repositoryFolder.toPath()))
+                    .forEach(path -> path.toFile().setLastModified(past));
+        }
+
+        File indexFile = repository.getIndexFile();
+        byte[] before = Files.readAllBytes(indexFile.toPath());
+
+        git.add().addFilepattern(".").call();
+        byte[] expected = Files.readAllBytes(indexFile.toPath());
+
+        Files.write(indexFile.toPath(), before);
+        new ParallelAdd(repository).setParallelism(4).add(Collections.singleton("."));
+        byte[] parallel = Files.readAllBytes(indexFile.toPath());
+
+        Files.write(indexFile.toPath(), before);
+        new ParallelAdd(repository).setParallelism(1).add(Collections.singleton("."));
+        byte[] serial = Files.readAllBytes(indexFile.toPath());
+
+        assertArrayEquals(expected, parallel);
+        assertArrayEquals(expected, serial);
+        assertEquals(FILES + 3, repository.readDirCache().getEntryCount());
+    }
+}
@@ -0,0 +1,128 @@
+package org.cdlflex.jgit.history;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.RepositoryBackend;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the changed path bloom filters and the walk that consults them.
+ */
+public class ChangedPathFilterIndexTest extends AbstractJGitTest {
+
+    private static final String FILENAME = "test.txt";
+
+    /**
+     * Runs on disk, the filters are stored in the git directory.
+     */
+    public ChangedPathFilterIndexTest() {
+        super(RepositoryBackend.DISK);
+    }
+
+    private ChangedPathFilterIndex filters;
+
+    @Before public void setUp() throws IOException, GitAPIException {
+        git.commit().setMessage("initial").call();
+        filters = ChangedPathFilterIndex.open(repository);
+    }
+
+    /**
+     * Asserts that a filter contains every changed path and its leading directories and rejects unrelated paths.
+     */
+    @Test public void bloomFilter_shouldContainPathsAndDirectories() {
+        ChangedPathBloomFilter filter = ChangedPathBloomFilter.create(Arrays.asList("src/main/App.java", "pom.xml"));
+
+        assertTrue(filter.mightContain("src/main/App.java"));
+        assertTrue(filter.mightContain("src/main"));
+        assertTrue(filter.mightContain("src"));
+        assertTrue(filter.mightContain("pom.xml"));
+        assertFalse(filter.mightContain("README.md"));
+        assertFalse(ChangedPathBloomFilter.create(new ArrayList<>()).mightContain("pom.xml"));
+    }
+
+    /**
+     * Walks the history of a file through the bloom filters and asserts that the result matches git log while the
+     * commit that did not touch the file is skipped without a tree diff.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void walk_withFilters_shouldMatchLogAndSkipIrrelevantCommits() throws IOException, GitAPIException {
+        checkout("master");
+        createFile(FILENAME, "test");
+        commitAllChanges("first_commit");
+        createFile("otherfile.txt", "otherfilecontent");
+        RevCommit irrelevant = commitAllChanges("irrelevant_commit");
+        createFile(FILENAME, "test2");
+        RevCommit head = commitAllChanges("second_commit");
+        assertEquals(4, filters.update(head));
+
+        RevWalk walk = new RevWalk(repository);
+        ChangedPathRevFilter revFilter = new ChangedPathRevFilter(filters, FILENAME);
+        walk.setRevFilter(revFilter);
+        walk.markStart(walk.parseCommit(head));
+        List<RevCommit> commits = new ArrayList<>();
+        walk.forEach(commits::add);
+
+        List<RevCommit> expected = new ArrayList<>();
+        git.log().addPath(FILENAME).call().forEach(expected::add);
+        assertEquals(expected, commits);
+        assertFalse(filters.get(irrelevant).mightContain(FILENAME));
+        assertTrue(revFilter.getSkipped() >= 1);
+        walk.release();
+    }
+
+    /**
+     * Builds filters for part of the history only and asserts that the reader still finds every commit.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void historyReader_partiallyIndexed_shouldFindAllCommits() throws IOException, GitAPIException {
+        checkout("master");
+        createFile(FILENAME, "test");
+        RevCommit first = commitAllChanges("first_commit");
+        filters.update(first);
+        createFile(FILENAME, "test2");
+        RevCommit second = commitAllChanges("second_commit");
+        assertNull(filters.get(second));
+
+        try (FileHistoryReader historyReader = new FileHistoryReader(repository)) {
+            historyReader.setChangedPathFilters(filters);
+            assertEquals(Arrays.asList(second, first), historyReader.getCommits(FILENAME));
+        }
+    }
+
+    /**
+     * Reopens the index and asserts that filters were persisted.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void open_shouldLoadPersistedFilters() throws IOException, GitAPIException {
+        createFile(FILENAME, "test");
+        RevCommit commit = commitAllChanges("first_commit");
+        filters.update(commit);
+
+        ChangedPathFilterIndex reopened = ChangedPathFilterIndex.open(repository);
+
+        assertEquals(filters.size(), reopened.size());
+        assertNotNull(reopened.get(commit));
+        assertTrue(reopened.get(commit).mightContain(FILENAME));
+        assertEquals(0, reopened.update(commit));
+    }
+}
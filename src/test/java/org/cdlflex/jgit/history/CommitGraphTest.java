@@ -0,0 +1,187 @@
+package org.cdlflex.jgit.history;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.RepositoryBackend;
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the commit graph against the answers of a {@link RevWalk} over the same history.
+ */
+public class CommitGraphTest extends AbstractJGitTest {
+
+    private static final String FILENAME = "test.txt";
+
+    /**
+     * Runs on disk, the commit graph is stored in the git directory.
+     */
+    public CommitGraphTest() {
+        super(RepositoryBackend.DISK);
+    }
+
+    private RevWalk walk;
+    private List<RevCommit> commits;
+
+    @Before public void setUp() throws IOException, GitAPIException {
+        walk = new RevWalk(repository);
+        commits = new ArrayList<>();
+        commits.add(git.commit().setMessage("initial").call());
+    }
+
+    @After public void tearDown() {
+        walk.release();
+    }
+
+    /**
+     * Writes the graph for a linear history and asserts that it stores the same trees, parents and log order.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void write_linearHistory_shouldMatchCommits() throws IOException, GitAPIException {
+        for (int i = 0; i < 5; i++) {
+            createFile(FILENAME, "test" + i);
+            commits.add(commitAllChanges("commit " + i));
+        }
+
+        CommitGraph graph = CommitGraphWriter.write(repository);
+
+        assertEquals(commits.size(), graph.getCommitCount());
+        for (RevCommit commit : commits) {
+            int position = graph.findPosition(commit);
+            assertEquals(commit, graph.getObjectId(position));
+            assertEquals(commit.getTree(), graph.getTreeId(position));
+            assertEquals(commit.getParentCount(), graph.getParentCount(position));
+            assertEquals(commit.getCommitTime(), graph.getCommitTime(position));
+        }
+        assertEquals(1, graph.getGeneration(graph.findPosition(commits.get(0))));
+        assertEquals(6, graph.getGeneration(graph.findPosition(commits.get(5))));
+        assertFalse(graph.contains(ObjectId.zeroId()));
+
+        CommitGraphWalk graphWalk = graph.newWalk();
+        graphWalk.markStart(graph.findPosition(commits.get(5)));
+        List<ObjectId> log = new ArrayList<>();
+        for (int position = graphWalk.next(); position >= 0; position = graphWalk.next()) {
+            log.add(graph.getObjectId(position));
+        }
+        List<ObjectId> expected = new ArrayList<>();
+        git.log().call().forEach(expected::add);
+        assertEquals(expected, log);
+    }
+
+    /**
+     * Builds two diverging branches that are merged, then asserts that merge bases and ancestry answers match the
+     * RevWalk for every pair of commits.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void mergeBaseAndAncestry_branchedHistory_shouldMatchRevWalk() throws IOException, GitAPIException {
+        createFile(FILENAME, "base");
+        commits.add(commitAllChanges("base"));
+        createBranch("feature");
+
+        createFile("master.txt", "master");
+        commits.add(commitAllChanges("master"));
+
+        checkout("feature");
+        createFile("feature.txt", "feature");
+        commits.add(commitAllChanges("feature"));
+        createFile("feature2.txt", "feature2");
+        commits.add(commitAllChanges("feature2"));
+
+        checkout("master");
+        MergeResult merge = git.merge().include(repository.resolve("feature")).call();
+        commits.add(walk.parseCommit(merge.getNewHead()));
+        createFile("after.txt", "after");
+        commits.add(commitAllChanges("after merge"));
+
+        CommitGraph graph = CommitGraphWriter.write(repository);
+        CommitGraphWalk graphWalk = graph.newWalk();
+
+        for (RevCommit a : commits) {
+            for (RevCommit b : commits) {
+                int positionA = graph.findPosition(a);
+                int positionB = graph.findPosition(b);
+                assertEquals(a.name() + " ancestor of " + b.name(), walk.isMergedInto(walk.parseCommit(a),
+                        walk.parseCommit(b)), graphWalk.isAncestor(positionA, positionB));
+                assertEquals(revWalkMergeBase(a, b), graph.getObjectId(graphWalk.mergeBase(positionA, positionB)));
+            }
+        }
+    }
+
+    /**
+     * Writes an octopus merge with three parents and asserts that all parents are read back in order.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void write_octopusMerge_shouldStoreExtraEdges() throws IOException, GitAPIException {
+        List<ObjectId> parents = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            createFile(FILENAME, "test" + i);
+            parents.add(commitAllChanges("commit " + i));
+        }
+        ObjectInserter inserter = repository.newObjectInserter();
+        ObjectId octopus;
+        try {
+            CommitBuilder builder = new CommitBuilder();
+            builder.setTreeId(walk.parseCommit(parents.get(2)).getTree());
+            builder.setParentIds(parents);
+            builder.setAuthor(new PersonIdent("test", "test@example.com"));
+            builder.setCommitter(builder.getAuthor());
+            builder.setMessage("octopus");
+            octopus = inserter.insert(builder);
+            inserter.flush();
+        } finally {
+            inserter.release();
+        }
+        RefUpdate update = repository.updateRef("refs/heads/octopus");
+        update.setNewObjectId(octopus);
+        update.update();
+
+        CommitGraph graph = CommitGraphWriter.write(repository);
+        int position = graph.findPosition(octopus);
+
+        assertEquals(3, graph.getParentCount(position));
+        List<ObjectId> stored = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            stored.add(graph.getObjectId(graph.getParent(position, i)));
+        }
+        assertEquals(parents, stored);
+        assertTrue(graph.newWalk().isAncestor(graph.findPosition(commits.get(0)), position));
+        assertEquals(Arrays.asList(true, false), Arrays.asList(CommitGraph.exists(repository),
+                graph.contains(ObjectId.zeroId())));
+    }
+
+    private ObjectId revWalkMergeBase(RevCommit a, RevCommit b) throws IOException {
+        walk.reset();
+        walk.setRevFilter(RevFilter.MERGE_BASE);
+        walk.markStart(walk.parseCommit(a));
+        walk.markStart(walk.parseCommit(b));
+        RevCommit base = walk.next();
+        walk.reset();
+        walk.setRevFilter(RevFilter.ALL);
+        return base;
+    }
+}
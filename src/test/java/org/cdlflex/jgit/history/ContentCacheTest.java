@@ -0,0 +1,129 @@
+package org.cdlflex.jgit.history;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests caching decoded file contents.
+ */
+public class ContentCacheTest extends AbstractJGitTest {
+
+    /**
+     * Reads the same revision repeatedly through a history reader and asserts that it is decoded once.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getContent_sameRevision_shouldHitCache() throws IOException, GitAPIException {
+        writeToFile(createTestFile("test.txt"), "Grüße".getBytes(StandardCharsets.UTF_8));
+        RevCommit commit = commitAllChanges("first_commit");
+        ContentCache cache = new ContentCache(1 << 20);
+
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            reader.setContentCache(cache);
+            String first = reader.getContent(commit, "test.txt");
+            assertEquals("Grüße", first);
+            for (int i = 0; i < 10; i++) {
+                assertSame(first, reader.getContent(commit, "test.txt"));
+            }
+        }
+
+        assertEquals(10, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getSize());
+        assertEquals("Grüße".getBytes(StandardCharsets.UTF_8).length + ContentCache.ENTRY_OVERHEAD, cache.getWeight());
+    }
+
+    /**
+     * Fills a cache beyond its weight and asserts that the least recently used contents are evicted first and that
+     * charsets are cached separately.
+     *
+     * @throws IOException file related error
+     */
+    @Test public void get_overWeight_shouldEvictLeastRecentlyUsed() throws IOException {
+        List<ObjectId> blobs = insertBlobs(4, 100);
+        ContentCache cache = new ContentCache(3 * (100 + ContentCache.ENTRY_OVERHEAD));
+
+        ObjectReader reader = repository.newObjectReader();
+        try {
+            cache.get(reader, blobs.get(0), StandardCharsets.UTF_8);
+            cache.get(reader, blobs.get(1), StandardCharsets.UTF_8);
+            cache.get(reader, blobs.get(2), StandardCharsets.UTF_8);
+            // touch the oldest, so the second one is evicted next
+            cache.get(reader, blobs.get(0), StandardCharsets.UTF_8);
+            cache.get(reader, blobs.get(3), StandardCharsets.UTF_8);
+            cache.get(reader, blobs.get(3), StandardCharsets.ISO_8859_1);
+        } finally {
+            reader.release();
+        }
+
+        assertEquals(1, cache.getHits());
+        assertEquals(5, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(3, cache.getSize());
+        assertNull(cache.getIfPresent(blobs.get(1), StandardCharsets.UTF_8));
+        assertNull(cache.getIfPresent(blobs.get(2), StandardCharsets.UTF_8));
+        assertNotNull(cache.getIfPresent(blobs.get(0), StandardCharsets.UTF_8));
+        assertNotNull(cache.getIfPresent(blobs.get(3), StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Caches contents off-heap and asserts that hits decode the same content, while blobs heavier than the cache are
+     * not cached.
+     *
+     * @throws IOException file related error
+     */
+    @Test public void get_offHeap_shouldDecodeOnHit() throws IOException {
+        List<ObjectId> blobs = insertBlobs(1, 1000);
+        ObjectId large = insertBlobs(1, 5000).get(0);
+        ContentCache cache = new ContentCache(4096, true);
+
+        ObjectReader reader = repository.newObjectReader();
+        try {
+            String content = cache.get(reader, blobs.get(0), StandardCharsets.UTF_8);
+            assertEquals(content, cache.get(reader, blobs.get(0), StandardCharsets.UTF_8));
+            assertEquals(5000, cache.get(reader, large, StandardCharsets.UTF_8).length());
+        } finally {
+            reader.release();
+        }
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getSize());
+        assertNull(cache.getIfPresent(large, StandardCharsets.UTF_8));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    private List<ObjectId> insertBlobs(int count, int size) throws IOException {
+        List<ObjectId> blobs = new ArrayList<>();
+        ObjectInserter inserter = repository.newObjectInserter();
+        try {
+            for (int i = 0; i < count; i++) {
+                byte[] data = new byte[size];
+                for (int j = 0; j < size; j++) {
+                    data[j] = (byte) ('a' + (i + j) % 26);
+                }
+                blobs.add(inserter.insert(Constants.OBJ_BLOB, data));
+            }
+            inserter.flush();
+        } finally {
+            inserter.release();
+        }
+        return blobs;
+    }
+}
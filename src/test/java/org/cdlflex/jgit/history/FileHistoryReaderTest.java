@@ -0,0 +1,213 @@
+package org.cdlflex.jgit.history;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.LargeObjectException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests reading file revisions through a shared object reader.
+ */
+public class FileHistoryReaderTest extends AbstractJGitTest {
+
+    private static final String FILENAME = "test.txt";
+
+    private FileHistoryReader historyReader;
+
+    @Before public void setUp() throws IOException, GitAPIException {
+        git.commit().setMessage("initial").call();
+        historyReader = new FileHistoryReader(repository);
+    }
+
+    @After public void tearDown() {
+        historyReader.close();
+    }
+
+    /**
+     * Commits several versions of a file interleaved with an unrelated commit and asserts that the reader returns
+     * exactly the commits touching the file, matching the result of git log.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getCommits_shouldMatchLog() throws IOException, GitAPIException {
+        createFile(FILENAME, "test");
+        commitAllChanges("first_commit");
+        createFile("otherfile.txt", "otherfilecontent");
+        commitAllChanges("irrelevant_commit");
+        createFile(FILENAME, "test2");
+        commitAllChanges("second_commit");
+
+        List<RevCommit> expected = new ArrayList<>();
+        git.log().addPath(FILENAME).call().forEach(expected::add);
+
+        assertEquals(expected, historyReader.getCommits(FILENAME));
+    }
+
+    /**
+     * Reads all versions of a file with one reader and asserts that they are returned newest first.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getAllVersions_shouldReturnNewestFirst() throws IOException, GitAPIException {
+        createFile(FILENAME, "test");
+        commitAllChanges("first_commit");
+        createFile(FILENAME, "test2");
+        commitAllChanges("second_commit");
+        createFile(FILENAME, "test3");
+        commitAllChanges("third_commit");
+
+        assertEquals(Arrays.asList("test3", "test2", "test"), historyReader.getAllVersions(FILENAME));
+    }
+
+    /**
+     * Asserts that looking up a path that does not exist in a commit yields null instead of failing.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getContent_missingPath_shouldReturnNull() throws IOException, GitAPIException {
+        createFile(FILENAME, "test");
+        RevCommit commit = commitAllChanges("first_commit");
+
+        assertNull(historyReader.getContent(commit, "missing.txt"));
+    }
+
+    /**
+     * Streams all versions of a file and asserts that their contents and commits match the log order.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void stream_shouldYieldVersionsNewestFirst() throws IOException, GitAPIException {
+        createFile(FILENAME, "test");
+        RevCommit first = commitAllChanges("first_commit");
+        createFile(FILENAME, "test2");
+        RevCommit second = commitAllChanges("second_commit");
+
+        List<String> contents = historyReader.stream(FILENAME).map(version -> {
+            try {
+                return version.getContent().toString();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }).collect(Collectors.toList());
+        List<RevCommit> commits = historyReader.stream(FILENAME).map(FileVersion::getCommit)
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("test2", "test"), contents);
+        assertEquals(Arrays.asList(second, first), commits);
+    }
+
+    /**
+     * Lowers the stream threshold below the file size and asserts that the version is only readable as a stream.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void versions_aboveStreamThreshold_shouldOnlyBeStreamed() throws IOException, GitAPIException {
+        createFile(FILENAME, "larger than four bytes");
+        commitAllChanges("first_commit");
+        historyReader.setStreamThreshold(4);
+
+        Iterator<FileVersion> versions = historyReader.versions(FILENAME);
+        FileVersion version = versions.next();
+
+        assertTrue(version.isLarge());
+        assertEquals(22, version.getSize());
+        try (InputStream in = version.openStream()) {
+            assertEquals("larger than four bytes", readFully(in));
+        }
+        try {
+            version.getContent();
+            fail("expected the content to exceed the stream threshold");
+        } catch (LargeObjectException e) {
+            // expected
+        }
+        assertFalse(versions.hasNext());
+    }
+
+    /**
+     * Reverts a file to an earlier version and asserts that the shared content is returned at both positions of the
+     * history.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getAllVersions_revertedContent_shouldKeepHistoryOrder() throws IOException, GitAPIException {
+        createFile(FILENAME, "test");
+        commitAllChanges("first_commit");
+        createFile(FILENAME, "test2");
+        commitAllChanges("second_commit");
+        createFile(FILENAME, "test");
+        commitAllChanges("revert_commit");
+
+        assertEquals(Arrays.asList("test", "test2", "test"), historyReader.getAllVersions(FILENAME));
+    }
+
+    /**
+     * Reads several files and a directory of one commit in a single call and asserts that every requested file is
+     * returned once with its content, while missing and unrequested paths are skipped.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void snapshot_shouldReturnRequestedFiles() throws IOException, GitAPIException {
+        createFile(FILENAME, "test");
+        createFile("otherfile.txt", "other");
+        createTestDirectory("dir");
+        createFile("dir/a.txt", "a");
+        createFile("dir/b.txt", "b");
+        RevCommit commit = commitAllChanges("first_commit");
+        createFile(FILENAME, "test2");
+        commitAllChanges("second_commit");
+
+        Map<String, String> contents = new TreeMap<>();
+        Iterator<FileVersion> files = historyReader.snapshot(commit, Arrays.asList(FILENAME, "dir", "missing.txt"));
+        while (files.hasNext()) {
+            FileVersion file = files.next();
+            assertEquals(commit, file.getCommit());
+            assertEquals(historyReader.getBlobId(commit, file.getPath()), file.getBlobId());
+            contents.put(file.getPath(), file.getContent().toString());
+        }
+
+        Map<String, String> expected = new TreeMap<>();
+        expected.put(FILENAME, "test");
+        expected.put("dir/a.txt", "a");
+        expected.put("dir/b.txt", "b");
+        assertEquals(expected, contents);
+        assertFalse(historyReader.snapshot(commit, new ArrayList<String>()).hasNext());
+    }
+
+    private String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,70 @@
+package org.cdlflex.jgit.history;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.RepositoryBackend;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackFile;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackOrderTest extends AbstractJGitTest {
+
+    /**
+     * Packs are only sorted on disk.
+     */
+    public PackOrderTest() {
+        super(RepositoryBackend.DISK);
+    }
+
+    /**
+     * Packs a set of files, adds a loose object and asserts that a shuffled list is sorted by pack offset with the
+     * loose object last.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void sort_shouldOrderByPackOffset() throws IOException, GitAPIException {
+        for (int i = 0; i < 20; i++) {
+            createFile("file" + i + ".txt", "content " + i);
+        }
+        commitAllChanges("files");
+        git.gc().call();
+
+        ObjectInserter inserter = repository.newObjectInserter();
+        ObjectId loose;
+        try {
+            loose = inserter.insert(Constants.OBJ_BLOB, "loose".getBytes(StandardCharsets.UTF_8));
+            inserter.flush();
+        } finally {
+            inserter.release();
+        }
+
+        PackFile pack = ((ObjectDirectory) repository.getObjectDatabase()).getPacks().iterator().next();
+        List<ObjectId> objects = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            objects.add(repository.resolve("HEAD:file" + i + ".txt"));
+        }
+        objects.add(loose);
+        Collections.shuffle(objects);
+
+        new PackOrder(repository).sort(objects, Function.identity());
+
+        assertEquals(loose, objects.get(20));
+        for (int i = 1; i < 20; i++) {
+            assertTrue(pack.getIndex().findOffset(objects.get(i - 1)) < pack.getIndex().findOffset(objects.get(i)));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.cdlflex.jgit.history;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.RepositoryBackend;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the path history index against the results of a path-limited git log.
+ */
+public class PathHistoryIndexTest extends AbstractJGitTest {
+
+    private static final String FILENAME = "test.txt";
+
+    /**
+     * Runs on disk, the index is stored in the git directory.
+     */
+    public PathHistoryIndexTest() {
+        super(RepositoryBackend.DISK);
+    }
+
+    @Before public void setUp() throws IOException, GitAPIException {
+        git.commit().setMessage("initial").call();
+        pathHistoryIndex = PathHistoryIndex.open(repository);
+    }
+
+    /**
+     * Indexes every commit through commitAllChanges and asserts that the lookup matches git log, skipping the commit
+     * that did not touch the file.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getCommits_indexed_shouldMatchLog() throws IOException, GitAPIException {
+        createHistory();
+
+        assertTrue(pathHistoryIndex.contains(repository.resolve("HEAD")));
+        assertEquals(log(FILENAME), pathHistoryIndex.getCommits(FILENAME));
+        assertEquals(log("otherfile.txt"), pathHistoryIndex.getCommits("otherfile.txt"));
+    }
+
+    /**
+     * Commits without updating the index and asserts that the fallback walk covers the unindexed commits.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getCommits_unindexed_shouldFallBackToWalk() throws IOException, GitAPIException {
+        createHistory();
+        PathHistoryIndex index = pathHistoryIndex;
+        pathHistoryIndex = null;
+
+        createFile(FILENAME, "test4");
+        RevCommit unindexed = commitAllChanges("fourth_commit");
+
+        assertFalse(index.contains(unindexed));
+        assertEquals(log(FILENAME), index.getCommits(FILENAME));
+        assertEquals(unindexed, index.getCommits(FILENAME).get(0));
+    }
+
+    /**
+     * Reopens the index from disk and asserts that it returns the same results without reindexing.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void open_shouldLoadPersistedIndex() throws IOException, GitAPIException {
+        createHistory();
+        int size = pathHistoryIndex.size();
+
+        PathHistoryIndex reopened = PathHistoryIndex.open(repository);
+
+        assertEquals(size, reopened.size());
+        assertEquals(0, reopened.update());
+        assertEquals(log(FILENAME), reopened.getCommits(FILENAME));
+    }
+
+    /**
+     * Asserts that commits on a branch that is not reachable from the start commit are not returned.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getCommits_otherBranch_shouldNotBeReachable() throws IOException, GitAPIException {
+        checkout("master");
+        createFile(FILENAME, "test");
+        RevCommit onMaster = commitAllChanges("master_commit");
+
+        createBranch("feature");
+        checkout("feature");
+        createFile(FILENAME, "feature");
+        RevCommit onFeature = commitAllChanges("feature_commit");
+
+        assertEquals(Arrays.asList(onFeature, onMaster), pathHistoryIndex.getCommits(onFeature, FILENAME));
+        assertEquals(Arrays.<ObjectId>asList(onMaster), pathHistoryIndex.getCommits(onMaster, FILENAME));
+    }
+
+    /**
+     * Appends garbage to the side file, simulating a torn write, and asserts that reopening drops it.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void open_tornRecord_shouldBeTruncated() throws IOException, GitAPIException {
+        createHistory();
+        File file = IndexFiles.get(repository, PathHistoryIndex.FILE_NAME);
+        long length = file.length();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(length);
+            out.write(new byte[] { 1, 2, 3 });
+        }
+
+        PathHistoryIndex reopened = PathHistoryIndex.open(repository);
+
+        assertEquals(length, file.length());
+        assertEquals(log(FILENAME), reopened.getCommits(FILENAME));
+    }
+
+    private void createHistory() throws IOException, GitAPIException {
+        checkout("master");
+        createFile(FILENAME, "test");
+        commitAllChanges("first_commit");
+
+        createFile(FILENAME, "test2");
+        commitAllChanges("second_commit");
+
+        createFile("otherfile.txt", "otherfilecontent");
+        commitAllChanges("irrelevant_commit");
+
+        createFile(FILENAME, "test3");
+        commitAllChanges("third_commit");
+    }
+
+    private List<ObjectId> log(String path) throws GitAPIException {
+        List<ObjectId> commits = new ArrayList<>();
+        for (RevCommit commit : git.log().addPath(path).call()) {
+            commits.add(commit.copy());
+        }
+        return commits;
+    }
+}
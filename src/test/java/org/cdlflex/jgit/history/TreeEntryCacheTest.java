@@ -0,0 +1,90 @@
+package org.cdlflex.jgit.history;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.commit.BulkImporter;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TreeEntryCacheTest extends AbstractJGitTest {
+
+    private ObjectId writeCommit(BulkImporter importer, String path, String content) throws IOException {
+        return importer.newCommit("master").setMessage("change " + path)
+                .add(path, content.getBytes(StandardCharsets.UTF_8)).write();
+    }
+
+    /**
+     * Resolves existing and missing paths and asserts that the cache finds the same objects as a tree walk.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void lookup_shouldResolveLikeTreeWalk() throws IOException, GitAPIException {
+        ObjectId commitId;
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            writeCommit(importer, "a/b/c/file.txt", "nested");
+            writeCommit(importer, "a/x.txt", "x");
+            writeCommit(importer, "a/b.txt", "b");
+            commitId = writeCommit(importer, "top.txt", "top");
+        }
+
+        TreeEntryCache cache = new TreeEntryCache();
+        ObjectReader reader = repository.newObjectReader();
+        RevWalk walk = new RevWalk(reader);
+        try {
+            RevCommit commit = walk.parseCommit(commitId);
+            for (String path : new String[] { "a/b/c/file.txt", "a/x.txt", "a/b.txt", "top.txt", "a/b", "a" }) {
+                TreeWalk treeWalk = TreeWalk.forPath(reader, path, commit.getTree());
+                assertEquals(path, treeWalk.getObjectId(0), cache.lookup(reader, commit.getTree(), path));
+            }
+            for (String path : new String[] { "missing.txt", "a/b/missing.txt", "top.txt/file.txt", "a/b.txt/c" }) {
+                assertNull(path, cache.lookup(reader, commit.getTree(), path));
+                assertNull(path, cache.lookup(reader, commit.getTree(), path));
+            }
+        } finally {
+            walk.release();
+        }
+    }
+
+    /**
+     * Resolves a nested path in two commits that only differ in another file and asserts that the second lookup
+     * only parses the changed root tree.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void lookup_unchangedSubtrees_shouldHitCache() throws IOException, GitAPIException {
+        ObjectId first;
+        ObjectId second;
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            first = writeCommit(importer, "a/b/c/file.txt", "nested");
+            second = writeCommit(importer, "top.txt", "top");
+        }
+
+        TreeEntryCache cache = new TreeEntryCache();
+        ObjectReader reader = repository.newObjectReader();
+        RevWalk walk = new RevWalk(reader);
+        try {
+            ObjectId blobId = cache.lookup(reader, walk.parseCommit(first).getTree(), "a/b/c/file.txt");
+            assertEquals(0, cache.getHits());
+            assertEquals(4, cache.getMisses());
+
+            assertEquals(blobId, cache.lookup(reader, walk.parseCommit(second).getTree(), "a/b/c/file.txt"));
+            assertEquals(3, cache.getHits());
+            assertEquals(5, cache.getMisses());
+            assertEquals(5, cache.getSize());
+        } finally {
+            walk.release();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.cdlflex.jgit.merge;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.commit.InCoreCommitBuilder;
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConflictPredictorTest extends AbstractJGitTest {
+
+    private RevCommit commit(RevCommit parent, String... changes) throws IOException, GitAPIException {
+        InCoreCommitBuilder builder = new InCoreCommitBuilder(repository).setParent(parent);
+        for (int i = 0; i < changes.length; i += 2) {
+            if (changes[i + 1] == null) {
+                builder.remove(changes[i]);
+            } else {
+                builder.add(changes[i], changes[i + 1].getBytes());
+            }
+        }
+        return builder.commit();
+    }
+
+    /**
+     * Predicts a merge and asserts the status, and that a full in-core merge agrees about conflicts.
+     */
+    private MergePrediction assertPrediction(RevCommit ours, RevCommit theirs, MergeResult.MergeStatus expected)
+        throws IOException {
+        MergePrediction prediction = new ConflictPredictor(repository).predict(ours, theirs);
+        assertEquals(expected, prediction.getStatus());
+        if (expected == MergeResult.MergeStatus.MERGED || expected == MergeResult.MergeStatus.CONFLICTING) {
+            assertEquals(!prediction.isConflicting(), new InCoreMerger(repository).mergeTrees(ours, theirs).isMerged());
+        }
+        return prediction;
+    }
+
+    /**
+     * Makes the two conflicting commits of {@code testMergeConflicting_shouldNotMerge}, predicts the merge and asserts
+     * that the porcelain merge then reports the predicted status.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void predict_exampleConflict_shouldMatchPorcelainMerge() throws IOException, GitAPIException {
+        createFile("test.txt", "test");
+        commitAllChanges("initial");
+        createBranch("conflicting");
+        createFile("test.txt", "master");
+        RevCommit master = commitAllChanges("master");
+        checkout("conflicting");
+        createFile("test.txt", "conflicting");
+        RevCommit conflicting = commitAllChanges("conflicting");
+        checkout("master");
+
+        MergePrediction prediction = assertPrediction(master, conflicting, MergeResult.MergeStatus.CONFLICTING);
+
+        assertEquals("test.txt", prediction.getConflictPath());
+        assertEquals(prediction.getStatus(), git.merge().include(conflicting).call().getMergeStatus());
+    }
+
+    /**
+     * Predicts merges of ancestors and of branches whose changes do not overlap, including edits to different lines
+     * of the same file and deletions below a directory the other side removed.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void predict_nonOverlappingChanges_shouldNotConflict() throws IOException, GitAPIException {
+        RevCommit base = commit(null, "a.txt", "1\n2\n3\n4\n5\n", "dir/b.txt", "b", "dir/c.txt", "c", "d.txt", "d");
+        RevCommit ours = commit(base, "a.txt", "one\n2\n3\n4\n5\n", "dir/b.txt", null, "dir/c.txt", null);
+        RevCommit theirs = commit(base, "a.txt", "1\n2\n3\n4\nfive\n", "dir/b.txt", null, "d.txt", "changed",
+                "e.txt", "e");
+
+        assertPrediction(base, ours, MergeResult.MergeStatus.FAST_FORWARD);
+        assertPrediction(ours, base, MergeResult.MergeStatus.ALREADY_UP_TO_DATE);
+        MergePrediction prediction = assertPrediction(ours, theirs, MergeResult.MergeStatus.MERGED);
+        assertEquals(base, prediction.getBaseId());
+        assertNull(prediction.getConflictPath());
+    }
+
+    /**
+     * Predicts merges with overlapping edits, a modify/delete conflict, an add/add conflict and a file/directory
+     * conflict.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void predict_overlappingChanges_shouldConflict() throws IOException, GitAPIException {
+        RevCommit base = commit(null, "a.txt", "1\n2\n3\n", "dir/b.txt", "b");
+        RevCommit lines = commit(base, "a.txt", "1\nours\n3\n");
+
+        assertEquals("a.txt", assertPrediction(lines, commit(base, "a.txt", "1\ntheirs\n3\n"),
+                MergeResult.MergeStatus.CONFLICTING).getConflictPath());
+        assertEquals("dir/b.txt", assertPrediction(commit(base, "dir/b.txt", null),
+                commit(base, "dir/b.txt", "changed"), MergeResult.MergeStatus.CONFLICTING).getConflictPath());
+        assertEquals("new.txt", assertPrediction(commit(base, "new.txt", "ours"), commit(base, "new.txt", "theirs"),
+                MergeResult.MergeStatus.CONFLICTING).getConflictPath());
+        assertEquals("dir", assertPrediction(commit(base, "dir", "file"), commit(base, "dir/b.txt", "changed"),
+                MergeResult.MergeStatus.CONFLICTING).getConflictPath());
+        assertEquals("new", assertPrediction(commit(base, "new/c.txt", "c"), commit(base, "new", "file"),
+                MergeResult.MergeStatus.CONFLICTING).getConflictPath());
+        assertPrediction(lines, commit(base, "a.txt", "1\nours\n3\n", "x.txt", "x"), MergeResult.MergeStatus.MERGED);
+    }
+}
@@ -0,0 +1,139 @@
+package org.cdlflex.jgit.merge;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.commit.InCoreCommitBuilder;
+import org.cdlflex.jgit.history.FileHistoryReader;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FanInMergerTest extends AbstractJGitTest {
+
+    /**
+     * Merges three branches that change different files, on two threads, and asserts that a single octopus commit
+     * holds all changes while HEAD is left alone.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void merge_separateBranches_shouldCreateOctopusCommit() throws IOException, GitAPIException {
+        createFile("a.txt", "a");
+        createFile("b.txt", "b");
+        RevCommit base = commitAllChanges("base");
+        RevCommit first = new InCoreCommitBuilder(repository).setParent(base).add("a.txt", "first".getBytes())
+                .commit();
+        RevCommit second = new InCoreCommitBuilder(repository).setParent(base).remove("b.txt").commit();
+        RevCommit third = new InCoreCommitBuilder(repository).setParent(base)
+                .add("dir/c.txt", "third".getBytes()).commit();
+
+        FanInOutcome outcome = new FanInMerger(repository).setParallelism(2).setMessage("fan-in")
+                .merge(base, Arrays.asList(first, second, third));
+
+        assertTrue(outcome.isMerged());
+        assertEquals(Arrays.<ObjectId>asList(first, second, third), outcome.getMerged());
+        RevCommit merge = outcome.getCommit();
+        assertEquals(outcome.getTreeId(), merge.getTree());
+        assertArrayEquals(new RevCommit[] { base, first, second, third }, merge.getParents());
+        assertEquals("fan-in", merge.getFullMessage());
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            assertEquals("first", reader.getContent(merge, "a.txt"));
+            assertNull(reader.getBlobId(merge, "b.txt"));
+            assertEquals("third", reader.getContent(merge, "dir/c.txt"));
+        }
+        assertEquals(base, repository.resolve(Constants.HEAD));
+    }
+
+    /**
+     * Merges a clean branch, a branch conflicting with the integration commit, a branch overlapping the clean one and
+     * a branch already merged, and asserts that only the clean branch becomes a parent.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void merge_conflictingBranches_shouldReportConflictsPerBranch() throws IOException, GitAPIException {
+        RevCommit base = new InCoreCommitBuilder(repository).add("content.txt", "1\n2\n3\n".getBytes())
+                .add("a.txt", "a\n".getBytes()).commit();
+        RevCommit merged = new InCoreCommitBuilder(repository).setParent(base).add("m.txt", "m\n".getBytes())
+                .commit();
+        RevCommit integration = new InCoreCommitBuilder(repository).setParent(merged)
+                .add("content.txt", "1\nintegration\n3\n".getBytes()).commit();
+        RevCommit clean = new InCoreCommitBuilder(repository).setParent(base).add("a.txt", "clean\n".getBytes())
+                .commit();
+        RevCommit conflicting = new InCoreCommitBuilder(repository).setParent(base)
+                .add("content.txt", "1\nconflicting\n3\n".getBytes()).commit();
+        RevCommit overlapping = new InCoreCommitBuilder(repository).setParent(base)
+                .add("a.txt", "overlapping\n".getBytes()).add("o.txt", "o\n".getBytes()).commit();
+
+        FanInOutcome outcome = new FanInMerger(repository).setParallelism(2)
+                .merge(integration, Arrays.asList(clean, conflicting, overlapping, merged));
+
+        assertFalse(outcome.isMerged());
+        assertEquals(Collections.<ObjectId>singletonList(clean), outcome.getMerged());
+        assertEquals(Collections.<ObjectId>singletonList(merged), outcome.getUpToDate());
+        assertArrayEquals(new RevCommit[] { integration, clean }, outcome.getCommit().getParents());
+        assertEquals(Arrays.<ObjectId>asList(conflicting, overlapping),
+                Arrays.asList(outcome.getConflicts().keySet().toArray()));
+
+        List<MergeConflict> conflicts = outcome.getConflicts(conflicting);
+        assertEquals(1, conflicts.size());
+        assertEquals("content.txt", conflicts.get(0).getPath());
+        assertEquals(MergeConflict.Type.CONTENT, conflicts.get(0).getType());
+
+        conflicts = outcome.getConflicts(overlapping);
+        assertEquals(1, conflicts.size());
+        assertEquals("a.txt", conflicts.get(0).getPath());
+        assertEquals(MergeConflict.Type.OVERLAP, conflicts.get(0).getType());
+        assertTrue(outcome.getConflicts(clean).isEmpty());
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            assertEquals("clean\n", reader.getContent(outcome.getCommit(), "a.txt"));
+            assertNull(reader.getBlobId(outcome.getCommit(), "o.txt"));
+        }
+    }
+
+    /**
+     * Merges a branch replacing a directory by a file, two branches adding the same file and a branch adding a file
+     * below the replaced directory, on the calling thread.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void merge_directoryReplacedByFile_shouldOnlyAcceptCompatibleBranches() throws IOException,
+            GitAPIException {
+        RevCommit base = new InCoreCommitBuilder(repository).add("dir/x.txt", "x".getBytes()).commit();
+        RevCommit replacing = new InCoreCommitBuilder(repository).setParent(base).remove("dir/x.txt")
+                .add("dir", "file".getBytes()).commit();
+        RevCommit adding = new InCoreCommitBuilder(repository).setParent(base).add("same.txt", "s".getBytes())
+                .commit();
+        RevCommit addingSame = new InCoreCommitBuilder(repository).setParent(base).add("same.txt", "s".getBytes())
+                .add("other.txt", "o".getBytes()).commit();
+        RevCommit below = new InCoreCommitBuilder(repository).setParent(base).add("dir/y.txt", "y".getBytes())
+                .commit();
+
+        FanInOutcome outcome = new FanInMerger(repository).setParallelism(1)
+                .merge(base, Arrays.asList(replacing, adding, addingSame, below, adding));
+
+        assertEquals(Arrays.<ObjectId>asList(replacing, adding, addingSame), outcome.getMerged());
+        List<MergeConflict> conflicts = outcome.getConflicts(below);
+        assertEquals(1, conflicts.size());
+        assertEquals("dir/y.txt", conflicts.get(0).getPath());
+        assertEquals(MergeConflict.Type.OVERLAP, conflicts.get(0).getType());
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            assertEquals("file", reader.getContent(outcome.getCommit(), "dir"));
+            assertEquals("s", reader.getContent(outcome.getCommit(), "same.txt"));
+            assertEquals("o", reader.getContent(outcome.getCommit(), "other.txt"));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.cdlflex.jgit.merge;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.commit.InCoreCommitBuilder;
+import org.cdlflex.jgit.history.FileHistoryReader;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InCoreMergerTest extends AbstractJGitTest {
+
+    /**
+     * Merges two branches that change different files and asserts that the merge commit holds both changes while
+     * HEAD, the index and the working tree are left alone.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void merge_separateChanges_shouldCreateMergeCommit() throws IOException, GitAPIException {
+        createFile("a.txt", "a");
+        createFile("b.txt", "b");
+        RevCommit base = commitAllChanges("base");
+        RevCommit ours = new InCoreCommitBuilder(repository).setParent(base).add("a.txt", "ours".getBytes())
+                .commit();
+        RevCommit theirs = new InCoreCommitBuilder(repository).setParent(base).add("b.txt", "theirs".getBytes())
+                .commit();
+
+        MergeOutcome outcome = new InCoreMerger(repository).setMessage("merge").merge(ours, theirs);
+
+        assertTrue(outcome.isMerged());
+        assertEquals(base, outcome.getBaseId());
+        RevCommit merge = outcome.getCommit();
+        assertEquals(outcome.getTreeId(), merge.getTree());
+        assertArrayEquals(new RevCommit[] { ours, theirs }, merge.getParents());
+        assertEquals("merge", merge.getFullMessage());
+        try (FileHistoryReader reader = new FileHistoryReader(repository)) {
+            assertEquals("ours", reader.getContent(merge, "a.txt"));
+            assertEquals("theirs", reader.getContent(merge, "b.txt"));
+        }
+        assertEquals(base, repository.resolve(Constants.HEAD));
+        assertEquals("a", new String(Files.readAllBytes(new File(repository.getWorkTree(), "a.txt").toPath())));
+        assertTrue(git.status().call().isClean());
+    }
+
+    /**
+     * Merges branches with a content, an add/add and a modify/delete conflict and asserts the conflict report.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void merge_conflicting_shouldReportConflicts() throws IOException, GitAPIException {
+        RevCommit base = new InCoreCommitBuilder(repository).add("content.txt", "1\n2\n3\n4\n".getBytes())
+                .add("deleted.txt", "d\n".getBytes()).add("clean.txt", "c\n".getBytes()).commit();
+        RevCommit ours = new InCoreCommitBuilder(repository).setParent(base)
+                .add("content.txt", "1\nours\n3\n4\n".getBytes()).remove("deleted.txt")
+                .add("added.txt", "ours\n".getBytes()).commit();
+        RevCommit theirs = new InCoreCommitBuilder(repository).setParent(base)
+                .add("content.txt", "1\ntheirs\nmore\n3\n4\n".getBytes()).add("deleted.txt", "changed\n".getBytes())
+                .add("added.txt", "theirs\n".getBytes()).add("clean.txt", "clean\n".getBytes()).commit();
+
+        MergeOutcome outcome = new InCoreMerger(repository).merge(ours, theirs);
+
+        assertFalse(outcome.isMerged());
+        assertNull(outcome.getTreeId());
+        assertNull(outcome.getCommit());
+        List<MergeConflict> conflicts = outcome.getConflicts();
+        assertEquals(3, conflicts.size());
+        assertEquals("added.txt", conflicts.get(0).getPath());
+        assertEquals(MergeConflict.Type.ADD_ADD, conflicts.get(0).getType());
+        assertEquals(1, conflicts.get(0).getRegions().size());
+
+        assertEquals("content.txt", conflicts.get(1).getPath());
+        assertEquals(MergeConflict.Type.CONTENT, conflicts.get(1).getType());
+        assertEquals(1, conflicts.get(1).getRegions().size());
+        MergeConflict.Region region = conflicts.get(1).getRegions().get(0);
+        assertEquals(1, region.getOursBegin());
+        assertEquals(2, region.getOursEnd());
+        assertEquals(1, region.getTheirsBegin());
+        assertEquals(3, region.getTheirsEnd());
+
+        assertEquals("deleted.txt", conflicts.get(2).getPath());
+        assertEquals(MergeConflict.Type.MODIFY_DELETE, conflicts.get(2).getType());
+        assertTrue(conflicts.get(2).getRegions().isEmpty());
+    }
+
+    /**
+     * Merges conflicting branches with the "ours" strategy and only writes the tree, which must be that of ours.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void mergeTrees_oursStrategy_shouldKeepOurTree() throws IOException, GitAPIException {
+        RevCommit base = new InCoreCommitBuilder(repository).add("a.txt", "a".getBytes()).commit();
+        RevCommit ours = new InCoreCommitBuilder(repository).setParent(base).add("a.txt", "ours".getBytes())
+                .commit();
+        RevCommit theirs = new InCoreCommitBuilder(repository).setParent(base).add("a.txt", "theirs".getBytes())
+                .commit();
+
+        MergeOutcome outcome = new InCoreMerger(repository).setStrategy(MergeStrategy.OURS).mergeTrees(ours, theirs);
+
+        assertTrue(outcome.isMerged());
+        assertEquals(ours.getTree(), outcome.getTreeId());
+        assertNull(outcome.getCommit());
+        assertTrue(outcome.getConflicts().isEmpty());
+    }
+}
@@ -0,0 +1,123 @@
+package org.cdlflex.jgit.merge;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.RepositoryBackend;
+import org.cdlflex.jgit.commit.BulkImporter;
+import org.cdlflex.jgit.history.CommitGraph;
+import org.cdlflex.jgit.history.CommitGraphWriter;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MergeBaseCacheTest extends AbstractJGitTest {
+
+    private ObjectId base;
+    private ObjectId ours;
+    private ObjectId theirs;
+    private ObjectId crossOurs;
+    private ObjectId crossTheirs;
+
+    /**
+     * The cache is persisted in the git directory.
+     */
+    public MergeBaseCacheTest() {
+        super(RepositoryBackend.DISK);
+    }
+
+    /**
+     * Creates two branches from a common base, then merges each into the other for a criss-cross history.
+     */
+    private void createHistory() throws IOException, GitAPIException {
+        try (BulkImporter importer = new BulkImporter(repository)) {
+            base = importer.newCommit("ours").setMessage("base").add("base.txt", "base".getBytes()).write();
+            importer.resetBranch("theirs", base);
+            ours = importer.newCommit("ours").setMessage("ours").add("ours.txt", "1".getBytes()).write();
+            theirs = importer.newCommit("theirs").setMessage("theirs").add("theirs.txt", "1".getBytes()).write();
+            crossOurs = importer.newCommit("ours").setMessage("merge theirs").addMergeParent(theirs)
+                    .add("ours.txt", "2".getBytes()).write();
+            crossTheirs = importer.newCommit("theirs").setMessage("merge ours").addMergeParent(ours)
+                    .add("theirs.txt", "2".getBytes()).write();
+        }
+    }
+
+    /**
+     * Computes merge bases, reopens the cache and asserts that all pairs and the ancestor relations they imply are
+     * answered without computing anything again.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getMergeBases_reopened_shouldAnswerFromFile() throws IOException, GitAPIException {
+        createHistory();
+        MergeBaseCache cache = MergeBaseCache.open(repository);
+        assertEquals(Collections.singletonList(base), cache.getMergeBases(ours, theirs));
+        assertEquals(Collections.singletonList(base), cache.getMergeBases(theirs, ours));
+        assertEquals(new HashSet<>(Arrays.asList(ours, theirs)),
+                new HashSet<>(cache.getMergeBases(crossOurs, crossTheirs)));
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        MergeBaseCache reopened = MergeBaseCache.open(repository);
+        assertEquals(2, reopened.size());
+        assertEquals(base, reopened.getMergeBase(theirs, ours));
+        assertTrue(reopened.isAncestor(base, ours));
+        assertTrue(reopened.isAncestor(ours, crossTheirs));
+        assertTrue(reopened.isAncestor(theirs, theirs));
+        assertFalse(reopened.isAncestor(ours, theirs));
+        assertEquals(0, reopened.getMisses());
+
+        assertFalse(reopened.isAncestor(crossOurs, base));
+        assertEquals(1, reopened.getMisses());
+    }
+
+    /**
+     * Computes merge bases on a commit graph and with a walk and asserts that both agree.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void getMergeBases_commitGraph_shouldMatchWalk() throws IOException, GitAPIException {
+        createHistory();
+        CommitGraph graph = CommitGraphWriter.write(repository);
+        MergeBaseCache withGraph = MergeBaseCache.inMemory(repository);
+        withGraph.setCommitGraph(graph);
+        MergeBaseCache withWalk = MergeBaseCache.inMemory(repository);
+
+        for (ObjectId[] pair : new ObjectId[][] { { ours, theirs }, { crossOurs, crossTheirs }, { base, crossOurs },
+                { crossOurs, theirs } }) {
+            assertEquals(new HashSet<>(withWalk.getMergeBases(pair[0], pair[1])),
+                    new HashSet<>(withGraph.getMergeBases(pair[0], pair[1])));
+        }
+    }
+
+    /**
+     * Merges through an in-core merger and a predictor sharing a cache and asserts that the base is computed once.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void inCoreMerger_withCache_shouldReuseMergeBase() throws IOException, GitAPIException {
+        createHistory();
+        MergeBaseCache cache = MergeBaseCache.inMemory(repository);
+
+        MergePrediction prediction = new ConflictPredictor(repository).setMergeBaseCache(cache).predict(ours, theirs);
+        MergeOutcome outcome = new InCoreMerger(repository).setMergeBaseCache(cache).mergeTrees(ours, theirs);
+
+        assertFalse(prediction.isConflicting());
+        assertTrue(outcome.isMerged());
+        assertEquals(base, prediction.getBaseId());
+        assertEquals(base, outcome.getBaseId());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(new InCoreMerger(repository).mergeTrees(ours, theirs).getTreeId(), outcome.getTreeId());
+    }
+}
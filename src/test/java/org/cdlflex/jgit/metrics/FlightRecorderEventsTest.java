@@ -0,0 +1,230 @@
+package org.cdlflex.jgit.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.RepositoryBackend;
+import org.cdlflex.jgit.commit.InCoreCommitBuilder;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.pack.DeltaEncoder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the flight recorder events of an {@link InstrumentedRepository}.
+ */
+public class FlightRecorderEventsTest extends AbstractJGitTest {
+
+    private InstrumentedRepository instrumented;
+
+    /**
+     * Runs on disk, the instrumented repository is a file repository.
+     */
+    public FlightRecorderEventsTest() {
+        super(RepositoryBackend.DISK);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        File workTree = temporaryFolder.newFolder("instrumented");
+        instrumented = new InstrumentedRepository(new FileRepositoryBuilder().setWorkTree(workTree).setup());
+        instrumented.create();
+    }
+
+    @After
+    public void tearDown() {
+        instrumented.close();
+    }
+
+    /**
+     * Stores ten versions of a file as a chain of deltas, each on the previous version, and asserts that reading every
+     * version records open events with their pack location and delta depth, and inflate events with their size.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void open_deltaChain_shouldRecordDeltaDepth() throws IOException, GitAPIException {
+        Map<String, Integer> depths = new HashMap<>();
+        List<ObjectId> blobs = new ArrayList<>();
+        ObjectInserter.Formatter formatter = new ObjectInserter.Formatter();
+        StringBuilder content = new StringBuilder();
+        List<byte[]> versions = new ArrayList<>();
+        for (int version = 0; version < 10; version++) {
+            content.append("version ").append(version).append('\n');
+            byte[] bytes = content.toString().getBytes();
+            versions.add(bytes);
+            ObjectId blob = formatter.idFor(Constants.OBJ_BLOB, bytes);
+            blobs.add(blob);
+            depths.put(blob.name(), version);
+        }
+        ObjectInserter inserter = instrumented.newObjectInserter();
+        try {
+            inserter.newPackParser(new ByteArrayInputStream(deltaChainPack(versions)))
+                    .parse(NullProgressMonitor.INSTANCE);
+            inserter.flush();
+        } finally {
+            inserter.release();
+        }
+
+        List<RecordedEvent> events = record(() -> {
+            ObjectReader reader = instrumented.newObjectReader();
+            try {
+                for (ObjectId blob : blobs) {
+                    reader.open(blob).getBytes();
+                }
+            } finally {
+                reader.release();
+            }
+        });
+
+        int opened = 0;
+        int inflated = 0;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("org.cdlflex.jgit.ObjectOpen")) {
+                opened++;
+                assertEquals("blob", event.getString("objectType"));
+                assertNotNull(event.getString("pack"));
+                assertTrue(event.getLong("compressedSize") > 0);
+                assertEquals(depths.get(event.getString("objectId")), Integer.valueOf(event.getInt("deltaDepth")));
+            } else if (event.getEventType().getName().equals("org.cdlflex.jgit.ObjectInflate")) {
+                inflated++;
+                assertEquals(versions.get(depths.get(event.getString("objectId"))).length, event.getLong("bytes"));
+                assertFalse(event.getBoolean("streamed"));
+            }
+        }
+        assertEquals(10, opened);
+        assertEquals(10, inflated);
+    }
+
+    /**
+     * Commits through the in-core commit builder and asserts that its ref update is recorded.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void commit_inCoreBuilder_shouldRecordRefUpdate() throws IOException, GitAPIException {
+        List<ObjectId> commits = new ArrayList<>();
+        List<RecordedEvent> events = record(() -> commits.add(new InCoreCommitBuilder(instrumented).setBranch("master")
+                .setMessage("first").add("test.txt", "content".getBytes()).commit()));
+
+        RecordedEvent update = null;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("org.cdlflex.jgit.RefUpdate")) {
+                update = event;
+            }
+        }
+        assertNotNull(update);
+        assertEquals("refs/heads/master", update.getString("refName"));
+        assertEquals(commits.get(0).name(), update.getString("newId"));
+        assertEquals("NEW", update.getString("result"));
+        assertFalse(update.getBoolean("lockFailure"));
+    }
+
+    /**
+     * Returns a pack with the first version as a whole blob and every further version as an offset delta on the one
+     * before, each version being the previous one with more content appended.
+     */
+    private static byte[] deltaChainPack(List<byte[]> versions) throws IOException {
+        ByteArrayOutputStream pack = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(pack);
+        out.writeBytes("PACK");
+        out.writeInt(2);
+        out.writeInt(versions.size());
+        long previousOffset = 0;
+        for (int i = 0; i < versions.size(); i++) {
+            long offset = pack.size();
+            byte[] data = versions.get(i);
+            int type = Constants.OBJ_BLOB;
+            if (i > 0) {
+                byte[] base = versions.get(i - 1);
+                ByteArrayOutputStream delta = new ByteArrayOutputStream();
+                DeltaEncoder encoder = new DeltaEncoder(delta, base.length, data.length);
+                encoder.copy(0, base.length);
+                encoder.insert(data, base.length, data.length - base.length);
+                data = delta.toByteArray();
+                type = Constants.OBJ_OFS_DELTA;
+            }
+            long size = data.length;
+            int header = (type << 4) | (int) (size & 0x0f);
+            size >>>= 4;
+            while (size != 0) {
+                out.write(header | 0x80);
+                header = (int) (size & 0x7f);
+                size >>>= 7;
+            }
+            out.write(header);
+            if (type == Constants.OBJ_OFS_DELTA) {
+                long distance = offset - previousOffset;
+                byte[] encoded = new byte[10];
+                int p = encoded.length - 1;
+                encoded[p] = (byte) (distance & 0x7f);
+                while ((distance >>>= 7) != 0) {
+                    encoded[--p] = (byte) (0x80 | (--distance & 0x7f));
+                }
+                out.write(encoded, p, encoded.length - p);
+            }
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(deflated)) {
+                deflater.write(data);
+            }
+            deflated.writeTo(out);
+            previousOffset = offset;
+        }
+        out.flush();
+        out.write(Constants.newMessageDigest().digest(pack.toByteArray()));
+        return pack.toByteArray();
+    }
+
+    private List<RecordedEvent> record(Work work) throws IOException, GitAPIException {
+        File file = temporaryFolder.newFile("recording.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] { "org.cdlflex.jgit.ObjectOpen", "org.cdlflex.jgit.ObjectInflate",
+                    "org.cdlflex.jgit.RefUpdate" }) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            work.run();
+            recording.stop();
+            recording.dump(file.toPath());
+        }
+        // the recording covers the whole JVM, keep the events of this thread only as tests may run in parallel
+        long threadId = Thread.currentThread().getId();
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+            if (event.getThread() != null && event.getThread().getJavaThreadId() == threadId) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private interface Work {
+
+        void run() throws IOException, GitAPIException;
+    }
+}
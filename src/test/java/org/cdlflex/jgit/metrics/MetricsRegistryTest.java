@@ -0,0 +1,123 @@
+package org.cdlflex.jgit.metrics;
+
+import org.cdlflex.jgit.AbstractJGitTest;
+import org.cdlflex.jgit.RepositoryBackend;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.RefNotFoundException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetricsRegistryTest extends AbstractJGitTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private InstrumentedRepository instrumented;
+    private Git instrumentedGit;
+
+    /**
+     * Runs on disk, the instrumented repository is a file repository.
+     */
+    public MetricsRegistryTest() {
+        super(RepositoryBackend.DISK);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        File workTree = temporaryFolder.newFolder("instrumented");
+        instrumented = new InstrumentedRepository(new FileRepositoryBuilder().setWorkTree(workTree).setup());
+        instrumented.create();
+        instrumentedGit = new Git(instrumented);
+    }
+
+    @After
+    public void tearDown() {
+        instrumented.close();
+    }
+
+    /**
+     * Adds, commits and logs through the instrumented repository and asserts the counted objects and bytes.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void record_instrumentedRepository_shouldCountObjectIo() throws IOException, GitAPIException {
+        writeToFile(new File(instrumented.getWorkTree(), "test.txt"), "0123456789".getBytes());
+
+        metrics.record("add", () -> instrumentedGit.add().addFilepattern("test.txt").call());
+        RevCommit commit = metrics.record("commit", () -> instrumentedGit.commit().setMessage("first").call());
+        metrics.record("log", () -> instrumentedGit.log().addPath("test.txt").call().iterator().next());
+
+        OperationMetrics add = metrics.getOperation("add");
+        assertEquals(1, add.getCount());
+        assertEquals(1, add.getObjectsInserted());
+        assertEquals(10, add.getBytesWritten());
+        OperationMetrics commitMetrics = metrics.getOperation("commit");
+        // tree and commit
+        assertEquals(2, commitMetrics.getObjectsInserted());
+        assertTrue(commitMetrics.getAllocatedBytes() > 0);
+        OperationMetrics log = metrics.getOperation("log");
+        assertEquals(0, log.getObjectsInserted());
+        assertTrue(log.getBytesRead() >= commit.getRawBuffer().length);
+        assertTrue(log.getMaxMillis() > 0);
+        assertEquals(0, log.getFailures());
+    }
+
+    /**
+     * Records an operation that fails and asserts that it is counted as a failure and rethrown.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     */
+    @Test public void record_failingOperation_shouldCountFailure() throws IOException, GitAPIException {
+        try {
+            metrics.record("checkout", () -> instrumentedGit.checkout().setName("missing").call());
+            fail("checkout of a missing branch succeeded");
+        } catch (RefNotFoundException e) {
+            // expected
+        }
+
+        assertEquals(1, metrics.getOperation("checkout").getCount());
+        assertEquals(1, metrics.getOperation("checkout").getFailures());
+    }
+
+    /**
+     * Exports the registry and asserts that operations recorded before and after are readable as MBeans until the
+     * exporter is closed.
+     *
+     * @throws IOException     file related error
+     * @throws GitAPIException JGit related error
+     * @throws JMException     MBean related error
+     */
+    @Test public void jmxExporter_shouldPublishOperations() throws IOException, GitAPIException, JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        metrics.record("status", () -> instrumentedGit.status().call());
+
+        JmxExporter exporter = new JmxExporter(metrics, temporaryFolder.getRoot().getName());
+        try {
+            metrics.record("branchList", () -> instrumentedGit.branchList().call());
+            metrics.record("status", () -> instrumentedGit.status().call());
+
+            assertEquals(2L, server.getAttribute(exporter.getObjectName("status"), "Count"));
+            assertEquals(1L, server.getAttribute(exporter.getObjectName("branchList"), "Count"));
+            assertTrue((Double) server.getAttribute(exporter.getObjectName("status"), "P99Millis") > 0);
+        } finally {
+            exporter.close();
+        }
+        assertFalse(server.isRegistered(exporter.getObjectName("status")));
+    }
+}